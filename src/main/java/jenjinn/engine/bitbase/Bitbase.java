@@ -0,0 +1,78 @@
+package jenjinn.engine.bitbase;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A memory mapped table holding one bit for every position of a three piece
+ * ending, set if the stronger side wins. Positions are normalised so that the
+ * stronger side is white and indexed by the side to move and the squares of
+ * the strong king, weak king and extra piece. The file starts with a four byte
+ * magic number followed by the bits in index order.
+ *
+ * @author ThomasB
+ */
+final class Bitbase
+{
+	static final int POSITION_COUNT = 2 * 64 * 64 * 64;
+
+	private static final int MAGIC = 0x4A424231;
+
+	private static final int HEADER_BYTES = Integer.BYTES, FILE_BYTES = HEADER_BYTES + POSITION_COUNT / 8;
+
+	private final ByteBuffer bits;
+
+	private Bitbase(final ByteBuffer bits)
+	{
+		this.bits = bits;
+	}
+
+	static int index(final boolean strongToMove, final int strongKing, final int weakKing, final int piece)
+	{
+		return (strongToMove ? 0 : 1 << 18) | (strongKing << 12) | (weakKing << 6) | piece;
+	}
+
+	boolean isWin(final int index)
+	{
+		// Absolute reads leave the buffer position alone so probing is thread safe
+		return (bits.get(HEADER_BYTES + (index >>> 3)) & (1 << (index & 7))) != 0;
+	}
+
+	static Bitbase map(final Path file) throws IOException
+	{
+		try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+			if (channel.size() != FILE_BYTES) {
+				throw new IOException("Unexpected bitbase size " + channel.size() + " of " + file);
+			}
+			final ByteBuffer bits = channel.map(MapMode.READ_ONLY, 0, FILE_BYTES);
+			if (bits.getInt(0) != MAGIC) {
+				throw new IOException("Not a bitbase file: " + file);
+			}
+			return new Bitbase(bits);
+		}
+	}
+
+	/**
+	 * @param wins
+	 *            whether the stronger side wins, indexed as in
+	 *            {@link #index(boolean, int, int, int)}.
+	 */
+	static void write(final Path file, final boolean[] wins) throws IOException
+	{
+		assert wins.length == POSITION_COUNT;
+		final ByteBuffer buffer = ByteBuffer.allocate(FILE_BYTES);
+		buffer.putInt(0, MAGIC);
+		for (int i = 0; i < POSITION_COUNT; i++) {
+			if (wins[i]) {
+				final int offset = HEADER_BYTES + (i >>> 3);
+				buffer.put(offset, (byte) (buffer.get(offset) | (1 << (i & 7))));
+			}
+		}
+		Files.write(file, buffer.array());
+	}
+}
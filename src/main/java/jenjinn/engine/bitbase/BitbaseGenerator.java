@@ -0,0 +1,209 @@
+package jenjinn.engine.bitbase;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import jenjinn.engine.pieces.ChessPiece;
+
+/**
+ * Generates the bitbases by retrograde analysis. Starting from the mates, every
+ * pass marks the positions whose win follows from the wins already known: the
+ * stronger side to move wins if one of its moves reaches a win and the weaker
+ * side to move loses if all of its moves do. Once a pass adds nothing we have
+ * every win. Each pass only reads the results of the previous one so the
+ * positions are split across all cores.
+ *
+ * @author ThomasB
+ */
+public final class BitbaseGenerator
+{
+	private static final byte UNKNOWN = 0, WIN = 1, ILLEGAL = 2;
+
+	private static final ChessPiece KING = ChessPiece.get(5);
+
+	/** Results of the endings a pawn can promote into, only the wins matter. */
+	private final Map<BitbaseType, byte[]> results = new EnumMap<>(BitbaseType.class);
+
+	/** The passes the last generation needed, two more than the longest distance to mate in plies. */
+	private int passCount;
+
+	/** Pawns promote into the other two endings so those come first. */
+	private static final List<BitbaseType> GENERATION_ORDER = Arrays.asList(BitbaseType.KQK, BitbaseType.KRK, BitbaseType.KPK);
+
+	/**
+	 * Generates every bitbase into the directory given as the first argument, or
+	 * the default directory, reporting the progress.
+	 */
+	public static void main(final String[] args) throws IOException
+	{
+		final Path directory = Paths.get(args.length > 0 ? args[0] : Bitbases.DEFAULT_DIRECTORY);
+		Files.createDirectories(directory);
+		final BitbaseGenerator generator = new BitbaseGenerator();
+		for (final BitbaseType type : GENERATION_ORDER) {
+			final long start = System.nanoTime();
+			final int winCount = generator.write(type, directory);
+			System.out.println(type + ": " + winCount + " wins after " + generator.passCount + " passes in " + (System.nanoTime() - start) / 1_000_000 + "ms");
+		}
+	}
+
+	/**
+	 * Generates every bitbase into the given directory, creating it if needed.
+	 */
+	public static void generate(final Path directory) throws IOException
+	{
+		Files.createDirectories(directory);
+		final BitbaseGenerator generator = new BitbaseGenerator();
+		for (final BitbaseType type : GENERATION_ORDER) {
+			generator.write(type, directory);
+		}
+	}
+
+	/**
+	 * Generates the given ending and writes its wins to its file in the given
+	 * directory.
+	 *
+	 * @return the number of wins.
+	 */
+	private int write(final BitbaseType type, final Path directory) throws IOException
+	{
+		final byte[] result = generate(type);
+		final boolean[] wins = new boolean[Bitbase.POSITION_COUNT];
+		int winCount = 0;
+		for (int i = 0; i < wins.length; i++) {
+			wins[i] = result[i] == WIN;
+			winCount += wins[i] ? 1 : 0;
+		}
+		Bitbase.write(directory.resolve(type.getFileName()), wins);
+		return winCount;
+	}
+
+	/**
+	 * @return the result of every position of the given ending, indexed as in
+	 *         {@link Bitbase#index(boolean, int, int, int)}. Requires the endings
+	 *         a pawn promotes into to have been generated first.
+	 */
+	byte[] generate(final BitbaseType type)
+	{
+		final ChessPiece piece = ChessPiece.get(type.pieceIndex);
+		final byte[] initial = new byte[Bitbase.POSITION_COUNT];
+		IntStream.range(0, initial.length).parallel().forEach(i -> initial[i] = isLegal(type, piece, i) ? UNKNOWN : ILLEGAL);
+
+		byte[] current = initial;
+
+		boolean changed = true;
+		passCount = 0;
+		while (changed) {
+			passCount++;
+			final byte[] previous = current, next = Arrays.copyOf(previous, previous.length);
+			changed = IntStream.range(0, next.length).parallel().map(i -> {
+				if (previous[i] == UNKNOWN && isWin(type, piece, previous, i)) {
+					next[i] = WIN;
+					return 1;
+				}
+				return 0;
+			}).sum() > 0;
+			current = next;
+		}
+		results.put(type, current);
+		return current;
+	}
+
+	private static boolean isLegal(final BitbaseType type, final ChessPiece piece, final int index)
+	{
+		final boolean strongToMove = index >>> 18 == 0;
+		final int strongKing = (index >>> 12) & 63, weakKing = (index >>> 6) & 63, pieceSq = index & 63;
+		if (strongKing == weakKing || strongKing == pieceSq || weakKing == pieceSq) {
+			return false;
+		}
+		if (type == BitbaseType.KPK && (pieceSq < 8 || pieceSq >= 56)) {
+			return false;
+		}
+		if ((KING.getAttackset((byte) strongKing, 0L) & (1L << weakKing)) != 0) {
+			return false;
+		}
+		// The side which just moved cannot have left its king en prise
+		return !strongToMove || !attacks(piece, pieceSq, weakKing, (1L << strongKing) | (1L << weakKing));
+	}
+
+	private boolean isWin(final BitbaseType type, final ChessPiece piece, final byte[] known, final int index)
+	{
+		final int strongKing = (index >>> 12) & 63, weakKing = (index >>> 6) & 63, pieceSq = index & 63;
+		return index >>> 18 == 0 ? isStrongWin(type, piece, known, strongKing, weakKing, pieceSq) : isWeakLoss(piece, known, strongKing, weakKing, pieceSq);
+	}
+
+	private boolean isStrongWin(final BitbaseType type, final ChessPiece piece, final byte[] known, final int strongKing, final int weakKing, final int pieceSq)
+	{
+		final long kings = (1L << strongKing) | (1L << weakKing);
+
+		long kingMoves = KING.getAttackset((byte) strongKing, 0L) & ~(1L << pieceSq) & ~KING.getAttackset((byte) weakKing, 0L);
+		while (kingMoves != 0) {
+			final int target = Long.numberOfTrailingZeros(kingMoves);
+			kingMoves &= kingMoves - 1;
+			if (known[Bitbase.index(false, target, weakKing, pieceSq)] == WIN) {
+				return true;
+			}
+		}
+
+		if (type == BitbaseType.KPK) {
+			final int push = pieceSq + 8;
+			if ((kings & (1L << push)) != 0) {
+				return false;
+			}
+			if (push >= 56) {
+				// Promotion, an underpromotion to a rook sometimes avoids stalemate
+				return results.get(BitbaseType.KQK)[Bitbase.index(false, strongKing, weakKing, push)] == WIN
+						|| results.get(BitbaseType.KRK)[Bitbase.index(false, strongKing, weakKing, push)] == WIN;
+			}
+			if (known[Bitbase.index(false, strongKing, weakKing, push)] == WIN) {
+				return true;
+			}
+			final int doublePush = push + 8;
+			return pieceSq < 16 && (kings & (1L << doublePush)) == 0 && known[Bitbase.index(false, strongKing, weakKing, doublePush)] == WIN;
+		}
+
+		long pieceMoves = piece.getAttackset((byte) pieceSq, kings | (1L << pieceSq)) & ~kings;
+		while (pieceMoves != 0) {
+			final int target = Long.numberOfTrailingZeros(pieceMoves);
+			pieceMoves &= pieceMoves - 1;
+			if (known[Bitbase.index(false, strongKing, weakKing, target)] == WIN) {
+				return true;
+			}
+		}
+		return false;
+	}
+
+	private static boolean isWeakLoss(final ChessPiece piece, final byte[] known, final int strongKing, final int weakKing, final int pieceSq)
+	{
+		long kingMoves = KING.getAttackset((byte) weakKing, 0L) & ~KING.getAttackset((byte) strongKing, 0L);
+		boolean hasMove = false;
+		while (kingMoves != 0) {
+			final int target = Long.numberOfTrailingZeros(kingMoves);
+			kingMoves &= kingMoves - 1;
+			if (target == pieceSq) {
+				// Taking the undefended piece leaves a bare king each
+				return false;
+			}
+			if (attacks(piece, pieceSq, target, (1L << strongKing) | (1L << target))) {
+				continue;
+			}
+			hasMove = true;
+			if (known[Bitbase.index(true, strongKing, target, pieceSq)] != WIN) {
+				return false;
+			}
+		}
+		// Without a move we are either mated or stalemated
+		return hasMove || attacks(piece, pieceSq, weakKing, (1L << strongKing) | (1L << weakKing));
+	}
+
+	private static boolean attacks(final ChessPiece piece, final int pieceSq, final int target, final long otherPieces)
+	{
+		return (piece.getAttackset((byte) pieceSq, otherPieces | (1L << pieceSq)) & (1L << target)) != 0;
+	}
+}
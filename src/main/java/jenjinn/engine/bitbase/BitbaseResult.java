@@ -0,0 +1,12 @@
+package jenjinn.engine.bitbase;
+
+/**
+ * The theoretical result of a position from the point of view of the side to
+ * move.
+ *
+ * @author ThomasB
+ */
+public enum BitbaseResult
+{
+	WIN, DRAW, LOSS;
+}
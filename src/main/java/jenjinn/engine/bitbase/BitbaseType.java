@@ -0,0 +1,37 @@
+package jenjinn.engine.bitbase;
+
+import jenjinn.engine.boardstate.MaterialKey;
+import jenjinn.engine.enums.Side;
+
+/**
+ * The endings we generate bitbases for, each being a king and one piece
+ * against a bare king.
+ *
+ * @author ThomasB
+ */
+public enum BitbaseType
+{
+	KPK(0), KRK(3), KQK(4);
+
+	/** The index of the extra piece when white is the stronger side. */
+	final int pieceIndex;
+
+	private BitbaseType(final int pieceIndex)
+	{
+		this.pieceIndex = pieceIndex;
+	}
+
+	String getFileName()
+	{
+		return name().toLowerCase() + ".bb";
+	}
+
+	/**
+	 * @return the material key of this ending with the given side having the
+	 *         extra piece.
+	 */
+	long getMaterialKey(final Side strongSide)
+	{
+		return MaterialKey.getFeature(strongSide.index() + pieceIndex) + MaterialKey.getFeature(5) + MaterialKey.getFeature(11);
+	}
+}
@@ -0,0 +1,149 @@
+package jenjinn.engine.bitbase;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.Map;
+
+import jenjinn.engine.boardstate.BoardState;
+import jenjinn.engine.enums.Side;
+
+/**
+ * The bitbases available to the search, recognised by the material key of the
+ * probed position. Bitbases are generated by {@link BitbaseGenerator} and any
+ * whose file is missing are simply not probed.
+ *
+ * @author ThomasB
+ */
+public final class Bitbases
+{
+	/**
+	 * The score of a won bitbase position before the static evaluation is added
+	 * to it, which lets the search make progress towards the win. It exceeds any
+	 * evaluation of an unresolved position but stays below the mate scores.
+	 */
+	public static final int WIN_SCORE = 10000;
+
+	/**
+	 * Windows with bounds beyond this are comparing wins rather than asking
+	 * whether a position is won, the bitbase cannot answer those.
+	 */
+	public static final int RESOLVED_BOUND = WIN_SCORE / 2;
+
+	/** System property naming the directory bitbases are loaded from. */
+	public static final String DIRECTORY_PROPERTY = "jenjinn.bitbases";
+
+	static final String DEFAULT_DIRECTORY = "bitbases";
+
+	private static Bitbases defaultBitbases;
+
+	private final Map<BitbaseType, Bitbase> bitbases;
+
+	private Bitbases(final Map<BitbaseType, Bitbase> bitbases)
+	{
+		this.bitbases = bitbases;
+	}
+
+	/**
+	 * Maps the bitbase files found in the given directory, a file that exists but
+	 * cannot be mapped is an error rather than a missing bitbase.
+	 *
+	 * @throws UncheckedIOException
+	 *             if a bitbase file cannot be mapped.
+	 */
+	public static Bitbases load(final Path directory)
+	{
+		final Map<BitbaseType, Bitbase> bitbases = new EnumMap<>(BitbaseType.class);
+		for (final BitbaseType type : BitbaseType.values()) {
+			final Path file = directory.resolve(type.getFileName());
+			if (Files.isRegularFile(file)) {
+				try {
+					bitbases.put(type, Bitbase.map(file));
+				}
+				catch (final IOException e) {
+					throw new UncheckedIOException("Cannot map bitbase " + file, e);
+				}
+			}
+		}
+		return new Bitbases(bitbases);
+	}
+
+	public static Bitbases empty()
+	{
+		return new Bitbases(new EnumMap<>(BitbaseType.class));
+	}
+
+	/**
+	 * @return the bitbases in the directory named by {@link #DIRECTORY_PROPERTY},
+	 *         mapped once and shared by every search.
+	 */
+	public static synchronized Bitbases getDefault()
+	{
+		if (defaultBitbases == null) {
+			defaultBitbases = load(Paths.get(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY)));
+		}
+		return defaultBitbases;
+	}
+
+	public boolean contains(final BitbaseType type)
+	{
+		return bitbases.containsKey(type);
+	}
+
+	/**
+	 * @return the result of the given non terminal state for the side to move or
+	 *         null if no loaded bitbase covers it.
+	 */
+	public BitbaseResult probe(final BoardState state)
+	{
+		if (bitbases.isEmpty() || state.getCastleRights() != 0) {
+			return null;
+		}
+		final long materialKey = state.getMaterialKey();
+		for (final Map.Entry<BitbaseType, Bitbase> entry : bitbases.entrySet()) {
+			final BitbaseType type = entry.getKey();
+			for (final Side strongSide : Side.values()) {
+				if (type.getMaterialKey(strongSide) == materialKey) {
+					return probe(entry.getValue(), type, strongSide, state);
+				}
+			}
+		}
+		return null;
+	}
+
+	private static BitbaseResult probe(final Bitbase bitbase, final BitbaseType type, final Side strongSide, final BoardState state)
+	{
+		// Mirror the ranks when black is stronger so the bitbase sees white
+		final int flip = strongSide.isWhite() ? 0 : 56;
+		final int strongKing = Long.numberOfTrailingZeros(state.getPieceLocations(strongSide.index() + 5)) ^ flip;
+		final int weakKing = Long.numberOfTrailingZeros(state.getPieceLocations(strongSide.otherSide().index() + 5)) ^ flip;
+		final int piece = Long.numberOfTrailingZeros(state.getPieceLocations(strongSide.index() + type.pieceIndex)) ^ flip;
+		final boolean strongToMove = state.getFriendlySide() == strongSide;
+
+		if (!bitbase.isWin(Bitbase.index(strongToMove, strongKing, weakKing, piece))) {
+			return BitbaseResult.DRAW;
+		}
+		return strongToMove ? BitbaseResult.WIN : BitbaseResult.LOSS;
+	}
+
+	/**
+	 * @param result
+	 * @param staticEval
+	 *            the static evaluation of the probed state for the side to move.
+	 * @return the search score of a probed state for the side to move.
+	 */
+	public static int getScore(final BitbaseResult result, final int staticEval)
+	{
+		switch (result) {
+		case WIN:
+			return WIN_SCORE + staticEval;
+		case LOSS:
+			return -WIN_SCORE + staticEval;
+		default:
+			return 0;
+		}
+	}
+}
@@ -8,6 +8,7 @@ import java.util.List;
 import jenjinn.engine.enums.Side;
 import jenjinn.engine.enums.TerminationType;
 import jenjinn.engine.evaluation.PieceValueProvider;
+import jenjinn.engine.evaluation.TaperedScore;
 import jenjinn.engine.exceptions.AmbiguousPgnException;
 import jenjinn.engine.moves.ChessMove;
 import jenjinn.engine.openingdatabase.AlgebraicCommand;
@@ -47,6 +48,14 @@ public interface BoardState
 		return getTerminationState() != TerminationType.NOT_TERMINAL;
 	}
 
+	/**
+	 * @return whether the king of the side to move is attacked by the enemy side.
+	 */
+	default boolean isInCheck()
+	{
+		return (getSquaresAttackedBy(getEnemySide()) & getPieceLocations(getFriendlySide().index() + 5)) != 0;
+	}
+
 	List<ChessMove> getMoves();
 
 	List<ChessMove> getAttackMoves();
@@ -75,11 +84,24 @@ public interface BoardState
 
 	byte getPiecePhase();
 
+	/**
+	 * @return a key identifying the material on the board, see
+	 *         {@link MaterialKey}.
+	 */
+	default long getMaterialKey()
+	{
+		return MaterialKey.fromPieceLocations(getPieceLocationsCopy());
+	}
+
 	long getDevelopmentStatus();
 
 	long getHashing();
 
-	long getPawnHash();
+	/**
+	 * @return a Zobrist hash of the pawns and kings only, the key of the pawn
+	 *         table.
+	 */
+	long getPawnKingHash();
 
 	byte getEnPassantSq();
 
@@ -91,9 +113,21 @@ public interface BoardState
 
 	void printMoves();
 
-	short getMidgamePositionalEval();
+	/**
+	 * @return the sum of the piece square values of every piece on the board as
+	 *         a {@link TaperedScore}.
+	 */
+	int getPositionalEval();
 
-	short getEndgamePositionalEval();
+	default short getMidgamePositionalEval()
+	{
+		return TaperedScore.mid(getPositionalEval());
+	}
+
+	default short getEndgamePositionalEval()
+	{
+		return TaperedScore.end(getPositionalEval());
+	}
 
 	ChessPiece getPieceFromBB(long fromset);
 
@@ -102,18 +136,12 @@ public interface BoardState
 		return (short) ((getPiecePhase() * 256 + 12) / 24);
 	}
 
+	/**
+	 * @return the piece values at the game phase of this state, shared between
+	 *         all states so not to be modified.
+	 */
 	default short[] interpolatePieceValues()
 	{
-		final short[] arr1 = PieceValueProvider.MGAME_VALUES, arr2 = PieceValueProvider.EGAME_VALUES;
-		assert arr1.length == arr2.length;
-		final short[] result = new short[arr1.length];
-		final short gamePhase = getGamePhase();
-
-		for (int i = 0; i < arr1.length; i++) {
-			final int ans = ((arr1[i] * (256 - gamePhase)) + (arr2[i] * gamePhase)) / 256;
-			assert (short) ans == ans;
-			result[i] = (short) (ans);
-		}
-		return result;
+		return PieceValueProvider.getPieceValues(getGamePhase());
 	}
 }
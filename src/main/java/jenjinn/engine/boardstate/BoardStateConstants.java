@@ -9,6 +9,7 @@ package jenjinn.engine.boardstate;
 import jenjinn.engine.evaluation.PieceSquareTable;
 import jenjinn.engine.evaluation.piecetablesimpl.EndGamePieceSquareTable;
 import jenjinn.engine.evaluation.piecetablesimpl.MiddleGamePieceSquareTable;
+import jenjinn.engine.evaluation.piecetablesimpl.TaperedPieceSquareTable;
 import jenjinn.engine.zobristhashing.ZobristHasher;
 
 /**
@@ -19,6 +20,8 @@ public final class BoardStateConstants
 {
 	private static final PieceSquareTable MIDDLE_GAME_PIECE_SQUARE_TABLE = new MiddleGamePieceSquareTable();
 	private static final PieceSquareTable END_GAME_PIECE_SQUARE_TABLE = new EndGamePieceSquareTable();
+	private static final TaperedPieceSquareTable TAPERED_PIECE_SQUARE_TABLE = new TaperedPieceSquareTable(
+			MIDDLE_GAME_PIECE_SQUARE_TABLE, END_GAME_PIECE_SQUARE_TABLE);
 	private static final ZobristHasher BOARD_HASHER = ZobristHasher.getDefault();
 
 	public static PieceSquareTable getMiddleGamePST()
@@ -31,6 +34,15 @@ public final class BoardStateConstants
 		return END_GAME_PIECE_SQUARE_TABLE;
 	}
 
+	/**
+	 * @return the table from which states incrementally update their packed
+	 *         positional score.
+	 */
+	public static TaperedPieceSquareTable getTaperedPST()
+	{
+		return TAPERED_PIECE_SQUARE_TABLE;
+	}
+
 	public static ZobristHasher getStateHasher()
 	{
 		return BOARD_HASHER;
@@ -12,10 +12,10 @@ import java.util.Arrays;
 import java.util.BitSet;
 import java.util.List;
 
-import jenjinn.engine.bitboarddatabase.Bitboards;
 import jenjinn.engine.enums.Side;
 import jenjinn.engine.enums.Sq;
 import jenjinn.engine.enums.TerminationType;
+import jenjinn.engine.evaluation.TaperedScore;
 import jenjinn.engine.exceptions.AmbiguousPgnException;
 import jenjinn.engine.misc.EngineUtils;
 import jenjinn.engine.moves.CastleMove;
@@ -33,10 +33,6 @@ import jenjinn.engine.pieces.PieceType;
  */
 public class BoardStateImpl implements BoardState
 {
-	private static final long EXCESS_CHOPPER = ~EngineUtils.multipleOr(
-			Bitboards.RNK[2], Bitboards.RNK[3], Bitboards.RNK[4],
-			Bitboards.RNK[5], Bitboards.RNK[6], Bitboards.RNK[7]);
-
 	private static final long CASTLE_RIGHTS_GETTER = 0b11110000L << (7 * 8);
 
 	private static final long CASTLE_STATUS_GETTER = 0b1111L << (7 * 8);
@@ -47,9 +43,9 @@ public class BoardStateImpl implements BoardState
 
 	private static final long HALFMOVE_CLOCK_GETTER = 0b1111111L << (5 * 8);
 
-	private static final long MIDGAME_LOC_EVAL_GETTER = 0b1111111111111111L << (2 * 8);
+	private static final long PIECE_PHASE_GETTER = 0b11111111L << (4 * 8);
 
-	private static final long ENDGAME_LOC_EVAL_GETTER = 0b1111111111111111L;
+	private static final long POSITIONAL_EVAL_GETTER = 0xFFFFFFFFL;
 	//
 
 	/**
@@ -71,13 +67,37 @@ public class BoardStateImpl implements BoardState
 
 	private final long[] pieceLocations;
 
+	/** The material configuration, see {@link MaterialKey}. */
+	private final long materialKey;
+
+	/** The Zobrist features of the pawns and kings alone, updated by each move. */
+	private final long pawnKingHash;
+
 	private TerminationType termType;
 
+	/**
+	 * Constructs a state whose material key and pawn and king hash are calculated
+	 * from the piece locations, the given piece phase is ignored as it is derived
+	 * from that key.
+	 */
 	public BoardStateImpl(final long[] recentHashings, final long friendlySide, final long castleRights, final long castleStatus, final long enPassantSq, final long halfMoveClock, final long piecePhase, final long midPieceLocEval, final long endPieceLocEval, final long devStatus, final long[] pieceLocations)
+	{
+		this(recentHashings, friendlySide, castleRights, castleStatus, enPassantSq, halfMoveClock, TaperedScore.of((short) midPieceLocEval, (short) endPieceLocEval),
+				devStatus, pieceLocations, MaterialKey.fromPieceLocations(pieceLocations), calculatePawnKingHash(pieceLocations));
+	}
+
+	/**
+	 * Constructs a state with an incrementally maintained {@link TaperedScore}
+	 * positional evaluation, material key and pawn and king hash.
+	 */
+	public BoardStateImpl(final long[] recentHashings, final long friendlySide, final long castleRights, final long castleStatus, final long enPassantSq, final long halfMoveClock, final int positionalEval, final long devStatus, final long[] pieceLocations, final long materialKey, final long pawnKingHash)
 	{
 		this.recentHashings = recentHashings;
 		this.devStatus = devStatus;
 		this.pieceLocations = pieceLocations;
+		this.materialKey = materialKey;
+		this.pawnKingHash = pawnKingHash;
+		final long piecePhase = MaterialKey.getPiecePhase(materialKey);
 
 		this.metaData =
 				(castleRights << 60) | // 60 = (7 * 8) + 4
@@ -86,7 +106,7 @@ public class BoardStateImpl implements BoardState
 				(friendlySide << 48) | // 48 = 6 * 8
 				(halfMoveClock << 40) | // 40 = (5 * 8)
 				(piecePhase << 32) | // 32 = (4 * 8)
-				((midPieceLocEval & EXCESS_CHOPPER) << 16) | (endPieceLocEval & EXCESS_CHOPPER);
+				(positionalEval & POSITIONAL_EVAL_GETTER);
 	}
 
 	@Override
@@ -412,23 +432,19 @@ public class BoardStateImpl implements BoardState
 	@Override
 	public byte getPiecePhase()
 	{
-		int pPhase = 24;
-		for (int i = 1; i < 5; i++) {
-			pPhase -= Long.bitCount(pieceLocations[i] | pieceLocations[i + 6]) * ChessMove.PIECE_PHASES[i];
-		}
-		return (byte) Math.max(0, pPhase);
+		return (byte) ((metaData & PIECE_PHASE_GETTER) >>> 32);
 	}
 
 	@Override
-	public short getMidgamePositionalEval()
+	public long getMaterialKey()
 	{
-		return (short) ((metaData & MIDGAME_LOC_EVAL_GETTER) >>> 16);
+		return materialKey;
 	}
 
 	@Override
-	public short getEndgamePositionalEval()
+	public int getPositionalEval()
 	{
-		return (short) (metaData & ENDGAME_LOC_EVAL_GETTER);
+		return (int) (metaData & POSITIONAL_EVAL_GETTER);
 	}
 
 	@Override
@@ -636,14 +652,21 @@ public class BoardStateImpl implements BoardState
 	}
 
 	@Override
-	public long getPawnHash()
+	public long getPawnKingHash()
+	{
+		return pawnKingHash;
+	}
+
+	/**
+	 * @return the Zobrist features of the pawns and kings in the given locations.
+	 */
+	public static long calculatePawnKingHash(final long[] pieceLocations)
 	{
 		long hash = 0L;
-		for (final byte ploc : EngineUtils.getSetBits(pieceLocations[0])) {
-			hash ^= getStateHasher().getSquarePieceFeature(ploc, ChessPiece.get(0));
-		}
-		for (final byte ploc : EngineUtils.getSetBits(pieceLocations[6])) {
-			hash ^= getStateHasher().getSquarePieceFeature(ploc, ChessPiece.get(6));
+		for (final int i : new int[] { 0, 5, 6, 11 }) {
+			for (final byte loc : EngineUtils.getSetBits(pieceLocations[i])) {
+				hash ^= getStateHasher().getSquarePieceFeature(loc, ChessPiece.get(i));
+			}
 		}
 		return hash;
 	}
@@ -0,0 +1,63 @@
+package jenjinn.engine.boardstate;
+
+import jenjinn.engine.moves.ChessMove;
+
+/**
+ * Static utilities for material keys. A material key packs the number of
+ * pieces of each type on the board into a long, four bits per piece index, so
+ * it can be updated incrementally by adding or subtracting the feature of the
+ * piece which appears or disappears. Two positions share a key if and only if
+ * they share their material configuration.
+ *
+ * @author ThomasB
+ */
+public final class MaterialKey
+{
+	private static final int BITS_PER_PIECE = 4;
+
+	private static final long COUNT_MASK = (1L << BITS_PER_PIECE) - 1;
+
+	/** The phase contribution of all pieces in the starting position. */
+	private static final int MAX_PIECE_PHASE = 24;
+
+	private MaterialKey()
+	{
+	}
+
+	/**
+	 * @param pieceIndex
+	 * @return the value to add to a key when a piece of the given index appears
+	 *         on the board, or subtract when one disappears.
+	 */
+	public static long getFeature(final int pieceIndex)
+	{
+		return 1L << (pieceIndex * BITS_PER_PIECE);
+	}
+
+	public static int getCount(final long materialKey, final int pieceIndex)
+	{
+		return (int) ((materialKey >>> (pieceIndex * BITS_PER_PIECE)) & COUNT_MASK);
+	}
+
+	public static long fromPieceLocations(final long[] pieceLocations)
+	{
+		long key = 0L;
+		for (int i = 0; i < 12; i++) {
+			key += Long.bitCount(pieceLocations[i]) * getFeature(i);
+		}
+		return key;
+	}
+
+	/**
+	 * @return the piece phase of any position with the given material, running
+	 *         from 0 with all pieces on the board to 24 with none.
+	 */
+	public static byte getPiecePhase(final long materialKey)
+	{
+		int pPhase = MAX_PIECE_PHASE;
+		for (int i = 1; i < 5; i++) {
+			pPhase -= (getCount(materialKey, i) + getCount(materialKey, i + 6)) * ChessMove.PIECE_PHASES[i];
+		}
+		return (byte) Math.max(0, pPhase);
+	}
+}
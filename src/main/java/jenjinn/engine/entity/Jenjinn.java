@@ -4,11 +4,15 @@
 package jenjinn.engine.entity;
 
 import java.io.IOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.FutureTask;
 
 import jenjinn.engine.boardstate.BoardState;
 import jenjinn.engine.enums.Side;
 import jenjinn.engine.evaluation.BoardEvaluator;
 import jenjinn.engine.gametree.MoveCalculator;
+import jenjinn.engine.gametree.SearchResult;
 import jenjinn.engine.gametree.TTAlphaBetaV1_2;
 import jenjinn.engine.moves.ChessMove;
 import jenjinn.engine.openingdatabase.OpeningDBv4;
@@ -26,6 +30,26 @@ public final class Jenjinn
 
 	private int outsideOpeningCounter = 0;
 
+	/*
+	 * The search running on the opponent's time, if any. The engine thread
+	 * starts and collects it while the UI thread may stop it at any moment, so
+	 * it is only read or replaced under the lock and whoever takes it out owns
+	 * it. Stopping happens under the lock too, so once a thread has taken the
+	 * lock nobody else is searching with our calculator.
+	 */
+	private final Object ponderLock = new Object();
+	private PonderSearch ponder;
+
+	/** The reply we expect to the move we last played, null if unknown. */
+	private ChessMove expectedReply;
+
+	/*
+	 * Ponder statistics, depths are those of the last completed iteration.
+	 * Written by the engine thread only, read from anywhere.
+	 */
+	private volatile int ponderAttempts = 0, ponderHits = 0, searchesWithoutHit = 0;
+	private volatile long hitDepthTotal = 0, otherDepthTotal = 0;
+
 	public Jenjinn(final Side side, final BoardEvaluator evaluator)
 	{
 		this.side = side;
@@ -37,6 +61,32 @@ public final class Jenjinn
 	public ChessMove calculateBestMove(final BoardState root)
 	{
 		ChessMove bestMove = null;
+		expectedReply = null;
+
+		final PonderSearch pondered;
+		synchronized (ponderLock) {
+			pondered = ponder;
+			ponder = null;
+		}
+		if (pondered != null) {
+			ponderAttempts++;
+			if (root.getHashing() == pondered.state.getHashing()) {
+				// Ponder hit, the running search becomes the real one
+				final SearchResult result = awaitPonderResult(pondered);
+				if (result != null) {
+					ponderHits++;
+					hitDepthTotal += result.getStatistics().getCompletedDepth();
+					expectedReply = result.getExpectedReply();
+					outsideOpeningCounter++;
+					return result.getMove();
+				}
+				// The ponder search failed, fall back to searching from scratch
+			}
+			else {
+				// Ponder miss, the new search still benefits from the warmed table
+				stop(pondered);
+			}
+		}
 
 		if (outsideOpeningCounter < 5) {
 			try {
@@ -49,7 +99,11 @@ public final class Jenjinn
 		}
 
 		if (bestMove == null) {
-			bestMove = gts.getBestMoveFrom(root);
+			final SearchResult result = gts.search(root);
+			bestMove = result.getMove();
+			expectedReply = result.getExpectedReply();
+			searchesWithoutHit++;
+			otherDepthTotal += result.getStatistics().getCompletedDepth();
 			outsideOpeningCounter++;
 		}
 		else {
@@ -59,6 +113,124 @@ public final class Jenjinn
 		return bestMove;
 	}
 
+	/**
+	 * Starts searching, in the background, the position arising from the reply we
+	 * expect to the move we just played. Does nothing if we have no expectation,
+	 * e.g. because the last move came from the opening database.
+	 *
+	 * @param stateAfterOurMove
+	 */
+	public void startPondering(final BoardState stateAfterOurMove)
+	{
+		synchronized (ponderLock) {
+			if (ponder != null) {
+				stop(ponder);
+				ponder = null;
+			}
+			if (expectedReply == null || stateAfterOurMove.isTerminal()) {
+				return;
+			}
+			final BoardState state = expectedReply.evolve(stateAfterOurMove);
+			if (state.isTerminal()) {
+				return;
+			}
+			ponder = new PonderSearch(state, gts);
+			ponder.thread.start();
+		}
+	}
+
+	/**
+	 * Abandons the ponder search, if any, waiting for its thread to finish. May
+	 * be called from any thread.
+	 */
+	public void stopPondering()
+	{
+		synchronized (ponderLock) {
+			if (ponder != null) {
+				stop(ponder);
+				ponder = null;
+			}
+		}
+	}
+
+	/**
+	 * Waits for the ponder search to finish. If the calling thread is interrupted,
+	 * which is how our callers signal the end of the time for a move, the
+	 * interrupt is passed on to the ponder search.
+	 *
+	 * @return the result of the search or null if it failed.
+	 */
+	private static SearchResult awaitPonderResult(final PonderSearch pondered)
+	{
+		try {
+			pondered.thread.join();
+		}
+		catch (final InterruptedException e) {
+			stop(pondered);
+		}
+		try {
+			return pondered.task.get();
+		}
+		catch (final ExecutionException | CancellationException | InterruptedException e) {
+			return null;
+		}
+	}
+
+	private static void stop(final PonderSearch pondered)
+	{
+		pondered.thread.interrupt();
+		boolean interrupted = false;
+		while (pondered.thread.isAlive()) {
+			try {
+				pondered.thread.join();
+			}
+			catch (final InterruptedException e) {
+				interrupted = true;
+			}
+		}
+		if (interrupted) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * A search of the position after the reply we expect, run on its own thread.
+	 */
+	private static final class PonderSearch
+	{
+		final BoardState state;
+		final FutureTask<SearchResult> task;
+		final Thread thread;
+
+		PonderSearch(final BoardState state, final MoveCalculator calculator)
+		{
+			this.state = state;
+			task = new FutureTask<>(() -> calculator.search(state));
+			thread = new Thread(task, "jenjinn-ponder");
+		}
+	}
+
+	/**
+	 * @return the percentage of our moves, made while pondering, for which we had
+	 *         pondered on the right reply.
+	 */
+	public double getPonderHitRate()
+	{
+		return ponderAttempts == 0 ? 0 : (100.0 * ponderHits) / ponderAttempts;
+	}
+
+	/**
+	 * @return how much deeper, on average, searches which started from a ponder
+	 *         hit got than searches which started from scratch.
+	 */
+	public double getAverageDepthGained()
+	{
+		if (ponderHits == 0 || searchesWithoutHit == 0) {
+			return 0;
+		}
+		return (double) hitDepthTotal / ponderHits - (double) otherDepthTotal / searchesWithoutHit;
+	}
+
 	public static void main(final String[] args)
 	{
 		// final ChessMove[] mvs = {
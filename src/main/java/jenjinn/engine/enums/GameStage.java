@@ -0,0 +1,18 @@
+package jenjinn.engine.enums;
+
+/**
+ * The stages of a game which the evaluation treats differently, determined by
+ * the material on the board alone.
+ *
+ * @author ThomasB
+ */
+public enum GameStage {
+	/** At least one queen and plenty of other pieces left, including the opening. */
+	MIDDLEGAME,
+
+	/** The queens are off but too many pieces are left to call it an endgame. */
+	QUEENLESS_MIDDLEGAME,
+
+	/** Few enough pieces left that development and attacks on the king no longer matter. */
+	ENDGAME;
+}
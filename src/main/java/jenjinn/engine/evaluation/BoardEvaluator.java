@@ -1,13 +1,16 @@
 package jenjinn.engine.evaluation;
 
-import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.function.Function;
 
 import jenjinn.engine.boardstate.BoardState;
+import jenjinn.engine.enums.GameStage;
 import jenjinn.engine.evaluation.componentimpl.DevelpmentV1;
 import jenjinn.engine.evaluation.componentimpl.MobilityAndKingSafetyV2;
-import jenjinn.engine.evaluation.componentimpl.PawnStructureV1;
+import jenjinn.engine.evaluation.componentimpl.PawnStructureV2;
+import jenjinn.engine.evaluation.material.MaterialTable;
+import jenjinn.engine.evaluation.material.MaterialTableEntry;
 
 /**
  * Simple interface representing an object which can take a {@link BoardState}
@@ -15,16 +18,54 @@ import jenjinn.engine.evaluation.componentimpl.PawnStructureV1;
  * unsigned we mean that no matter who it is to move, a higher score is better
  * for them.
  *
+ * An instance is not thread safe: it refills one mutable
+ * {@link EvaluationContext} for every position and keeps its own pawn table,
+ * material table and cache counters. Every searching thread needs its own
+ * evaluator, as each {@link jenjinn.engine.gametree.MctsSearch} worker has.
+ * Only the {@link EvaluationCache} may be shared between them.
+ *
  * @author ThomasB
  * @since 27 Jul 2017
  */
 public class BoardEvaluator
 {
-	private final List<EvaluatingComponent> components;
+	/** The components run for each {@link GameStage}, indexed by ordinal. */
+	private final EvaluatingComponent[][] pipelines;
+
+	private final MaterialTable materialTable = MaterialTable.createDefault();
+
+	/**
+	 * Refilled for every position we pass to the components, the pawn table it
+	 * reads is private to this evaluator.
+	 */
+	private final EvaluationContext context = new EvaluationContext(PawnTable.createDefault());
+
+	private EvaluationCache cache = EvaluationCache.createDefault();
 
+	/* Lifetime cache counters, the search takes differences of these. */
+	private long cacheProbeCount = 0, cacheHitCount = 0;
+
+	/**
+	 * Runs the same components at every stage of the game.
+	 */
 	public BoardEvaluator(final List<EvaluatingComponent> components)
 	{
-		this.components = new ArrayList<>(components);
+		this(stage -> components);
+	}
+
+	/**
+	 * @param pipelines
+	 *            gives the components to run for positions at each stage of the
+	 *            game, so that simple positions can be evaluated cheaply.
+	 */
+	public BoardEvaluator(final Function<GameStage, List<EvaluatingComponent>> pipelines)
+	{
+		final GameStage[] stages = GameStage.values();
+		this.pipelines = new EvaluatingComponent[stages.length][];
+		for (final GameStage stage : stages) {
+			final List<EvaluatingComponent> components = pipelines.apply(stage);
+			this.pipelines[stage.ordinal()] = components.toArray(new EvaluatingComponent[components.size()]);
+		}
 	}
 
 	/**
@@ -39,32 +80,108 @@ public class BoardEvaluator
 	 */
 	public short evaluate(final BoardState state)
 	{
+		final int orientation = state.getFriendlySide().orientation();
 		int score = 0;
 		if (state.isTerminal()) {
+			// Not cached, a repetition has the hash of a position which is not terminal
 			score = state.getTerminationState().value;
 		}
 		else {
-			for (final EvaluatingComponent component : components) {
-				score += component.evaluate(state);
+			final long hash = state.getHashing();
+			cacheProbeCount++;
+			final int cached = cache.probe(hash);
+			if (cached != EvaluationCache.NO_ENTRY) {
+				cacheHitCount++;
+				return (short) cached;
+			}
+
+			final MaterialTableEntry material = materialTable.get(state.getMaterialKey());
+			if (material.isDraw()) {
+				score = 0;
 			}
-			score += evalPiecePositions(state);
+			else if (material.hasEndgameEvaluator()) {
+				score = material.evaluateEndgame(state);
+			}
+			else {
+				int packed = state.getPositionalEval() + material.getImbalance();
+				context.initialise(state);
+				for (final EvaluatingComponent component : pipelines[material.getGameStage().ordinal()]) {
+					packed += component.evaluate(context);
+				}
+				score = material.scale(TaperedScore.interpolate(packed, material.getGamePhase()));
+			}
+			assert (short) score == score;
+			cache.store(hash, (short) (orientation * score));
 		}
 		assert (short) score == score;
 
-		final int orientation = state.getFriendlySide().orientation();
 		return (short) (orientation * score);
 	}
 
-	private short evalPiecePositions(final BoardState state)
+	/**
+	 * @return whether neither side has enough material left to win, such
+	 *         positions are exact draws and need no search.
+	 */
+	public boolean isMaterialDraw(final BoardState state)
 	{
-		final short midGameEval = state.getMidgamePositionalEval(), endGameEval = state.getEndgamePositionalEval();
-		final short gamePhase = state.getGamePhase();
-		return (short) (((midGameEval * (256 - gamePhase)) + (endGameEval * gamePhase)) / 256);
+		return materialTable.get(state.getMaterialKey()).isDraw();
 	}
 
+	/**
+	 * Replace the private evaluation cache of this evaluator, e.g. with one
+	 * shared by the evaluators of all search threads.
+	 */
+	public void setEvaluationCache(final EvaluationCache cache)
+	{
+		this.cache = cache;
+	}
+
+	public EvaluationCache getEvaluationCache()
+	{
+		return cache;
+	}
+
+	public long getEvaluationCacheProbeCount()
+	{
+		return cacheProbeCount;
+	}
+
+	public long getEvaluationCacheHitCount()
+	{
+		return cacheHitCount;
+	}
+
+	public long getPawnTableProbeCount()
+	{
+		return context.getPawnTable().getProbeCount();
+	}
+
+	public long getPawnTableHitCount()
+	{
+		return context.getPawnTable().getHitCount();
+	}
+
+	/**
+	 * Development is only scored before the endgame and attacks on the king
+	 * only while queens are on the board.
+	 */
 	public static BoardEvaluator getDefault()
 	{
-		return new BoardEvaluator(
-				Arrays.asList(new PawnStructureV1(), new MobilityAndKingSafetyV2(), new DevelpmentV1()));
+		final List<EvaluatingComponent> middlegame = Arrays.asList(new PawnStructureV2(), new MobilityAndKingSafetyV2(),
+				new DevelpmentV1());
+		final List<EvaluatingComponent> queenless = Arrays.asList(new PawnStructureV2(), new MobilityAndKingSafetyV2(false),
+				new DevelpmentV1());
+		final List<EvaluatingComponent> endgame = Arrays.asList(new PawnStructureV2(), new MobilityAndKingSafetyV2(false));
+
+		return new BoardEvaluator(stage -> {
+			switch (stage) {
+			case ENDGAME:
+				return endgame;
+			case QUEENLESS_MIDDLEGAME:
+				return queenless;
+			default:
+				return middlegame;
+			}
+		});
 	}
 }
\ No newline at end of file
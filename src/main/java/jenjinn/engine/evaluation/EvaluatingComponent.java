@@ -1,7 +1,5 @@
 package jenjinn.engine.evaluation;
 
-import jenjinn.engine.boardstate.BoardState;
-
 /**
  * @author ThomasB
  * @since 11 Aug 2017
@@ -12,9 +10,15 @@ public interface EvaluatingComponent
 	 * Important that we evaluate like we are not in negamax framework here, i.e.
 	 * positive is good for white and negative is good for black. Then the top level
 	 * evaluator will handle the conversion.
-	 * 
-	 * @param state
-	 * @return
+	 *
+	 * Components may be shared between evaluators on different threads so they
+	 * must keep no working state between calls, everything they need about the
+	 * position is in the context.
+	 *
+	 * @param context
+	 *            holds the position and the attack maps computed for it.
+	 * @return the middle and end game scores packed as a {@link TaperedScore},
+	 *         the evaluator blends the sum of all components by game phase once.
 	 */
-	short evaluate(BoardState state);
+	int evaluate(EvaluationContext context);
 }
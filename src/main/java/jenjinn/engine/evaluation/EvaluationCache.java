@@ -0,0 +1,75 @@
+package jenjinn.engine.evaluation;
+
+import java.util.Arrays;
+
+/**
+ * A fixed size cache of static evaluations keyed by the Zobrist hash of the
+ * position. Each entry is a single long, the upper 48 bits of the hash in the
+ * high bits and the 16 bit negamax score in the low ones, so a probe is one
+ * array read and no locking is needed for several searching threads to share
+ * the cache. A racing write can only replace one whole entry with another.
+ * Should a JVM split a long write into two halves anyway, the mixed entry will
+ * almost certainly fail the hash check.
+ *
+ * Terms which depend on how the position was reached rather than on the
+ * position itself, like having castled, are those of whichever transposition
+ * was evaluated first, as with the static evaluations in the transposition
+ * table.
+ *
+ * @author ThomasB
+ */
+public final class EvaluationCache
+{
+	/** Returned by {@link #probe(long)} when the position is not cached. */
+	public static final int NO_ENTRY = Integer.MIN_VALUE;
+
+	public static final int DEFAULT_MEGABYTES = 4;
+
+	private static final long SCORE_MASK = 0xFFFFL;
+
+	private final long[] entries;
+
+	private final int mask;
+
+	private EvaluationCache(final int powerSize)
+	{
+		entries = new long[1 << powerSize];
+		mask = entries.length - 1;
+	}
+
+	/**
+	 * @param megabytes
+	 * @return the largest cache fitting in the given number of megabytes.
+	 */
+	public static EvaluationCache create(final int megabytes)
+	{
+		final long size = Math.max(1, ((long) megabytes << 20) / Long.BYTES);
+		return new EvaluationCache(Math.min(30, 63 - Long.numberOfLeadingZeros(size)));
+	}
+
+	public static EvaluationCache createDefault()
+	{
+		return create(DEFAULT_MEGABYTES);
+	}
+
+	/**
+	 * @return the cached score of the position with the given hash or
+	 *         {@link #NO_ENTRY}.
+	 */
+	public int probe(final long positionHash)
+	{
+		final long entry = entries[(int) positionHash & mask];
+		// An empty slot only matches a hash whose upper bits are all zero, we accept that
+		return ((entry ^ positionHash) & ~SCORE_MASK) == 0 ? (short) entry : NO_ENTRY;
+	}
+
+	public void store(final long positionHash, final short score)
+	{
+		entries[(int) positionHash & mask] = (positionHash & ~SCORE_MASK) | (score & SCORE_MASK);
+	}
+
+	public void clear()
+	{
+		Arrays.fill(entries, 0L);
+	}
+}
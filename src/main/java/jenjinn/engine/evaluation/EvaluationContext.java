@@ -0,0 +1,300 @@
+package jenjinn.engine.evaluation;
+
+import static jenjinn.engine.bitboarddatabase.Bitboards.FILE;
+
+import jenjinn.engine.bitboarddatabase.Bitboards;
+import jenjinn.engine.boardstate.BoardState;
+import jenjinn.engine.enums.Side;
+import jenjinn.engine.pieces.ChessPiece;
+
+/**
+ * The information about a position which several {@link EvaluatingComponent}s
+ * need, i.e. occupancy, the attacks of every piece, of every piece type and of
+ * every side, king squares and king zones. The {@link BoardEvaluator} fills it
+ * in once per evaluation and hands it to each component in turn so that none
+ * of them has to regenerate slider attacks. What depends only on the pawns and
+ * kings comes from a {@link PawnTable} entry.
+ *
+ * The attack maps are only computed when a component first asks for them, a
+ * component which finds its score in a table never pays for them. The pawn
+ * table is likewise only probed on demand. An instance
+ * is reused from one evaluation to the next and so never allocates once
+ * created. It is owned by a single evaluator and must not be shared
+ * between threads, the components reading it keep no state of their own.
+ *
+ * @author ThomasB
+ */
+public final class EvaluationContext
+{
+	/** There can never be more pieces than this on a legal board. */
+	private static final int MAX_PIECES = 32;
+
+	private BoardState state;
+
+	private final PawnTable pawnTable;
+
+	private boolean attacksComputed;
+
+	/** The slot of the pawn table entry of the state, negative until probed. */
+	private int pawnSlot;
+
+	private long occupied;
+	private final long[] sideLocations = new long[2];
+
+	/*
+	 * The attacks of the individual pieces, grouped by piece index. Those of the
+	 * pieces with index i lie between pieceStarts[i] and pieceStarts[i + 1].
+	 */
+	private final long[] pieceAttacks = new long[MAX_PIECES];
+	private final byte[] pieceSquares = new byte[MAX_PIECES];
+	private final int[] pieceStarts = new int[13];
+
+	private final long[] pieceTypeAttacks = new long[12];
+	private final long[] sideAttacks = new long[2];
+
+	private final byte[] kingSquares = new byte[2];
+	private final long[] kingZones = new long[2];
+
+	public EvaluationContext(final PawnTable pawnTable)
+	{
+		this.pawnTable = pawnTable;
+	}
+
+	/**
+	 * Prepare for the given state, which must have both kings.
+	 */
+	public void initialise(final BoardState state)
+	{
+		this.state = state;
+		pawnSlot = -1;
+		sideLocations[0] = state.getSideLocations(Side.W);
+		sideLocations[1] = state.getSideLocations(Side.B);
+		occupied = sideLocations[0] | sideLocations[1];
+		attacksComputed = false;
+	}
+
+	private void ensureAttacks()
+	{
+		if (!attacksComputed) {
+			computeAttacks();
+			attacksComputed = true;
+		}
+	}
+
+	private int pawnSlot()
+	{
+		if (pawnSlot < 0) {
+			pawnSlot = pawnTable.probe(state);
+		}
+		return pawnSlot;
+	}
+
+	PawnTable getPawnTable()
+	{
+		return pawnTable;
+	}
+
+	private void computeAttacks()
+	{
+		int count = 0;
+		for (int i = 0; i < 12; i++) {
+			pieceStarts[i] = count;
+			final ChessPiece piece = ChessPiece.get(i);
+			long typeAttacks = 0L;
+			for (long locs = state.getPieceLocations(i); locs != 0; locs &= locs - 1) {
+				final byte loc = (byte) Long.numberOfTrailingZeros(locs);
+				final long attacks = piece.getAttackset(loc, occupied);
+				pieceSquares[count] = loc;
+				pieceAttacks[count++] = attacks;
+				typeAttacks |= attacks;
+			}
+			pieceTypeAttacks[i] = typeAttacks;
+		}
+		pieceStarts[12] = count;
+
+		for (final Side side : Side.values()) {
+			final int s = side.isWhite() ? 0 : 1;
+			long attacks = 0L;
+			for (int i = side.index(); i < side.index() + 6; i++) {
+				attacks |= pieceTypeAttacks[i];
+			}
+			sideAttacks[s] = attacks;
+			kingSquares[s] = (byte) Long.numberOfTrailingZeros(state.getPieceLocations(side.index() + 5));
+			kingZones[s] = computeKingZone(side);
+		}
+	}
+
+	/**
+	 * The squares next to the king, in front of it and the king square itself,
+	 * except those held by our own pieces. The rank in front is skipped when the
+	 * king stands on the enemy back rank and the zone is shifted inwards on the
+	 * edge files.
+	 */
+	private long computeKingZone(final Side side)
+	{
+		final int s = side.isWhite() ? 0 : 1;
+		final byte kingLoc = kingSquares[s];
+		final long kingMoves = pieceAttacks[pieceStarts[side.index() + 5]] & ~sideLocations[s];
+
+		final int fileNum = 7 - (kingLoc % 8), rank = kingLoc / 8;
+		final boolean onEnemyBackRank = side.isWhite() ? rank == 7 : rank == 0;
+		final int shift = (fileNum == 0) ? -1 : ((fileNum == 7) ? 1 : 0);
+		final long area = Bitboards.EBA[6][kingLoc + shift];
+
+		final long forward = onEnemyBackRank ? 0L : (area & Bitboards.RNK[rank + side.orientation()]);
+		return forward | (area & kingMoves) | (1L << kingLoc);
+	}
+
+	public BoardState getState()
+	{
+		return state;
+	}
+
+	public long getOccupied()
+	{
+		return occupied;
+	}
+
+	public long getSideLocations(final Side side)
+	{
+		return sideLocations[side.isWhite() ? 0 : 1];
+	}
+
+	/**
+	 * @return the number of pieces on the board with the given index.
+	 */
+	public int getPieceCount(final int pieceIndex)
+	{
+		ensureAttacks();
+		return pieceStarts[pieceIndex + 1] - pieceStarts[pieceIndex];
+	}
+
+	/**
+	 * @return the attacks of the n-th piece with the given index, taking
+	 *         blockers of either side into account.
+	 */
+	public long getPieceAttacks(final int pieceIndex, final int n)
+	{
+		ensureAttacks();
+		return pieceAttacks[pieceStarts[pieceIndex] + n];
+	}
+
+	/**
+	 * @return the square of the n-th piece with the given index.
+	 */
+	public byte getPieceSquare(final int pieceIndex, final int n)
+	{
+		ensureAttacks();
+		return pieceSquares[pieceStarts[pieceIndex] + n];
+	}
+
+	/**
+	 * @return the union of the attacks of all pieces with the given index.
+	 */
+	public long getPieceTypeAttacks(final int pieceIndex)
+	{
+		ensureAttacks();
+		return pieceTypeAttacks[pieceIndex];
+	}
+
+	public long getPawnAttacks(final Side side)
+	{
+		return pawnTable.getPawnAttacks(pawnSlot(), side);
+	}
+
+	/**
+	 * @return the passed pawns of both sides.
+	 */
+	public long getPassedPawns()
+	{
+		return pawnTable.getPassedPawns(pawnSlot());
+	}
+
+	/**
+	 * @return the files without pawns, bit i standing for {@code FILE[i]}.
+	 */
+	public int getOpenFiles()
+	{
+		return pawnTable.getOpenFiles(pawnSlot());
+	}
+
+	/**
+	 * @return the files with enemy but no friendly pawns, bit i standing for
+	 *         {@code FILE[i]}.
+	 */
+	public int getHalfOpenFiles(final Side side)
+	{
+		return pawnTable.getHalfOpenFiles(pawnSlot(), side);
+	}
+
+	/**
+	 * @return the number of friendly pawns directly and diagonally in front of
+	 *         the king.
+	 */
+	public int getImmediateShieldCount(final Side side)
+	{
+		return pawnTable.getImmediateShieldCount(pawnSlot(), side);
+	}
+
+	/**
+	 * @return the number of friendly pawns one rank beyond the immediate shield.
+	 */
+	public int getOuterShieldCount(final Side side)
+	{
+		return pawnTable.getOuterShieldCount(pawnSlot(), side);
+	}
+
+	/**
+	 * @return the pawn structure score stored with the pawns of the state or
+	 *         {@link PawnTable#NO_SCORE}.
+	 */
+	public int getPawnStructureScore()
+	{
+		return pawnTable.getScore(pawnSlot());
+	}
+
+	/**
+	 * @param score
+	 *            must depend on nothing but the pawns and kings, it is returned
+	 *            for every later position sharing them.
+	 */
+	public void setPawnStructureScore(final short score)
+	{
+		pawnTable.setScore(pawnSlot(), score);
+	}
+
+	/**
+	 * @return every square attacked by the given side, the same set as
+	 *         {@link BoardState#getSquaresAttackedBy(Side)}.
+	 */
+	public long getSideAttacks(final Side side)
+	{
+		ensureAttacks();
+		return sideAttacks[side.isWhite() ? 0 : 1];
+	}
+
+	public byte getKingSquare(final Side side)
+	{
+		ensureAttacks();
+		return kingSquares[side.isWhite() ? 0 : 1];
+	}
+
+	public long getKingZone(final Side side)
+	{
+		ensureAttacks();
+		return kingZones[side.isWhite() ? 0 : 1];
+	}
+
+	/**
+	 * Setwise pawn attacks without regard to what stands on the target squares.
+	 */
+	public static long getPawnAttacks(final long pawns, final Side side)
+	{
+		if (side.isWhite()) {
+			return ((pawns & ~FILE[0]) << 9) | ((pawns & ~FILE[7]) << 7);
+		}
+		else {
+			return ((pawns & ~FILE[0]) >>> 7) | ((pawns & ~FILE[7]) >>> 9);
+		}
+	}
+}
@@ -0,0 +1,251 @@
+package jenjinn.engine.evaluation;
+
+import static jenjinn.engine.bitboarddatabase.Bitboards.FILE;
+
+import java.util.Arrays;
+
+import jenjinn.engine.boardstate.BoardState;
+import jenjinn.engine.enums.Side;
+
+/**
+ * Caches everything about a position which depends only on the pawns and
+ * kings, keyed by {@link BoardState#getPawnKingHash()}. Pawn structures change
+ * rarely during a search so nearly every probe hits.
+ *
+ * An entry holds the pawn attacks of both sides, the passed pawns, the open
+ * and half open files, the number of pawns sheltering each king and the score
+ * of the pawn structure component. The analysis is done by the table when a
+ * probe misses, the score is left for the component to fill in. Entries are
+ * spread over parallel primitive arrays so a table of a given size costs
+ * exactly the memory we expect and probing never allocates.
+ *
+ * The fields of an entry are written one after the other, so a table must not
+ * be shared between threads.
+ *
+ * @author ThomasB
+ */
+public final class PawnTable
+{
+	/** Returned by {@link #getScore(int)} until the score has been stored. */
+	public static final int NO_SCORE = Integer.MIN_VALUE;
+
+	public static final int DEFAULT_MEGABYTES = 2;
+
+	/** The key, passed pawns, two pawn attack sets and the packed info. */
+	private static final int ENTRY_BYTES = 5 * Long.BYTES;
+
+	/*
+	 * Layout of the info word, the score occupies the low 16 bits.
+	 */
+	private static final int OPEN_FILES_SHIFT = 16, HALF_OPEN_FILES_SHIFT = 24, SHIELD_SHIFT = 40;
+	private static final long SCORE_SET = 1L << 48;
+
+	private final long[] keys, passedPawns, pawnAttacks, infos;
+
+	private final int mask;
+
+	/* Lifetime counters, the search takes differences of these. */
+	private long probeCount = 0, hitCount = 0;
+
+	private PawnTable(final int powerSize)
+	{
+		final int size = 1 << powerSize;
+		mask = size - 1;
+		keys = new long[size];
+		passedPawns = new long[size];
+		pawnAttacks = new long[2 * size];
+		infos = new long[size];
+	}
+
+	/**
+	 * @param megabytes
+	 * @return the largest table fitting in the given number of megabytes.
+	 */
+	public static PawnTable create(final int megabytes)
+	{
+		final long entries = Math.max(1, ((long) megabytes << 20) / ENTRY_BYTES);
+		return new PawnTable(Math.min(29, 63 - Long.numberOfLeadingZeros(entries)));
+	}
+
+	public static PawnTable createDefault()
+	{
+		return create(DEFAULT_MEGABYTES);
+	}
+
+	/**
+	 * Find the entry for the pawns and kings of the given state, analysing them
+	 * and replacing whatever was in the slot if they are not there yet.
+	 *
+	 * @return the slot of the entry.
+	 */
+	public int probe(final BoardState state)
+	{
+		final long key = state.getPawnKingHash();
+		final int slot = (int) key & mask;
+		probeCount++;
+		if (keys[slot] == key && infos[slot] != 0) {
+			hitCount++;
+		}
+		else {
+			analyse(state, key, slot);
+		}
+		return slot;
+	}
+
+	private void analyse(final BoardState state, final long key, final int slot)
+	{
+		final long wPawns = state.getPieceLocations(0), bPawns = state.getPieceLocations(6);
+		final long wAttacks = EvaluationContext.getPawnAttacks(wPawns, Side.W), bAttacks = EvaluationContext.getPawnAttacks(bPawns, Side.B);
+
+		long openFiles = 0, wHalfOpenFiles = 0, bHalfOpenFiles = 0;
+		for (int i = 0; i < 8; i++) {
+			final boolean noWhite = (wPawns & FILE[i]) == 0, noBlack = (bPawns & FILE[i]) == 0;
+			if (noWhite && noBlack) {
+				openFiles |= 1L << i;
+			}
+			else if (noWhite) {
+				wHalfOpenFiles |= 1L << i;
+			}
+			else if (noBlack) {
+				bHalfOpenFiles |= 1L << i;
+			}
+		}
+
+		// The score starts out unset
+		final long info = (openFiles << OPEN_FILES_SHIFT)
+				| (wHalfOpenFiles << HALF_OPEN_FILES_SHIFT)
+				| (bHalfOpenFiles << (HALF_OPEN_FILES_SHIFT + 8))
+				| ((long) getShieldCounts(state, Side.W) << SHIELD_SHIFT)
+				| ((long) getShieldCounts(state, Side.B) << (SHIELD_SHIFT + 4));
+
+		keys[slot] = key;
+		passedPawns[slot] = getPassedPawns(wPawns, bPawns);
+		pawnAttacks[2 * slot] = wAttacks;
+		pawnAttacks[2 * slot + 1] = bAttacks;
+		// Bit 63 keeps the info of an analysed entry non zero
+		infos[slot] = info | Long.MIN_VALUE;
+	}
+
+	/**
+	 * @return the immediate shield pawn count in the low two bits and the outer
+	 *         one in the next two.
+	 */
+	private static int getShieldCounts(final BoardState state, final Side side)
+	{
+		final byte kingLoc = (byte) Long.numberOfTrailingZeros(state.getPieceLocations(side.index() + 5));
+		final long immediate = getImmediateShieldArea(kingLoc, side);
+		final long outer = side.isWhite() ? immediate << 8 : immediate >>> 8;
+		final long pawns = state.getPieceLocations(side.index());
+		return Long.bitCount(immediate & pawns) | (Long.bitCount(outer & pawns) << 2);
+	}
+
+	/**
+	 * @return the three squares diagonally and directly in front of the king,
+	 *         fewer on the edge files or the last rank.
+	 */
+	public static long getImmediateShieldArea(final byte kingLoc, final Side side)
+	{
+		final int orientation = side.orientation();
+		final int rankNum = kingLoc / 8;
+
+		long area = 0L;
+		final int shiftStart = kingLoc + orientation * 7;
+		for (int i = 0; i < 3; i++) {
+			final int shifted = Math.min(Math.max(shiftStart + orientation * i, 0), 64);
+			if (shifted / 8 == rankNum + orientation) {
+				area |= 1L << shifted;
+			}
+		}
+		return area;
+	}
+
+	/**
+	 * @return the pawns of either side with no enemy pawn in front of them on
+	 *         their own or an adjacent file.
+	 */
+	static long getPassedPawns(final long wPawns, final long bPawns)
+	{
+		long bFront = bPawns >>> 8, wFront = wPawns << 8;
+		for (int i = 0; i < 5; i++) {
+			bFront |= bFront >>> 8;
+			wFront |= wFront << 8;
+		}
+		final long bSpan = bFront | ((bFront & ~FILE[0]) << 1) | ((bFront & ~FILE[7]) >>> 1);
+		final long wSpan = wFront | ((wFront & ~FILE[0]) << 1) | ((wFront & ~FILE[7]) >>> 1);
+		return (wPawns & ~bSpan) | (bPawns & ~wSpan);
+	}
+
+	public long getPawnAttacks(final int slot, final Side side)
+	{
+		return pawnAttacks[2 * slot + (side.isWhite() ? 0 : 1)];
+	}
+
+	public long getPassedPawns(final int slot)
+	{
+		return passedPawns[slot];
+	}
+
+	/**
+	 * @return the files without pawns, bit i standing for {@code FILE[i]}.
+	 */
+	public int getOpenFiles(final int slot)
+	{
+		return (int) (infos[slot] >>> OPEN_FILES_SHIFT) & 0xFF;
+	}
+
+	/**
+	 * @return the files with enemy but no friendly pawns, bit i standing for
+	 *         {@code FILE[i]}.
+	 */
+	public int getHalfOpenFiles(final int slot, final Side side)
+	{
+		return (int) (infos[slot] >>> (HALF_OPEN_FILES_SHIFT + (side.isWhite() ? 0 : 8))) & 0xFF;
+	}
+
+	/**
+	 * @return the number of friendly pawns on the squares of
+	 *         {@link #getImmediateShieldArea(byte, Side)}.
+	 */
+	public int getImmediateShieldCount(final int slot, final Side side)
+	{
+		return (int) (infos[slot] >>> (SHIELD_SHIFT + (side.isWhite() ? 0 : 4))) & 0b11;
+	}
+
+	/**
+	 * @return the number of friendly pawns one rank beyond the immediate shield.
+	 */
+	public int getOuterShieldCount(final int slot, final Side side)
+	{
+		return (int) (infos[slot] >>> (SHIELD_SHIFT + 2 + (side.isWhite() ? 0 : 4))) & 0b11;
+	}
+
+	/**
+	 * @return the stored pawn structure score or {@link #NO_SCORE}.
+	 */
+	public int getScore(final int slot)
+	{
+		final long info = infos[slot];
+		return (info & SCORE_SET) == 0 ? NO_SCORE : (short) info;
+	}
+
+	public void setScore(final int slot, final short score)
+	{
+		infos[slot] = (infos[slot] & ~0xFFFFL) | (score & 0xFFFFL) | SCORE_SET;
+	}
+
+	public long getProbeCount()
+	{
+		return probeCount;
+	}
+
+	public long getHitCount()
+	{
+		return hitCount;
+	}
+
+	public void clear()
+	{
+		Arrays.fill(keys, 0L);
+		Arrays.fill(infos, 0L);
+	}
+}
@@ -8,6 +8,28 @@ public final class PieceValueProvider
 	public static final short[] MGAME_VALUES = MiddleGamePieceSquareTable.PIECE_VALUES;
 	public static final short[] EGAME_VALUES = EndGamePieceSquareTable.PIECE_VALUES;
 
+	/** The values interpolated at every game phase from 0 to 256. */
+	private static final short[][] PHASE_VALUES = new short[257][];
+
+	static {
+		for (int gamePhase = 0; gamePhase <= 256; gamePhase++) {
+			final short[] values = new short[MGAME_VALUES.length];
+			for (int i = 0; i < values.length; i++) {
+				values[i] = (short) TaperedScore.interpolate(TaperedScore.of(MGAME_VALUES[i], EGAME_VALUES[i]), gamePhase);
+			}
+			PHASE_VALUES[gamePhase] = values;
+		}
+	}
+
+	/**
+	 * @return the piece values at the given game phase, shared so not to be
+	 *         modified.
+	 */
+	public static short[] getPieceValues(final int gamePhase)
+	{
+		return PHASE_VALUES[gamePhase];
+	}
+
 	private PieceValueProvider()
 	{
 	}
@@ -3,65 +3,93 @@ package jenjinn.engine.evaluation;
 import jenjinn.engine.bitboarddatabase.Bitboards;
 import jenjinn.engine.boardstate.BoardState;
 import jenjinn.engine.enums.Side;
-import jenjinn.engine.misc.EngineUtils;
 import jenjinn.engine.pieces.ChessPiece;
 
 /**
- * Static exchange evaluator, implemented using pseudo c code on
- * chessprogramming
- * 
+ * Static exchange evaluator, implemented from the swap algorithm on
+ * chessprogramming.
+ *
+ * The attackers of the target square are found in one go by looking up the
+ * attacks of each piece type from the target and intersecting them with the
+ * pieces of that type. Each time a piece leaves the line between a slider and
+ * the target the slider attacks are looked up again to reveal any x-ray. The
+ * usual list of speculative gains is replaced by a window which the captures
+ * either side may decline narrow in turn, so an evaluation allocates nothing.
+ * There are no fields either so one instance may be shared between threads.
+ *
  * @author t
  */
 public final class StaticExchangeEvaluator
 {
-	private static final int[] ASCENDING_PVALUES = { 0, 2, 1, 3, 4, 5, 6, 8, 7, 9, 10, 11 };
+	/** Piece type offsets from the least to the most valuable attacker. */
+	private static final int[] ASCENDING_TYPES = { 0, 2, 1, 3, 4, 5 };
+
+	/** Slider attacks are the same for either side. */
+	private static final ChessPiece BISHOP = ChessPiece.get(1), ROOK = ChessPiece.get(3);
 
 	public StaticExchangeEvaluator()
 	{
 	}
 
-	private long targBB, fromset, occ, attadef, potenxray;
-
 	public int eval(final byte targ, final byte from, final BoardState state, final short[] pieceValues)
 	{
-		// Make sure all instance variables set correctly first
-		fromset = 1L << from;
-		targBB = 1L << targ;
-		occ = state.getOccupiedSquares();
-		generateAttackDefenseInfo(state);
-
-		final long knightLocs = state.getPieceLocations(2) | state.getPieceLocations(8);
-		Side fromSide = state.getFriendlySide();
-
-		int d = 0;
-		final int[] gain = new int[32];
-		gain[d] = pieceValues[state.getPieceAt(targ).index() % 6];
-		ChessPiece attPiece = state.getPieceFromBB(fromset);
-
-		do {
-			d++;
-			fromSide = fromSide.otherSide();
-
-			gain[d] = pieceValues[attPiece.index() % 6] - gain[d - 1];
+		final long diagonalSliders = state.getPieceLocations(1) | state.getPieceLocations(4) | state.getPieceLocations(7)
+				| state.getPieceLocations(10);
+		final long orthogonalSliders = state.getPieceLocations(3) | state.getPieceLocations(4) | state.getPieceLocations(9)
+				| state.getPieceLocations(10);
+		final Side friendlySide = state.getFriendlySide();
+
+		long occ = state.getOccupiedSquares();
+		long attackers = getAttackers(targ, state, occ, diagonalSliders, orthogonalSliders);
+		long fromset = 1L << from;
+
+		// Material balance for the capturing side, the first capture is forced
+		int balance = pieceValues[getPieceType(state, 1L << targ, friendlySide.otherSide())];
+		int onTarget = pieceValues[getPieceType(state, fromset, friendlySide)];
+		int lower = Integer.MIN_VALUE, upper = Integer.MAX_VALUE;
+		Side toMove = friendlySide.otherSide();
+
+		while (true) {
+			occ ^= fromset;
+			attackers ^= fromset;
+			// Sliders already used stand on squares the rays now pass over
+			if ((Bitboards.EBA[2][targ] & fromset) != 0) {
+				attackers |= BISHOP.getAttackset(targ, occ) & diagonalSliders & occ;
+			}
+			else if ((Bitboards.EBA[4][targ] & fromset) != 0) {
+				attackers |= ROOK.getAttackset(targ, occ) & orthogonalSliders & occ;
+			}
 
-			if (Math.max(-gain[d - 1], gain[d]) < 0) {
+			int type = -1;
+			fromset = 0L;
+			for (final int t : ASCENDING_TYPES) {
+				final long subset = attackers & state.getPieceLocations(toMove.index() + t);
+				if (subset != 0) {
+					fromset = subset & -subset;
+					type = t;
+					break;
+				}
+			}
+			if (fromset == 0) {
 				break;
 			}
 
-			attadef ^= fromset;
-			occ ^= fromset;
-
-			if ((fromset & knightLocs) == 0) {
-				updateXrays(state);
+			// The side to move may stop here and keep the balance as it is
+			if (toMove == friendlySide) {
+				lower = Math.max(lower, balance);
+				balance += onTarget;
 			}
-			fromset = getLeastValuablePiece(state.getPieceLocationsCopy(), fromSide);
-			attPiece = state.getPieceFromBB(fromset);
-		} while (fromset != 0);
-
-		while (--d > 0) {
-			gain[d - 1] = -Math.max(-gain[d - 1], gain[d]);
+			else {
+				upper = Math.min(upper, Math.max(lower, balance));
+				balance -= onTarget;
+			}
+			if (lower >= upper) {
+				return upper;
+			}
+			onTarget = pieceValues[type];
+			toMove = toMove.otherSide();
 		}
-		return gain[0];
+		return Math.min(upper, Math.max(lower, balance));
 	}
 
 	public boolean isGoodExchange(final byte targ, final byte from, final BoardState state, final short[] pieceValues)
@@ -69,49 +97,33 @@ public final class StaticExchangeEvaluator
 		return eval(targ, from, state, pieceValues) >= 0;
 	}
 
-	private void updateXrays(final BoardState state)
-	{
-		for (final byte loc : EngineUtils.getSetBits(potenxray)) {
-			final ChessPiece p = state.getPieceAt(loc);
-			if ((p.getAttackset(loc, occ) & targBB) != 0) {
-				final long locBB = 1L << loc;
-				potenxray ^= locBB;
-				attadef ^= locBB;
-			}
-		}
-	}
-
-	private void generateAttackDefenseInfo(final BoardState state)
+	/**
+	 * @return the pieces of both sides attacking the target through the given
+	 *         occupancy.
+	 */
+	private static long getAttackers(final byte targ, final BoardState state, final long occ, final long diagonalSliders,
+			final long orthogonalSliders)
 	{
-		attadef = 0L;
-		potenxray = 0L;
-		int ctr = 0;
-		for (final long locs : state.getPieceLocationsCopy()) {
-			final ChessPiece p = ChessPiece.get(ctr++);
-			final boolean canXray = p.canXray();
-
-			for (final byte loc : EngineUtils.getSetBits(locs)) {
-				final long atts = p.getAttackset(loc, occ);
-
-				if ((atts & targBB) != 0) {
-					attadef |= (1L << loc);
-				}
-				else if (canXray && (Bitboards.EBA[(p.index() % 6) + 1][loc] & targBB) != 0) {
-					potenxray |= (1L << loc);
-				}
-			}
-		}
+		// A white pawn attacks the target from where a black pawn on it would attack
+		return (Bitboards.EBA[1][targ] & state.getPieceLocations(0))
+				| (Bitboards.EBA[0][targ] & state.getPieceLocations(6))
+				| (Bitboards.EBA[3][targ] & (state.getPieceLocations(2) | state.getPieceLocations(8)))
+				| (Bitboards.EBA[6][targ] & (state.getPieceLocations(5) | state.getPieceLocations(11)))
+				| (BISHOP.getAttackset(targ, occ) & diagonalSliders)
+				| (ROOK.getAttackset(targ, occ) & orthogonalSliders);
 	}
 
-	private long getLeastValuablePiece(final long[] pieceLocs, final Side fromSide)
+	/**
+	 * @return the type, from 0 for a pawn to 5 for a king, of the piece of the
+	 *         given side on the square.
+	 */
+	private static int getPieceType(final BoardState state, final long squareBB, final Side side)
 	{
-		final int startIdx = fromSide.index(), endIdx = startIdx + 6;
-		for (int i = startIdx; i < endIdx; i++) {
-			final long subset = attadef & pieceLocs[ASCENDING_PVALUES[i]];
-			if (subset != 0) {
-				return (subset & -subset);
+		for (int t = 0; t < 5; t++) {
+			if ((state.getPieceLocations(side.index() + t) & squareBB) != 0) {
+				return t;
 			}
 		}
-		return 0L;
+		return 5;
 	}
-}
\ No newline at end of file
+}
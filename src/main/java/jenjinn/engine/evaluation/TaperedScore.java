@@ -0,0 +1,46 @@
+package jenjinn.engine.evaluation;
+
+/**
+ * A middle game and an end game score packed into a single int, the end game
+ * half in the upper 16 bits and the middle game half in the lower. Packed
+ * scores are added, subtracted and multiplied by integers as plain ints and
+ * both halves follow along, provided neither leaves the range of a short. We
+ * therefore carry tapered terms around packed and interpolate between the
+ * halves once, when the game phase is applied at the very end.
+ *
+ * @author ThomasB
+ */
+public final class TaperedScore
+{
+	private TaperedScore()
+	{
+	}
+
+	public static int of(final int mid, final int end)
+	{
+		assert (short) mid == mid && (short) end == end;
+		return (end << 16) + mid;
+	}
+
+	public static short mid(final int score)
+	{
+		return (short) score;
+	}
+
+	public static short end(final int score)
+	{
+		// Undo the borrow a negative middle game half takes from the upper bits
+		return (short) ((score + 0x8000) >> 16);
+	}
+
+	/**
+	 * @param gamePhase
+	 *            from 0 at the start of the game to 256 when only kings and pawns
+	 *            are left.
+	 * @return the score blended linearly between its halves.
+	 */
+	public static int interpolate(final int score, final int gamePhase)
+	{
+		return (mid(score) * (256 - gamePhase) + end(score) * gamePhase) / 256;
+	}
+}
@@ -7,6 +7,8 @@ import jenjinn.engine.bitboarddatabase.Bitboards;
 import jenjinn.engine.boardstate.BoardState;
 import jenjinn.engine.boardstate.BoardStateImpl;
 import jenjinn.engine.evaluation.EvaluatingComponent;
+import jenjinn.engine.evaluation.EvaluationContext;
+import jenjinn.engine.evaluation.TaperedScore;
 import jenjinn.engine.misc.EngineUtils;
 
 /**
@@ -24,11 +26,12 @@ public class DevelpmentV1 implements EvaluatingComponent
 	 * (non-Javadoc)
 	 * 
 	 * @see jenjinn.engine.evaluation.EvaluatingComponent#evaluate(jenjinn.engine.
-	 * boardstate.BoardState)
+	 * evaluation.EvaluationContext)
 	 */
 	@Override
-	public short evaluate(BoardState state)
+	public int evaluate(EvaluationContext context)
 	{
+		BoardState state = context.getState();
 		// System.out.println("------------------------------------");
 		byte castleStatus = state.getCastleStatus();
 		// System.out.println(Integer.toBinaryString(castleStatus));
@@ -48,7 +51,7 @@ public class DevelpmentV1 implements EvaluatingComponent
 		}
 		// System.out.println(eval);
 		// System.out.println("------------------------------------");
-		return (short) eval;
+		return TaperedScore.of(eval, eval);
 	}
 
 	public static void main(String[] args)
@@ -1,8 +1,10 @@
 package jenjinn.engine.evaluation.componentimpl;
 
-import jenjinn.engine.boardstate.BoardState;
 import jenjinn.engine.enums.Side;
 import jenjinn.engine.evaluation.EvaluatingComponent;
+import jenjinn.engine.evaluation.EvaluationContext;
+import jenjinn.engine.evaluation.PawnTable;
+import jenjinn.engine.evaluation.TaperedScore;
 import jenjinn.engine.misc.EngineUtils;
 
 /**
@@ -11,86 +13,38 @@ import jenjinn.engine.misc.EngineUtils;
  */
 public class KingSafetyV1 implements EvaluatingComponent
 {
-	private static final short MID_PAWN_SHIELD_BONUS = 10, END_PAWN_SHIELD_BONUS = 7;
-	private static final short MID_DIRECT_SHIELD_BONUS = 12, END_DIRECT_SHIELD_BONUS = 0;
+	/* Tapered scores */
+	private static final int PAWN_SHIELD_BONUS = TaperedScore.of(10, 7);
+	private static final int DIRECT_SHIELD_BONUS = TaperedScore.of(12, 0);
 
-	private static final short MID_OPEN_FILE_PENALTY = 35, END_OPEN_FILE_PENALTY = 2;
-
-	/**
-	 * Working variables.
-	 */
-	private BoardState state;
-
-	private short midEval, endEval;
-
-	private boolean whiteCastled, blackCastled;
+	private static final int OPEN_FILE_PENALTY = TaperedScore.of(35, 2);
 
 	@Override
-	public short evaluate(final BoardState state)
+	public int evaluate(final EvaluationContext context)
 	{
-		this.state = state;
-		midEval = 0;
-		endEval = 0;
-		final byte castleStatus = state.getCastleStatus();
-		whiteCastled = (castleStatus & 0b11) != 0;
-		blackCastled = (castleStatus & 0b1100) != 0;
-
-		evaluateKingSafety(Side.W);
-		evaluateKingSafety(Side.B);
+		final byte castleStatus = context.getState().getCastleStatus();
+		final boolean whiteCastled = (castleStatus & 0b11) != 0, blackCastled = (castleStatus & 0b1100) != 0;
 
-		final short gamePhase = state.getGamePhase();
-		return (short) (((midEval * (256 - gamePhase)) + (endEval * gamePhase)) / 256);
+		return evaluateKingSafety(context, Side.W, whiteCastled) + evaluateKingSafety(context, Side.B, blackCastled);
 	}
 
-	private void evaluateKingSafety(final Side side)
+	private static int evaluateKingSafety(final EvaluationContext context, final Side side, final boolean castled)
 	{
-		final boolean isWhite = side.isWhite();
 		final int orientation = side.orientation();
 
-		if (isWhite ? whiteCastled : blackCastled) {
-			final byte kingLoc = EngineUtils.getSetBits(state.getPieceLocations(5 + side.index()))[0];
-			// final int rankNum = kingLoc / 8, fileNum = 7 - (kingLoc % 8);
-
-			final long immediateShieldArea = getImmediateShieldArea(kingLoc, side);
-			final long outerShieldArea = isWhite ? immediateShieldArea << 8 : immediateShieldArea >>> 8;
-
-			final long pawns = state.getPieceLocations(side.index());
-
-			midEval += orientation * Long.bitCount(outerShieldArea & pawns) * MID_PAWN_SHIELD_BONUS;
-			midEval += orientation * Long.bitCount(
-					immediateShieldArea & pawns) * (MID_PAWN_SHIELD_BONUS + MID_DIRECT_SHIELD_BONUS);
-
-			endEval += orientation * Long.bitCount(outerShieldArea & pawns) * END_PAWN_SHIELD_BONUS;
-			endEval += orientation * Long.bitCount(
-					immediateShieldArea & pawns) * (END_PAWN_SHIELD_BONUS + END_DIRECT_SHIELD_BONUS);
+		if (castled) {
+			return orientation * (context.getOuterShieldCount(side) * PAWN_SHIELD_BONUS
+					+ context.getImmediateShieldCount(side) * (PAWN_SHIELD_BONUS + DIRECT_SHIELD_BONUS));
 		}
 		else {
-			midEval += 3 * orientation * MID_OPEN_FILE_PENALTY;
-			endEval += 3 * orientation * END_OPEN_FILE_PENALTY;
-		}
-	}
-
-	private static long getImmediateShieldArea(final byte kingLoc, final Side side)
-	{
-		final long[] components = new long[3];
-
-		final int orientation = side.orientation();
-		final int rankNum = kingLoc / 8;
-
-		final int shiftStart = kingLoc + orientation * 7;
-		for (int i = 0; i < 3; i++) {
-			final int shifted = Math.min(Math.max(shiftStart + orientation * i, 0), 64);
-			if (shifted / 8 == rankNum + orientation) {
-				components[i] = 1L << shifted;
-			}
+			return 3 * orientation * OPEN_FILE_PENALTY;
 		}
-		return EngineUtils.multipleOr(components);
 	}
 
 	public static void main(final String[] args)
 	{
 		System.out.println(0b110 >>> 8);
 
-		EngineUtils.printNbitBoards(getImmediateShieldArea((byte) 48, Side.W));
+		EngineUtils.printNbitBoards(PawnTable.getImmediateShieldArea((byte) 48, Side.W));
 	}
 }
\ No newline at end of file
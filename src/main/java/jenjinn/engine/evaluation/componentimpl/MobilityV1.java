@@ -3,14 +3,11 @@
  */
 package jenjinn.engine.evaluation.componentimpl;
 
-import static jenjinn.engine.evaluation.componentimpl.PawnStructureV1.getPawnAttacksFromLocs;
-
 import jenjinn.engine.bitboarddatabase.Bitboards;
-import jenjinn.engine.boardstate.BoardState;
 import jenjinn.engine.enums.Side;
 import jenjinn.engine.evaluation.EvaluatingComponent;
-import jenjinn.engine.misc.EngineUtils;
-import jenjinn.engine.pieces.ChessPiece;
+import jenjinn.engine.evaluation.EvaluationContext;
+import jenjinn.engine.evaluation.TaperedScore;
 
 /**
  * @author t
@@ -22,137 +19,54 @@ public class MobilityV1 implements EvaluatingComponent
 	 * The mobility scores define what value we give to the mobility of the various
 	 * pieces.
 	 */
-	private final MobilityScores midScores = new MobilityScores(2, 3, 0, 0, 1);
-	private final MobilityScores endScores = new MobilityScores(1, 1, 1, 1, 2);
-
-	/**
-	 * Working variables
-	 */
-	private BoardState state;
-
-	private int midGamEval, endGameEval;
+	private static final MobilityScores MID_SCORES = new MobilityScores(2, 3, 0, 0, 1);
+	private static final MobilityScores END_SCORES = new MobilityScores(1, 1, 1, 1, 2);
 
-	private long wPawnAttacks, bPawnAttacks;
-
-	private long allWhiteLoc, allBlackLoc;
+	/* The same scores packed as tapered scores */
+	private static final int BISHOP = TaperedScore.of(MID_SCORES.getBishop(), END_SCORES.getBishop());
+	private static final int KNIGHT = TaperedScore.of(MID_SCORES.getKnight(), END_SCORES.getKnight());
+	private static final int ROOK_V = TaperedScore.of(MID_SCORES.getRookV(), END_SCORES.getRookV());
+	private static final int ROOK_H = TaperedScore.of(MID_SCORES.getRookH(), END_SCORES.getRookH());
+	private static final int QUEEN = TaperedScore.of(MID_SCORES.getQueen(), END_SCORES.getQueen());
 
 	/*
 	 * (non-Javadoc)
 	 *
 	 * @see jenjinn.engine.evaluation.EvaluatingComponent#evaluate(jenjinn.engine.
-	 * boardstate.BoardState)
+	 * evaluation.EvaluationContext)
 	 */
 	@Override
-	public short evaluate(final BoardState state)
-	{
-		this.state = state;
-		midGamEval = 0;
-		endGameEval = 0;
-		wPawnAttacks = EngineUtils.multipleOr(getPawnAttacksFromLocs(state.getPieceLocations(0), Side.W));
-		bPawnAttacks = EngineUtils.multipleOr(getPawnAttacksFromLocs(state.getPieceLocations(6), Side.B));
-		allWhiteLoc = state.getSideLocations(Side.W);
-		allBlackLoc = state.getSideLocations(Side.B);
-
-		evaluateBishopMobility();
-		evaluateKnightMobility();
-		evaluateRookMobility();
-		evaluateQueenMobility();
-
-		final short gamePhase = state.getGamePhase();
-		return (short) (((midGamEval * (256 - gamePhase)) + (endGameEval * gamePhase)) / 256);
-	}
-
-	private void evaluateQueenMobility()
-	{
-		final byte[] whiteQueenLocs = EngineUtils.getSetBits(state.getPieceLocations(4));
-
-		for (final byte loc : whiteQueenLocs) {
-			final int moveNum = Long.bitCount(
-					ChessPiece.get(4).getMoveset(loc, allWhiteLoc, allBlackLoc) & ~bPawnAttacks);
-			midGamEval += moveNum * midScores.getQueen();
-			endGameEval += moveNum * endScores.getQueen();
-		}
-
-		final byte[] blackQueenLocs = EngineUtils.getSetBits(state.getPieceLocations(8));
-
-		for (final byte loc : blackQueenLocs) {
-			final int moveNum = Long.bitCount(
-					ChessPiece.get(10).getMoveset(loc, allBlackLoc, allWhiteLoc) & ~wPawnAttacks);
-			midGamEval -= moveNum * midScores.getQueen();
-			endGameEval -= moveNum * endScores.getQueen();
-		}
-	}
-
-	private void evaluateRookMobility()
+	public int evaluate(final EvaluationContext context)
 	{
-		final byte[] whiteRookLocs = EngineUtils.getSetBits(state.getPieceLocations(3));
-
-		for (final byte loc : whiteRookLocs) {
-			final long file = Bitboards.FILE[7 - (loc % 8)];
-			final long allMoves = ChessPiece.get(3).getMoveset(loc, allWhiteLoc, allBlackLoc) & ~bPawnAttacks;
+		int eval = 0;
 
-			final int vMovesNum = Long.bitCount(allMoves & file), hMovesNum = Long.bitCount(allMoves & ~file);
-			midGamEval += vMovesNum * midScores.getRookV();
-			midGamEval += hMovesNum * midScores.getRookH();
-
-			endGameEval += vMovesNum * endScores.getRookV();
-			endGameEval += hMovesNum * endScores.getRookH();
-		}
+		for (final Side side : Side.values()) {
+			final int sgn = side.orientation();
+			final long allowed = ~context.getSideLocations(side) & ~context.getPawnAttacks(side.otherSide());
 
-		final byte[] blackRookLocs = EngineUtils.getSetBits(state.getPieceLocations(9));
+			eval += sgn * countMoves(context, side.index() + 1, allowed) * BISHOP;
+			eval += sgn * countMoves(context, side.index() + 2, allowed) * KNIGHT;
 
-		for (final byte loc : blackRookLocs) {
-			final long file = Bitboards.FILE[7 - (loc % 8)];
-			final long allMoves = ChessPiece.get(9).getMoveset(loc, allBlackLoc, allWhiteLoc) & ~wPawnAttacks;
+			final int rookIndex = side.index() + 3;
+			for (int j = 0; j < context.getPieceCount(rookIndex); j++) {
+				final long file = Bitboards.FILE[7 - (context.getPieceSquare(rookIndex, j) % 8)];
+				final long allMoves = context.getPieceAttacks(rookIndex, j) & allowed;
 
-			final int vMovesNum = Long.bitCount(allMoves & file), hMovesNum = Long.bitCount(allMoves & ~file);
-			midGamEval -= vMovesNum * midScores.getRookV();
-			midGamEval -= hMovesNum * midScores.getRookH();
+				final int vMovesNum = Long.bitCount(allMoves & file), hMovesNum = Long.bitCount(allMoves & ~file);
+				eval += sgn * (vMovesNum * ROOK_V + hMovesNum * ROOK_H);
+			}
 
-			endGameEval -= vMovesNum * endScores.getRookV();
-			endGameEval -= hMovesNum * endScores.getRookH();
+			eval += sgn * countMoves(context, side.index() + 4, allowed) * QUEEN;
 		}
+		return eval;
 	}
 
-	private void evaluateKnightMobility()
+	private static int countMoves(final EvaluationContext context, final int pieceIndex, final long allowedSquares)
 	{
-		final byte[] whiteKnightLocs = EngineUtils.getSetBits(state.getPieceLocations(2));
-
-		for (final byte loc : whiteKnightLocs) {
-			final int moveNum = Long.bitCount(
-					ChessPiece.get(2).getMoveset(loc, allWhiteLoc, allBlackLoc) & ~bPawnAttacks);
-			midGamEval += moveNum * midScores.getKnight();
-			endGameEval += moveNum * endScores.getKnight();
-		}
-
-		final byte[] blackKnightLocs = EngineUtils.getSetBits(state.getPieceLocations(8));
-
-		for (final byte loc : blackKnightLocs) {
-			final int moveNum = Long.bitCount(
-					ChessPiece.get(8).getMoveset(loc, allBlackLoc, allWhiteLoc) & ~wPawnAttacks);
-			midGamEval -= moveNum * midScores.getKnight();
-			endGameEval -= moveNum * endScores.getKnight();
-		}
-	}
-
-	private void evaluateBishopMobility()
-	{
-		final byte[] whiteBishopLocs = EngineUtils.getSetBits(state.getPieceLocations(1));
-
-		for (final byte loc : whiteBishopLocs) {
-			final int moveNum = Long.bitCount(
-					ChessPiece.get(1).getMoveset(loc, allWhiteLoc, allBlackLoc) & ~bPawnAttacks);
-			midGamEval += moveNum * midScores.getBishop();
-			endGameEval += moveNum * endScores.getBishop();
-		}
-
-		final byte[] blackBishopLocs = EngineUtils.getSetBits(state.getPieceLocations(1));
-
-		for (final byte loc : blackBishopLocs) {
-			final int moveNum = Long.bitCount(
-					ChessPiece.get(7).getMoveset(loc, allBlackLoc, allWhiteLoc) & ~wPawnAttacks);
-			midGamEval -= moveNum * midScores.getBishop();
-			endGameEval -= moveNum * endScores.getBishop();
+		int moves = 0;
+		for (int j = 0; j < context.getPieceCount(pieceIndex); j++) {
+			moves += Long.bitCount(context.getPieceAttacks(pieceIndex, j) & allowedSquares);
 		}
+		return moves;
 	}
 }
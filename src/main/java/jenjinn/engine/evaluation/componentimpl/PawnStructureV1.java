@@ -1,11 +1,12 @@
 package jenjinn.engine.evaluation.componentimpl;
 
-import static jenjinn.engine.bitboarddatabase.Bitboards.FILE;
-
 import jenjinn.engine.bitboarddatabase.Bitboards;
 import jenjinn.engine.boardstate.BoardState;
 import jenjinn.engine.enums.Side;
 import jenjinn.engine.evaluation.EvaluatingComponent;
+import jenjinn.engine.evaluation.EvaluationContext;
+import jenjinn.engine.evaluation.PawnTable;
+import jenjinn.engine.evaluation.TaperedScore;
 import jenjinn.engine.misc.EngineUtils;
 
 /**
@@ -14,8 +15,6 @@ import jenjinn.engine.misc.EngineUtils;
  */
 public class PawnStructureV1 implements EvaluatingComponent
 {
-	public static long usedTable = 0, notUsedTable = 0;
-
 	// Multipliers
 	static final double SEMIOPEN_FILE = 1.5;
 
@@ -46,37 +45,33 @@ public class PawnStructureV1 implements EvaluatingComponent
 	// Central area
 	static final long CENTRAL_AREA = 0b0011110000111100L << (3 * 8);
 
-	private final PawnTable table = PawnTable.createDefault();
-
 	@Override
-	public short evaluate(final BoardState state)
+	public int evaluate(final EvaluationContext context)
 	{
-		long phash = state.getPawnHash();
-		PawnTableEntry record = table.get(phash);
-
-		if (record != null && record.posHash == phash) {
-			usedTable++;
-			return record.eval;
+		final int stored = context.getPawnStructureScore();
+		if (stored != PawnTable.NO_SCORE) {
+			return TaperedScore.of(stored, stored);
 		}
-		notUsedTable++;
 
+		final BoardState state = context.getState();
 		short overallEval = getIsolatedPawnScore(state.getPieceLocations(0), state.getPieceLocations(6));
 
-		overallEval += evaluateIndividualPawnProperties(state);
-		overallEval += evaluateGlobalPawnProperties(state);
+		overallEval += evaluateIndividualPawnProperties(context);
+		overallEval += evaluateGlobalPawnProperties(context);
 
-		table.set(new PawnTableEntry(phash, overallEval));
-		return overallEval;
+		context.setPawnStructureScore(overallEval);
+		return TaperedScore.of(overallEval, overallEval);
 	}
 
-	private short evaluateGlobalPawnProperties(final BoardState state)
+	private short evaluateGlobalPawnProperties(final EvaluationContext context)
 	{
 		short score = 0;
 
+		final BoardState state = context.getState();
 		final long wPawns = state.getPieceLocations(0), bPawns = state.getPieceLocations(6);
 
-		score += getChainBonus(wPawns, Side.W);
-		score -= getChainBonus(bPawns, Side.B);
+		score += getChainBonus(wPawns, context.getPawnAttacks(Side.W));
+		score -= getChainBonus(bPawns, context.getPawnAttacks(Side.B));
 
 		score += getPhalanxBonus(wPawns);
 		score -= getPhalanxBonus(bPawns);
@@ -84,12 +79,14 @@ public class PawnStructureV1 implements EvaluatingComponent
 		return score;
 	}
 
-	private short evaluateIndividualPawnProperties(final BoardState state)
+	private short evaluateIndividualPawnProperties(final EvaluationContext context)
 	{
 		short score = 0;
 
+		final BoardState state = context.getState();
 		final long wPawns = state.getPieceLocations(0), bPawns = state.getPieceLocations(6);
-		final long whiteAttacks = state.getSquaresAttackedBy(Side.W), blackAttacks = state.getSquaresAttackedBy(Side.B);
+		// Only pawn attacks count so that the score depends on nothing the pawn table does not key
+		final long whiteAttacks = context.getPawnAttacks(Side.W), blackAttacks = context.getPawnAttacks(Side.B);
 
 		for (int i = 0; i < 8; i++) {
 			final long wFilePawns = wPawns & Bitboards.FILE[i], bFilePawns = bPawns & Bitboards.FILE[i];
@@ -126,9 +123,8 @@ public class PawnStructureV1 implements EvaluatingComponent
 		return score;
 	}
 
-	private short getChainBonus(final long pawns, final Side side)
+	private static short getChainBonus(final long pawns, final long pawnAttacks)
 	{
-		final long pawnAttacks = EngineUtils.multipleOr(getPawnAttacksFromLocs(pawns, side));
 		return (short) (Long.bitCount(pawnAttacks & pawns) * CHAIN_BONUS);
 	}
 
@@ -301,20 +297,4 @@ public class PawnStructureV1 implements EvaluatingComponent
 
 		return (short) score;
 	}
-
-	public static long[] getPawnAttacksFromLocs(final long locs, final Side pawnSide)
-	{
-		final boolean areWhitePawns = pawnSide.isWhite();
-		long rightSideAttacks, leftSideAttacks;
-		final long piecesToRemoveForLHS = areWhitePawns ? FILE[0] : FILE[7];
-		final long piecesToRemoveForRHS = areWhitePawns ? FILE[7] : FILE[0];
-
-		final long relevantPiecesForLHS = locs & ~piecesToRemoveForLHS;
-		final long relevantPiecesForRHS = locs & ~piecesToRemoveForRHS;
-
-		leftSideAttacks = areWhitePawns ? (relevantPiecesForLHS << 9) : (relevantPiecesForLHS >>> 7);
-		rightSideAttacks = areWhitePawns ? (relevantPiecesForRHS << 7) : (relevantPiecesForRHS >>> 9);
-
-		return new long[] { leftSideAttacks, rightSideAttacks };
-	}
 }
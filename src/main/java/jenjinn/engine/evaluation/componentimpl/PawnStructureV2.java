@@ -0,0 +1,162 @@
+package jenjinn.engine.evaluation.componentimpl;
+
+import static jenjinn.engine.bitboarddatabase.Bitboards.FILE;
+import static jenjinn.engine.evaluation.componentimpl.PawnStructureV1.BACKWARD_PENALTY;
+import static jenjinn.engine.evaluation.componentimpl.PawnStructureV1.CENTRAL_AREA;
+import static jenjinn.engine.evaluation.componentimpl.PawnStructureV1.CENTRAL_BONUS;
+import static jenjinn.engine.evaluation.componentimpl.PawnStructureV1.CHAIN_BONUS;
+import static jenjinn.engine.evaluation.componentimpl.PawnStructureV1.DOUBLED_PENALTY;
+import static jenjinn.engine.evaluation.componentimpl.PawnStructureV1.ENEMY_CENTRAL_TERRITORY;
+import static jenjinn.engine.evaluation.componentimpl.PawnStructureV1.ISOLATED_PENALTY;
+import static jenjinn.engine.evaluation.componentimpl.PawnStructureV1.OUTSIDE_FILE;
+import static jenjinn.engine.evaluation.componentimpl.PawnStructureV1.PASSED_BONUS;
+import static jenjinn.engine.evaluation.componentimpl.PawnStructureV1.PHALANX_BONUSES;
+import static jenjinn.engine.evaluation.componentimpl.PawnStructureV1.SEMIOPEN_FILE;
+
+import jenjinn.engine.boardstate.BoardState;
+import jenjinn.engine.enums.Side;
+import jenjinn.engine.evaluation.EvaluatingComponent;
+import jenjinn.engine.evaluation.EvaluationContext;
+import jenjinn.engine.evaluation.PawnTable;
+import jenjinn.engine.evaluation.TaperedScore;
+
+/**
+ * Scores exactly as {@link PawnStructureV1} but works on whole bitboards,
+ * every term is a few fills and shifts followed by population counts instead
+ * of a walk over the files and the pawns on them.
+ *
+ * The peculiarities of the original are kept on purpose so that the two
+ * agree on every position, they are pointed out where they occur.
+ *
+ * @author ThomasB
+ */
+public class PawnStructureV2 implements EvaluatingComponent
+{
+	private static final long A_FILE = FILE[0], H_FILE = FILE[7], EDGE_FILES = A_FILE | H_FILE;
+
+	/** The central squares on the far side of the board for each side. */
+	private static final long W_ENEMY_CENTRE = 0b111100L << (4 * 8), B_ENEMY_CENTRE = 0b111100L << (3 * 8);
+
+	private static final int SEMIOPEN_ISOLATED_PENALTY = (int) (SEMIOPEN_FILE * ISOLATED_PENALTY);
+	private static final int SEMIOPEN_BACKWARD_PENALTY = (int) (SEMIOPEN_FILE * BACKWARD_PENALTY);
+	private static final int OUTSIDE_DOUBLED_PENALTY = (int) (OUTSIDE_FILE * DOUBLED_PENALTY);
+	private static final int ENEMY_CENTRAL_BONUS = (int) (ENEMY_CENTRAL_TERRITORY * CENTRAL_BONUS);
+
+	@Override
+	public int evaluate(final EvaluationContext context)
+	{
+		final int stored = context.getPawnStructureScore();
+		if (stored != PawnTable.NO_SCORE) {
+			return TaperedScore.of(stored, stored);
+		}
+
+		final BoardState state = context.getState();
+		final long wPawns = state.getPieceLocations(0), bPawns = state.getPieceLocations(6);
+		final long wFiles = fileFill(wPawns), bFiles = fileFill(bPawns);
+		final long wIsolated = wPawns & ~sideways(wFiles), bIsolated = bPawns & ~sideways(bFiles);
+
+		int score = 0;
+
+		/*
+		 * Isolated pawns are charged twice, once with the larger penalty when an
+		 * enemy pawn shares the file and once with it when none does. The first
+		 * charge never counts black a-file pawns and always counts black h-file
+		 * ones.
+		 */
+		final long bIsolatedOnce = (bIsolated & ~A_FILE) | (bPawns & H_FILE);
+		score -= weigh(wIsolated, ISOLATED_PENALTY, SEMIOPEN_ISOLATED_PENALTY, bFiles);
+		score -= weigh(wIsolated, ISOLATED_PENALTY, SEMIOPEN_ISOLATED_PENALTY, ~bFiles);
+		score += weigh(bIsolatedOnce, ISOLATED_PENALTY, SEMIOPEN_ISOLATED_PENALTY, wFiles);
+		score += weigh(bIsolated, ISOLATED_PENALTY, SEMIOPEN_ISOLATED_PENALTY, ~wFiles);
+
+		score -= weigh(wPawns & (wPawns >>> 8), DOUBLED_PENALTY, OUTSIDE_DOUBLED_PENALTY, EDGE_FILES);
+		score += weigh(bPawns & (bPawns >>> 8), DOUBLED_PENALTY, OUTSIDE_DOUBLED_PENALTY, EDGE_FILES);
+
+		// Behind every pawn on the neighbouring files and with an enemy pawn guarding the square in front
+		final long wBackward = wPawns & sideways(wFiles) & ~northFill(sideways(wPawns)) & (context.getPawnAttacks(Side.B) >>> 8);
+		final long bBackward = bPawns & sideways(bFiles) & ~southFill(sideways(bPawns)) & (context.getPawnAttacks(Side.W) << 8);
+		score -= weigh(wBackward, BACKWARD_PENALTY, SEMIOPEN_BACKWARD_PENALTY, ~bFiles);
+		score += weigh(bBackward, BACKWARD_PENALTY, SEMIOPEN_BACKWARD_PENALTY, ~wFiles);
+
+		// A black pawn with no white pawn on its own or a neighbouring file does not count as passed
+		final long passed = context.getPassedPawns();
+		score += PASSED_BONUS * Long.bitCount(passed & wPawns);
+		score -= PASSED_BONUS * Long.bitCount(passed & bPawns & (wFiles | sideways(wFiles)));
+
+		score += weigh(wPawns & CENTRAL_AREA, CENTRAL_BONUS, ENEMY_CENTRAL_BONUS, W_ENEMY_CENTRE);
+		score -= weigh(bPawns & CENTRAL_AREA, CENTRAL_BONUS, ENEMY_CENTRAL_BONUS, B_ENEMY_CENTRE);
+
+		score += CHAIN_BONUS * Long.bitCount(context.getPawnAttacks(Side.W) & wPawns);
+		score -= CHAIN_BONUS * Long.bitCount(context.getPawnAttacks(Side.B) & bPawns);
+
+		score += getPhalanxBonus(wPawns);
+		score -= getPhalanxBonus(bPawns);
+
+		assert score == (short) score;
+		context.setPawnStructureScore((short) score);
+		return TaperedScore.of(score, score);
+	}
+
+	/**
+	 * Each run of pawns standing side by side scores by its length. Runs are
+	 * read in square order towards the a-file and, as in the original, one which
+	 * ends on the a-file picks up an h-file pawn on the next rank as a further
+	 * member. That pawn also starts a run of its own.
+	 */
+	private static int getPhalanxBonus(final long pawns)
+	{
+		final long starts = (pawns & ~(pawns << 1)) | (pawns & H_FILE);
+		final long links = pawns & ~H_FILE;
+
+		int bonus = 0;
+		// The run starts followed by at least k further pawns
+		long atLeast = starts;
+		for (int k = 0; atLeast != 0; k++) {
+			final long continuing = k == 0 ? atLeast : atLeast & (links >>> k);
+			final long longer = continuing & (pawns >>> (k + 1));
+			bonus += PHALANX_BONUSES[k] * Long.bitCount(atLeast & ~longer);
+			atLeast = longer;
+		}
+		return bonus;
+	}
+
+	/**
+	 * @return the base weight for each square of the set outside the weighted
+	 *         squares plus the larger weight for each inside them.
+	 */
+	private static int weigh(final long squares, final int base, final int weighted, final long weightedSquares)
+	{
+		return base * Long.bitCount(squares & ~weightedSquares) + weighted * Long.bitCount(squares & weightedSquares);
+	}
+
+	/**
+	 * @return the squares on the files either side of the given ones.
+	 */
+	private static long sideways(final long squares)
+	{
+		return ((squares & ~A_FILE) << 1) | ((squares & ~H_FILE) >>> 1);
+	}
+
+	/**
+	 * @return the given squares and everything in front of them from white's
+	 *         point of view.
+	 */
+	private static long northFill(long squares)
+	{
+		squares |= squares << 8;
+		squares |= squares << 16;
+		return squares | (squares << 32);
+	}
+
+	private static long southFill(long squares)
+	{
+		squares |= squares >>> 8;
+		squares |= squares >>> 16;
+		return squares | (squares >>> 32);
+	}
+
+	private static long fileFill(final long squares)
+	{
+		return northFill(squares) | southFill(squares);
+	}
+}
@@ -0,0 +1,53 @@
+package jenjinn.engine.evaluation.material;
+
+import jenjinn.engine.boardstate.BoardState;
+import jenjinn.engine.enums.Side;
+
+/**
+ * Evaluates positions of one specific material configuration which the general
+ * evaluation handles badly, usually because the only thing which matters is
+ * how quickly the stronger side can force mate.
+ *
+ * @author ThomasB
+ */
+public interface EndgameEvaluator
+{
+	/**
+	 * A score bigger than any positional advantage but well below the mate
+	 * scores, marking an endgame as won before the search can see the mate.
+	 */
+	short KNOWN_WIN = 5000;
+
+	/**
+	 * @param state
+	 * @param strongSide
+	 *            the side with the winning material.
+	 * @return the score from the point of view of the strong side.
+	 */
+	short evaluate(BoardState state, Side strongSide);
+
+	/**
+	 * @return a bonus growing as the given square nears the edge of the board.
+	 */
+	static int pushToEdge(final int square)
+	{
+		final int file = square % 8, rank = square / 8;
+		return 20 * ((file < 4 ? 3 - file : file - 4) + (rank < 4 ? 3 - rank : rank - 4));
+	}
+
+	/**
+	 * @return a bonus growing as the given squares near one another.
+	 */
+	static int pushClose(final int square1, final int square2)
+	{
+		return 20 * (8 - distance(square1, square2));
+	}
+
+	/**
+	 * @return the number of king moves between the given squares.
+	 */
+	static int distance(final int square1, final int square2)
+	{
+		return Math.max(Math.abs(square1 % 8 - square2 % 8), Math.abs(square1 / 8 - square2 / 8));
+	}
+}
@@ -0,0 +1,37 @@
+package jenjinn.engine.evaluation.material;
+
+import jenjinn.engine.boardstate.BoardState;
+import jenjinn.engine.enums.Side;
+import jenjinn.engine.evaluation.PieceValueProvider;
+
+/**
+ * Evaluates king, bishop and knight against a bare king. Mate can only be
+ * forced in a corner of the colour of the bishop so the weak king is driven
+ * towards the nearer of those two corners.
+ *
+ * @author ThomasB
+ */
+public final class KBNKEvaluator implements EndgameEvaluator
+{
+	/** Corners h1 and a8 are light squares, a1 and h8 dark ones. */
+	private static final int[] LIGHT_CORNERS = { 0, 63 }, DARK_CORNERS = { 7, 56 };
+
+	@Override
+	public short evaluate(final BoardState state, final Side strongSide)
+	{
+		final int strongKing = Long.numberOfTrailingZeros(state.getPieceLocations(strongSide.index() + 5));
+		final int weakKing = Long.numberOfTrailingZeros(state.getPieceLocations(strongSide.otherSide().index() + 5));
+		final int bishop = Long.numberOfTrailingZeros(state.getPieceLocations(strongSide.index() + 1));
+
+		final int[] corners = isDarkSquare(bishop) ? DARK_CORNERS : LIGHT_CORNERS;
+		final int cornerDistance = Math.min(EndgameEvaluator.distance(weakKing, corners[0]), EndgameEvaluator.distance(weakKing, corners[1]));
+
+		final int material = PieceValueProvider.EGAME_VALUES[1] + PieceValueProvider.EGAME_VALUES[2];
+		return (short) (KNOWN_WIN + material + 40 * (7 - cornerDistance) + EndgameEvaluator.pushClose(strongKing, weakKing));
+	}
+
+	private static boolean isDarkSquare(final int square)
+	{
+		return ((square % 8 + square / 8) & 1) == 1;
+	}
+}
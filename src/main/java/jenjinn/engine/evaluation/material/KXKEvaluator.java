@@ -0,0 +1,28 @@
+package jenjinn.engine.evaluation.material;
+
+import jenjinn.engine.boardstate.BoardState;
+import jenjinn.engine.enums.Side;
+import jenjinn.engine.evaluation.PieceValueProvider;
+
+/**
+ * Evaluates king and a major piece against a bare king (KQK and KRK). The mate
+ * is forced by driving the weak king to the edge with our king close by, so
+ * that is all we reward.
+ *
+ * @author ThomasB
+ */
+public final class KXKEvaluator implements EndgameEvaluator
+{
+	@Override
+	public short evaluate(final BoardState state, final Side strongSide)
+	{
+		final int strongKing = Long.numberOfTrailingZeros(state.getPieceLocations(strongSide.index() + 5));
+		final int weakKing = Long.numberOfTrailingZeros(state.getPieceLocations(strongSide.otherSide().index() + 5));
+
+		int material = 0;
+		for (int i = 1; i < 5; i++) {
+			material += Long.bitCount(state.getPieceLocations(strongSide.index() + i)) * PieceValueProvider.EGAME_VALUES[i];
+		}
+		return (short) (KNOWN_WIN + material + EndgameEvaluator.pushToEdge(weakKing) + EndgameEvaluator.pushClose(strongKing, weakKing));
+	}
+}
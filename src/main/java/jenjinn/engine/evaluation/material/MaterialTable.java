@@ -0,0 +1,55 @@
+package jenjinn.engine.evaluation.material;
+
+/**
+ * Caches the analysis of material configurations by their material key. Only a
+ * few hundred configurations arise in a typical game so the table is small and
+ * almost every probe hits.
+ *
+ * @author ThomasB
+ */
+public final class MaterialTable
+{
+	private static final int DEFAULT_SIZE = 10;
+
+	/** Fibonacci hashing constant spreading the packed piece counts. */
+	private static final long KEY_MIXER = 0x9E3779B97F4A7C15L;
+
+	private final int shift;
+
+	private final MaterialTableEntry[] table;
+
+	private MaterialTable(final int powerSize)
+	{
+		this.shift = 64 - powerSize;
+		this.table = new MaterialTableEntry[1 << powerSize];
+	}
+
+	/**
+	 * @param twoPower
+	 *            the base two logarithm of the number of entries.
+	 */
+	public static MaterialTable create(final int twoPower)
+	{
+		return new MaterialTable(twoPower);
+	}
+
+	public static MaterialTable createDefault()
+	{
+		return new MaterialTable(DEFAULT_SIZE);
+	}
+
+	/**
+	 * @return the analysis of the given material configuration, computing and
+	 *         storing it if it is not in the table.
+	 */
+	public MaterialTableEntry get(final long materialKey)
+	{
+		final int index = (int) ((materialKey * KEY_MIXER) >>> shift);
+		MaterialTableEntry entry = table[index];
+		if (entry == null || entry.getMaterialKey() != materialKey) {
+			entry = MaterialTableEntry.analyse(materialKey);
+			table[index] = entry;
+		}
+		return entry;
+	}
+}
@@ -0,0 +1,256 @@
+package jenjinn.engine.evaluation.material;
+
+import static jenjinn.engine.boardstate.MaterialKey.getCount;
+
+import jenjinn.engine.boardstate.BoardState;
+import jenjinn.engine.boardstate.MaterialKey;
+import jenjinn.engine.enums.GameStage;
+import jenjinn.engine.enums.Side;
+import jenjinn.engine.evaluation.PieceValueProvider;
+import jenjinn.engine.evaluation.TaperedScore;
+
+/**
+ * Everything the evaluation needs to know which depends on the material on the
+ * board alone: the game phase and stage, the material imbalance terms, how far
+ * the general evaluation can be trusted for each side and whether the position
+ * is a recognised endgame.
+ *
+ * @author ThomasB
+ */
+public final class MaterialTableEntry
+{
+	/** The scale factor applied to evaluations we can trust completely. */
+	public static final int NORMAL_SCALE = 64;
+
+	static final short[] BISHOP_PAIR_BONUS = { 60, 100 };
+
+	/**
+	 * Knights gain and rooks lose value with every pawn of their own side beyond
+	 * this number, as the board closes up.
+	 */
+	static final int IMBALANCE_PAWN_BASE = 5;
+
+	static final short KNIGHT_PAWN_ADJUSTMENT = 12, ROOK_PAWN_ADJUSTMENT = -24;
+
+	/**
+	 * The piece phase from which we call a position an endgame, i.e. no more than
+	 * a queen or two rooks left for each side.
+	 */
+	static final int ENDGAME_PIECE_PHASE = 16;
+
+	private static final EndgameEvaluator KXK = new KXKEvaluator(), KBNK = new KBNKEvaluator();
+
+	private final long materialKey;
+
+	private final short gamePhase;
+
+	private final GameStage gameStage;
+
+	/** Imbalance score from the point of view of white as a {@link TaperedScore}. */
+	private final int imbalance;
+
+	/** Scale factors out of {@link #NORMAL_SCALE} indexed by side ordinal. */
+	private final byte[] scaleFactors;
+
+	private final boolean draw;
+
+	private final EndgameEvaluator endgameEvaluator;
+
+	private final Side strongSide;
+
+	private MaterialTableEntry(final long materialKey, final short gamePhase, final GameStage gameStage, final int imbalance,
+			final byte[] scaleFactors, final boolean draw, final EndgameEvaluator endgameEvaluator, final Side strongSide)
+	{
+		this.materialKey = materialKey;
+		this.gamePhase = gamePhase;
+		this.gameStage = gameStage;
+		this.imbalance = imbalance;
+		this.scaleFactors = scaleFactors;
+		this.draw = draw;
+		this.endgameEvaluator = endgameEvaluator;
+		this.strongSide = strongSide;
+	}
+
+	static MaterialTableEntry analyse(final long materialKey)
+	{
+		final int piecePhase = MaterialKey.getPiecePhase(materialKey);
+		final short gamePhase = (short) ((piecePhase * 256 + 12) / 24);
+
+		final boolean draw = isDeadDraw(materialKey, Side.W) || isDeadDraw(materialKey, Side.B);
+
+		EndgameEvaluator endgameEvaluator = null;
+		Side strongSide = null;
+		for (final Side side : Side.values()) {
+			final EndgameEvaluator recognised = recogniseEndgame(materialKey, side);
+			if (recognised != null) {
+				endgameEvaluator = recognised;
+				strongSide = side;
+			}
+		}
+
+		final int mid = getImbalance(materialKey, Side.W, 0) - getImbalance(materialKey, Side.B, 0);
+		final int end = getImbalance(materialKey, Side.W, 1) - getImbalance(materialKey, Side.B, 1);
+		final int imbalance = TaperedScore.of(mid, end);
+
+		final byte[] scaleFactors = { getScaleFactor(materialKey, Side.W), getScaleFactor(materialKey, Side.B) };
+
+		return new MaterialTableEntry(materialKey, gamePhase, getGameStage(materialKey, piecePhase), imbalance, scaleFactors, draw,
+				endgameEvaluator, strongSide);
+	}
+
+	private static GameStage getGameStage(final long materialKey, final int piecePhase)
+	{
+		if (piecePhase >= ENDGAME_PIECE_PHASE) {
+			return GameStage.ENDGAME;
+		}
+		else if (getCount(materialKey, 4) + getCount(materialKey, 10) == 0) {
+			return GameStage.QUEENLESS_MIDDLEGAME;
+		}
+		else {
+			return GameStage.MIDDLEGAME;
+		}
+	}
+
+	/**
+	 * A bare king against a bare king or a lone minor piece can never be mated.
+	 */
+	private static boolean isDeadDraw(final long materialKey, final Side side)
+	{
+		final int s = side.index();
+		final int minors = getCount(materialKey, s + 1) + getCount(materialKey, s + 2);
+		return minors <= 1 && getCount(materialKey, s) == 0 && getCount(materialKey, s + 3) == 0 && getCount(materialKey, s + 4) == 0
+				&& hasBareKing(materialKey, side.otherSide());
+	}
+
+	private static EndgameEvaluator recogniseEndgame(final long materialKey, final Side side)
+	{
+		if (!hasBareKing(materialKey, side.otherSide())) {
+			return null;
+		}
+		final int s = side.index();
+		final int pawns = getCount(materialKey, s), bishops = getCount(materialKey, s + 1), knights = getCount(materialKey, s + 2);
+		final int rooks = getCount(materialKey, s + 3), queens = getCount(materialKey, s + 4);
+
+		if (pawns + bishops + knights == 0 && rooks + queens == 1) {
+			return KXK;
+		}
+		if (pawns + rooks + queens == 0 && bishops == 1 && knights == 1) {
+			return KBNK;
+		}
+		return null;
+	}
+
+	private static boolean hasBareKing(final long materialKey, final Side side)
+	{
+		for (int i = 0; i < 5; i++) {
+			if (getCount(materialKey, side.index() + i) > 0) {
+				return false;
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * @param phaseIndex
+	 *            0 for the midgame and 1 for the endgame value.
+	 */
+	private static int getImbalance(final long materialKey, final Side side, final int phaseIndex)
+	{
+		final int s = side.index();
+		final int pawnExcess = getCount(materialKey, s) - IMBALANCE_PAWN_BASE;
+		int imbalance = getCount(materialKey, s + 1) >= 2 ? BISHOP_PAIR_BONUS[phaseIndex] : 0;
+		imbalance += getCount(materialKey, s + 2) * pawnExcess * KNIGHT_PAWN_ADJUSTMENT;
+		imbalance += getCount(materialKey, s + 3) * pawnExcess * ROOK_PAWN_ADJUSTMENT;
+		return imbalance;
+	}
+
+	/**
+	 * Without pawns a side needs a clear material advantage to win, otherwise
+	 * its advantage in the general evaluation is mostly illusory.
+	 */
+	private static byte getScaleFactor(final long materialKey, final Side side)
+	{
+		if (getCount(materialKey, side.index()) > 0) {
+			return NORMAL_SCALE;
+		}
+		final int ours = getNonPawnMaterial(materialKey, side), theirs = getNonPawnMaterial(materialKey, side.otherSide());
+		final short[] values = PieceValueProvider.MGAME_VALUES;
+		if (ours - theirs > values[1]) {
+			return NORMAL_SCALE;
+		}
+		return (byte) (ours < values[3] ? 0 : theirs <= values[1] ? 4 : 14);
+	}
+
+	private static int getNonPawnMaterial(final long materialKey, final Side side)
+	{
+		int material = 0;
+		for (int i = 1; i < 5; i++) {
+			material += getCount(materialKey, side.index() + i) * PieceValueProvider.MGAME_VALUES[i];
+		}
+		return material;
+	}
+
+	public long getMaterialKey()
+	{
+		return materialKey;
+	}
+
+	/**
+	 * @return the game phase, from 0 in the opening to 256 with no pieces left.
+	 */
+	public short getGamePhase()
+	{
+		return gamePhase;
+	}
+
+	/**
+	 * @return the stage of the game, which decides the components the general
+	 *         evaluation runs.
+	 */
+	public GameStage getGameStage()
+	{
+		return gameStage;
+	}
+
+	/**
+	 * @return the packed imbalance, left for the caller to interpolate along
+	 *         with the rest of the evaluation.
+	 */
+	public int getImbalance()
+	{
+		return imbalance;
+	}
+
+	/**
+	 * @return whether neither side can possibly win with this material.
+	 */
+	public boolean isDraw()
+	{
+		return draw;
+	}
+
+	public boolean hasEndgameEvaluator()
+	{
+		return endgameEvaluator != null;
+	}
+
+	/**
+	 * @return the specialised evaluation of the given state from the point of
+	 *         view of white.
+	 */
+	public int evaluateEndgame(final BoardState state)
+	{
+		return strongSide.orientation() * endgameEvaluator.evaluate(state, strongSide);
+	}
+
+	/**
+	 * @param score
+	 *            a general evaluation from the point of view of white.
+	 * @return the score scaled by the factor of the side it favours.
+	 */
+	public int scale(final int score)
+	{
+		final int factor = scaleFactors[score > 0 ? 0 : 1];
+		return factor == NORMAL_SCALE ? score : (score * factor) / NORMAL_SCALE;
+	}
+}
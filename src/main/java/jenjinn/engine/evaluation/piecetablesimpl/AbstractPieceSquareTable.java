@@ -1,7 +1,5 @@
 package jenjinn.engine.evaluation.piecetablesimpl;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.stream.IntStream;
 
 import jenjinn.engine.enums.Side;
@@ -13,7 +11,8 @@ import jenjinn.engine.evaluation.PieceSquareTable;
  */
 public abstract class AbstractPieceSquareTable implements PieceSquareTable
 {
-	protected final List<short[]> tables = new ArrayList<>();
+	/** The value of piece index i on square j is at 64 * i + j. */
+	protected final short[] values = new short[12 * 64];
 
 	/**
 	 *
@@ -21,19 +20,24 @@ public abstract class AbstractPieceSquareTable implements PieceSquareTable
 	public AbstractPieceSquareTable()
 	{
 		for (final Side s : Side.values()) {
-			tables.add(getTableFromReverseWhitePositionTable(getPawnTable(), s, getPawnValue()));
-			tables.add(getTableFromReverseWhitePositionTable(getBishopTable(), s, getBishopValue()));
-			tables.add(getTableFromReverseWhitePositionTable(getKnightTable(), s, getKnightValue()));
-			tables.add(getTableFromReverseWhitePositionTable(getRookTable(), s, getRookValue()));
-			tables.add(getTableFromReverseWhitePositionTable(getQueenTable(), s, getQueenValue()));
-			tables.add(getTableFromReverseWhitePositionTable(getKingTable(), s, getKingValue()));
+			setTable(s.index(), getTableFromReverseWhitePositionTable(getPawnTable(), s, getPawnValue()));
+			setTable(s.index() + 1, getTableFromReverseWhitePositionTable(getBishopTable(), s, getBishopValue()));
+			setTable(s.index() + 2, getTableFromReverseWhitePositionTable(getKnightTable(), s, getKnightValue()));
+			setTable(s.index() + 3, getTableFromReverseWhitePositionTable(getRookTable(), s, getRookValue()));
+			setTable(s.index() + 4, getTableFromReverseWhitePositionTable(getQueenTable(), s, getQueenValue()));
+			setTable(s.index() + 5, getTableFromReverseWhitePositionTable(getKingTable(), s, getKingValue()));
 		}
 	}
 
 	@Override
 	public short getPieceSquareValue(final byte pieceIndex, final byte squareIndex)
 	{
-		return tables.get(pieceIndex)[squareIndex];
+		return values[(pieceIndex << 6) + squareIndex];
+	}
+
+	private void setTable(final int pieceIndex, final short[] table)
+	{
+		System.arraycopy(table, 0, values, pieceIndex << 6, 64);
 	}
 
 	protected abstract short[] getPawnTable();
@@ -0,0 +1,35 @@
+package jenjinn.engine.evaluation.piecetablesimpl;
+
+import jenjinn.engine.evaluation.PieceSquareTable;
+import jenjinn.engine.evaluation.TaperedScore;
+
+/**
+ * The middle and end game tables merged into one table of
+ * {@link TaperedScore}s, so that updating the positional score of a state
+ * after a move costs one lookup per piece and square instead of two.
+ *
+ * @author ThomasB
+ */
+public final class TaperedPieceSquareTable
+{
+	/** The value of piece index i on square j is at 64 * i + j. */
+	private final int[] values = new int[12 * 64];
+
+	public TaperedPieceSquareTable(final PieceSquareTable midTable, final PieceSquareTable endTable)
+	{
+		for (byte pieceIndex = 0; pieceIndex < 12; pieceIndex++) {
+			for (byte square = 0; square < 64; square++) {
+				values[(pieceIndex << 6) + square] = TaperedScore.of(midTable.getPieceSquareValue(pieceIndex, square),
+						endTable.getPieceSquareValue(pieceIndex, square));
+			}
+		}
+	}
+
+	/**
+	 * @return the packed middle and end game values of the piece on the square.
+	 */
+	public int getPieceSquareValue(final int pieceIndex, final int squareIndex)
+	{
+		return values[(pieceIndex << 6) + squareIndex];
+	}
+}
@@ -0,0 +1,79 @@
+package jenjinn.engine.gametree;
+
+/**
+ * Butterfly history table indexed by side, start square and target square.
+ * Every time a quiet move causes a beta cutoff its entry is increased by an
+ * amount growing with the remaining search depth so that moves which are
+ * repeatedly good anywhere in the tree get searched earlier.
+ *
+ * @author ThomasB
+ */
+public class HistoryTable
+{
+	/**
+	 * Scores are kept below this bound so that they never compete with the
+	 * ordering scores given to hash moves, captures and killers.
+	 */
+	static final int MAX_SCORE = 1 << 20;
+
+	/** Scores indexed by side value (0 for white, 1 for black), start, target. */
+	private final int[][][] scores = new int[2][64][64];
+
+	private HistoryTable()
+	{
+	}
+
+	static HistoryTable create()
+	{
+		return new HistoryTable();
+	}
+
+	int get(final int sideValue, final byte start, final byte target)
+	{
+		return scores[sideValue][start][target];
+	}
+
+	/**
+	 * Reward a quiet move which caused a beta cutoff with the given remaining
+	 * depth.
+	 *
+	 * @param sideValue
+	 * @param start
+	 * @param target
+	 * @param depth
+	 */
+	void add(final int sideValue, final byte start, final byte target, final int depth)
+	{
+		final int newScore = scores[sideValue][start][target] + depth * depth;
+		scores[sideValue][start][target] = newScore;
+		if (newScore >= MAX_SCORE) {
+			age();
+		}
+	}
+
+	/**
+	 * Halve all scores, we do this between searches so that old information
+	 * gradually loses its influence.
+	 */
+	void age()
+	{
+		for (final int[][] sideScores : scores) {
+			for (final int[] startScores : sideScores) {
+				for (int i = 0; i < 64; i++) {
+					startScores[i] >>= 1;
+				}
+			}
+		}
+	}
+
+	void clear()
+	{
+		for (final int[][] sideScores : scores) {
+			for (final int[] startScores : sideScores) {
+				for (int i = 0; i < 64; i++) {
+					startScores[i] = 0;
+				}
+			}
+		}
+	}
+}
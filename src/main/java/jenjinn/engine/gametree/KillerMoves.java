@@ -0,0 +1,97 @@
+package jenjinn.engine.gametree;
+
+import jenjinn.engine.moves.ChessMove;
+
+/**
+ * Stores, for each ply of the search, the most recent quiet moves which caused
+ * a beta cutoff. Sibling nodes tend to be refuted by the same move so these are
+ * tried early when ordering quiet moves. Only quiet moves are stored and these
+ * are always cached instances so identity comparison is sufficient.
+ *
+ * @author ThomasB
+ */
+public class KillerMoves
+{
+	/** The number of killer moves we remember per ply. */
+	static final int SLOTS = 2;
+
+	/** Killer moves indexed by ply then slot, slot 0 is the most recent. */
+	private final ChessMove[][] killers;
+
+	private KillerMoves(final int maxPly)
+	{
+		this.killers = new ChessMove[maxPly][SLOTS];
+	}
+
+	/**
+	 * Create a new killer move table which can hold moves for plies in the range
+	 * [0, maxPly).
+	 *
+	 * @param maxPly
+	 * @return
+	 */
+	static KillerMoves create(final int maxPly)
+	{
+		return new KillerMoves(maxPly);
+	}
+
+	/**
+	 * Record a quiet move which caused a beta cutoff at the given ply.
+	 *
+	 * @param ply
+	 * @param mv
+	 */
+	void add(final int ply, final ChessMove mv)
+	{
+		if (ply < killers.length && killers[ply][0] != mv) {
+			final ChessMove[] plyKillers = killers[ply];
+			for (int i = SLOTS - 1; i > 0; i--) {
+				plyKillers[i] = plyKillers[i - 1];
+			}
+			plyKillers[0] = mv;
+		}
+	}
+
+	/**
+	 * @param ply
+	 * @param mv
+	 * @return the slot the move occupies at the given ply or -1 if it is not a
+	 *         killer move there.
+	 */
+	int getSlot(final int ply, final ChessMove mv)
+	{
+		if (ply < killers.length) {
+			final ChessMove[] plyKillers = killers[ply];
+			for (int i = 0; i < SLOTS; i++) {
+				if (plyKillers[i] == mv) {
+					return i;
+				}
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Called between searches. By the time of the next search two plies will have
+	 * been played so we shift the killers two plies towards the root where they
+	 * remain relevant.
+	 */
+	void age()
+	{
+		for (int ply = 0; ply < killers.length; ply++) {
+			final int source = ply + 2;
+			for (int i = 0; i < SLOTS; i++) {
+				killers[ply][i] = source < killers.length ? killers[source][i] : null;
+			}
+		}
+	}
+
+	void clear()
+	{
+		for (final ChessMove[] plyKillers : killers) {
+			for (int i = 0; i < SLOTS; i++) {
+				plyKillers[i] = null;
+			}
+		}
+	}
+}
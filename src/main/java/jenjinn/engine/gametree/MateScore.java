@@ -0,0 +1,72 @@
+package jenjinn.engine.gametree;
+
+import jenjinn.engine.enums.Infinity;
+
+/**
+ * Conversions for mate scores. A position in which the side to move can take
+ * the enemy king is worth {@link #MATE} minus its distance in plies from the
+ * root, so the search prefers quicker wins and slower losses. Transposition
+ * table entries are shared between nodes at different distances from the root
+ * so mate scores are stored relative to the node they belong to instead.
+ *
+ * @author ThomasB
+ */
+public final class MateScore
+{
+	/** The score of taking the enemy king at the root. */
+	public static final int MATE = Infinity.SHORT_INFINITY;
+
+	/** No search will ever reach beyond this many plies. */
+	private static final int MAX_PLY = 1024;
+
+	/** Scores beyond this magnitude represent a forced win or loss. */
+	public static final int THRESHOLD = MATE - MAX_PLY;
+
+	private MateScore()
+	{
+	}
+
+	/**
+	 * @return the score of a position at the given ply whose side to move can
+	 *         take the enemy king.
+	 */
+	public static int winAt(final int ply)
+	{
+		return MATE - ply;
+	}
+
+	public static boolean isMate(final int score)
+	{
+		return Math.abs(score) > THRESHOLD;
+	}
+
+	/**
+	 * Converts a score relative to the root into one relative to the node at the
+	 * given ply, for storage in the transposition table.
+	 */
+	public static int toTable(final int score, final int ply)
+	{
+		return score > THRESHOLD ? score + ply : score < -THRESHOLD ? score - ply : score;
+	}
+
+	/**
+	 * Converts a score read from the transposition table back into one relative
+	 * to the root for a node at the given ply.
+	 */
+	public static int fromTable(final int score, final int ply)
+	{
+		return score > THRESHOLD ? score - ply : score < -THRESHOLD ? score + ply : score;
+	}
+
+	/**
+	 * @return the number of moves until mate for a mate score relative to the
+	 *         root, positive if the side to move mates and negative if it gets
+	 *         mated.
+	 */
+	public static int toMoves(final int score)
+	{
+		// The king is taken on the ply after the mate is delivered
+		final int moves = Math.max(1, (MATE - Math.abs(score) + 1) / 2);
+		return score > 0 ? moves : -moves;
+	}
+}
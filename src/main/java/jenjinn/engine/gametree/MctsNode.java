@@ -0,0 +1,148 @@
+package jenjinn.engine.gametree;
+
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+
+import jenjinn.engine.moves.ChessMove;
+
+/**
+ * A node of the tree grown by {@link MctsSearch}. All statistics are updated
+ * with atomic field updaters so any number of workers can share the tree
+ * without locking. Values are from the perspective of the side which played
+ * the move leading to the node and are summed in fixed point.
+ *
+ * The children are created once by whichever worker expands the node first,
+ * an empty array marks a node without legal moves whose exact value is then
+ * known.
+ *
+ * @author ThomasB
+ */
+final class MctsNode
+{
+	private static final AtomicIntegerFieldUpdater<MctsNode> VISITS = AtomicIntegerFieldUpdater.newUpdater(MctsNode.class, "visits");
+	private static final AtomicLongFieldUpdater<MctsNode> VALUE_SUM = AtomicLongFieldUpdater.newUpdater(MctsNode.class, "valueSum");
+	private static final AtomicReferenceFieldUpdater<MctsNode, MctsNode[]> CHILDREN = AtomicReferenceFieldUpdater.newUpdater(MctsNode.class,
+			MctsNode[].class, "children");
+
+	/** Fixed point units per value of one. */
+	private static final int VALUE_UNIT = 1 << 16;
+
+	static final MctsNode[] NO_CHILDREN = new MctsNode[0];
+
+	/** The move leading here, null at the root. */
+	final ChessMove move;
+
+	/** The prior probability of the move among its siblings. */
+	final float prior;
+
+	private volatile int visits;
+
+	private volatile long valueSum;
+
+	private volatile MctsNode[] children;
+
+	/** The exact value of a node without legal moves for the side to move. */
+	private volatile float terminalValue;
+
+	MctsNode(final ChessMove move, final float prior)
+	{
+		this.move = move;
+		this.prior = prior;
+	}
+
+	/**
+	 * Counts a visit as a loss for the mover until {@link #backUp(double)}
+	 * replaces it with the real result, which steers concurrent workers towards
+	 * other parts of the tree.
+	 */
+	void addVirtualLoss()
+	{
+		VISITS.incrementAndGet(this);
+		VALUE_SUM.addAndGet(this, -VALUE_UNIT);
+	}
+
+	/**
+	 * @param value
+	 *            the result of the playout through this node from the perspective
+	 *            of the mover, between minus one and one.
+	 */
+	void backUp(final double value)
+	{
+		VALUE_SUM.addAndGet(this, VALUE_UNIT + Math.round(value * VALUE_UNIT));
+	}
+
+	int getVisits()
+	{
+		return visits;
+	}
+
+	/**
+	 * @return the mean value of the node for the mover, undefined if unvisited.
+	 */
+	double getMeanValue()
+	{
+		return valueSum / ((double) VALUE_UNIT * visits);
+	}
+
+	/**
+	 * @return the children or null if the node has not been expanded yet.
+	 */
+	MctsNode[] getChildren()
+	{
+		return children;
+	}
+
+	float getTerminalValue()
+	{
+		return terminalValue;
+	}
+
+	/**
+	 * @return whether the side to move here has been found to be checkmated.
+	 */
+	boolean isCheckmate()
+	{
+		return children == NO_CHILDREN && terminalValue < 0;
+	}
+
+	/**
+	 * Publishes the children unless another worker got there first.
+	 *
+	 * @return the children the node ended up with.
+	 */
+	MctsNode[] expand(final MctsNode[] newChildren, final float newTerminalValue)
+	{
+		terminalValue = newTerminalValue;
+		return CHILDREN.compareAndSet(this, null, newChildren) ? newChildren : children;
+	}
+
+	/**
+	 * @return the number of nodes in the subtree rooted here.
+	 */
+	long countNodes()
+	{
+		long count = 1;
+		final MctsNode[] nodeChildren = children;
+		if (nodeChildren != null) {
+			for (final MctsNode child : nodeChildren) {
+				count += child.countNodes();
+			}
+		}
+		return count;
+	}
+
+	MctsNode getMostVisitedChild()
+	{
+		MctsNode best = null;
+		final MctsNode[] nodeChildren = children;
+		if (nodeChildren != null) {
+			for (final MctsNode child : nodeChildren) {
+				if (best == null || child.visits > best.visits) {
+					best = child;
+				}
+			}
+		}
+		return best;
+	}
+}
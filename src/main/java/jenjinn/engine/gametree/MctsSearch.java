@@ -0,0 +1,444 @@
+package jenjinn.engine.gametree;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import jenjinn.engine.boardstate.BoardState;
+import jenjinn.engine.enums.Infinity;
+import jenjinn.engine.enums.Side;
+import jenjinn.engine.evaluation.BoardEvaluator;
+import jenjinn.engine.evaluation.EvaluationCache;
+import jenjinn.engine.moves.ChessMove;
+import jenjinn.engine.moves.EnPassantMove;
+import jenjinn.engine.moves.PromotionMove;
+
+/**
+ * Monte Carlo tree search using the PUCT selection rule. Instead of random
+ * playouts every new leaf is scored by a quiescence search or by the static
+ * evaluation, squashed into a value between minus one and one, and the priors
+ * of its moves come from cheap move ordering heuristics.
+ *
+ * The tree is grown by several workers at once. Node statistics are lock free
+ * and a worker descending through a node adds a virtual loss to it so that the
+ * others spread out instead of following the same path. Evaluation is not
+ * thread safe: the components of a {@link BoardEvaluator} keep no state, but
+ * the evaluator fills one context per position and owns its pawn table,
+ * material table and counters, and a {@link Quiescence} keeps a transposition
+ * table. So every worker gets its own evaluator from the factory and its own
+ * quiescence search, only the {@link EvaluationCache} is shared.
+ *
+ * Once the tree holds as many nodes as the memory cap allows leaves are still
+ * evaluated but no longer expanded. The subtree of the position reached after
+ * our move and the reply is kept for the next search.
+ *
+ * There is no search depth, a search ends after the playout limit, the time
+ * limit or an interrupt of the calling thread.
+ *
+ * @author ThomasB
+ */
+public class MctsSearch implements MoveCalculator
+{
+	public enum LeafEvaluation
+	{
+		QUIESCENCE, STATIC;
+	}
+
+	private static final String DESCRIPTOR = "[MCTS - PUCT - tree parallel]";
+
+	/** Rough memory cost of a node and its slot in the array of its parent. */
+	private static final int ESTIMATED_NODE_BYTES = 56;
+
+	private static final int DEFAULT_MEMORY_MB = 64, DEFAULT_PLAYOUTS = 20000;
+
+	/** Exploration constant of the PUCT rule. */
+	private static final double C_PUCT = 1.5;
+
+	/** Unvisited children are assumed this much worse than their parent. */
+	private static final double FIRST_PLAY_REDUCTION = 0.2;
+
+	/** The score in half centipawns which maps to a value of tanh(1). */
+	private static final double VALUE_SCALE = 600;
+
+	private static final int QUIESCENCE_DEPTH_CAP = 30;
+
+	private Supplier<BoardEvaluator> evaluatorFactory;
+
+	private final EvaluationCache evaluationCache = EvaluationCache.createDefault();
+
+	private LeafEvaluation leafEvaluation = LeafEvaluation.QUIESCENCE;
+
+	private int threadCount = 1;
+
+	private long maxNodes = ((long) DEFAULT_MEMORY_MB << 20) / ESTIMATED_NODE_BYTES;
+
+	private long playoutLimit = DEFAULT_PLAYOUTS, timeLimitMillis = Long.MAX_VALUE;
+
+	/* The tree kept from the previous search. */
+	private MctsNode root;
+	private BoardState rootState;
+
+	private final AtomicLong nodeCount = new AtomicLong(), playouts = new AtomicLong();
+
+	private volatile boolean stopped;
+
+	public MctsSearch()
+	{
+		this(BoardEvaluator::getDefault);
+	}
+
+	/**
+	 * @param evaluatorFactory
+	 *            creates the evaluator of each worker, it must return a new
+	 *            instance on every call.
+	 */
+	public MctsSearch(final Supplier<BoardEvaluator> evaluatorFactory)
+	{
+		this.evaluatorFactory = evaluatorFactory;
+	}
+
+	@Override
+	public ChessMove getBestMoveFrom(final BoardState state)
+	{
+		return search(state).getMove();
+	}
+
+	@Override
+	public SearchResult search(final BoardState state)
+	{
+		final long start = System.nanoTime();
+		reuseOrCreateRoot(state);
+		playouts.set(0);
+		stopped = false;
+
+		final Worker[] workers = new Worker[threadCount];
+		final Thread[] threads = new Thread[threadCount];
+		for (int i = 0; i < threadCount; i++) {
+			workers[i] = new Worker(start);
+			threads[i] = new Thread(workers[i], "mcts-worker-" + i);
+			threads[i].start();
+		}
+		for (final Thread thread : threads) {
+			try {
+				thread.join();
+			}
+			catch (final InterruptedException e) {
+				// Stop the workers and wait for them, keeping our interrupted status
+				stopped = true;
+				Thread.currentThread().interrupt();
+				joinUninterruptibly(thread);
+			}
+		}
+
+		final SearchStatistics stats = new SearchStatistics();
+		for (final Worker worker : workers) {
+			stats.merge(worker.stats);
+		}
+		stats.setElapsedNanos(System.nanoTime() - start);
+		final List<ChessMove> pv = getPrincipalVariation();
+		return new SearchResult(pv.isEmpty() ? null : pv.get(0), stats, pv);
+	}
+
+	private static void joinUninterruptibly(final Thread thread)
+	{
+		while (thread.isAlive()) {
+			try {
+				thread.join();
+			}
+			catch (final InterruptedException e) {
+				// Keep waiting, the workers stop promptly
+			}
+		}
+	}
+
+	/**
+	 * Keeps the subtree of the given state if it is the root of the previous
+	 * search or lies at most two plies below it.
+	 */
+	private void reuseOrCreateRoot(final BoardState state)
+	{
+		MctsNode reused = null;
+		if (root != null) {
+			reused = findDescendant(root, rootState, state.getHashing(), 2);
+		}
+		root = reused == null ? new MctsNode(null, 1) : reused;
+		rootState = state;
+		nodeCount.set(root.countNodes());
+	}
+
+	private static MctsNode findDescendant(final MctsNode node, final BoardState nodeState, final long hash, final int maxDepth)
+	{
+		if (nodeState.getHashing() == hash) {
+			return node;
+		}
+		final MctsNode[] children = node.getChildren();
+		if (maxDepth == 0 || children == null) {
+			return null;
+		}
+		for (final MctsNode child : children) {
+			final MctsNode found = findDescendant(child, child.move.evolve(nodeState), hash, maxDepth - 1);
+			if (found != null) {
+				return found;
+			}
+		}
+		return null;
+	}
+
+	private List<ChessMove> getPrincipalVariation()
+	{
+		final List<ChessMove> pv = new ArrayList<>();
+		MctsNode node = root.getMostVisitedChild();
+		while (node != null && node.getVisits() > 0) {
+			pv.add(node.move);
+			node = node.getMostVisitedChild();
+		}
+		return pv;
+	}
+
+	/**
+	 * Grows the shared tree one playout at a time until the search is stopped.
+	 */
+	private final class Worker implements Runnable
+	{
+		private final SearchStatistics stats = new SearchStatistics();
+		private final BoardEvaluator evaluator = evaluatorFactory.get();
+		private final Quiescence quiescence = new Quiescence(evaluator);
+		private final List<MctsNode> path = new ArrayList<>();
+		private final long start;
+
+		Worker(final long start)
+		{
+			this.start = start;
+			quiescence.setStatistics(stats);
+			evaluator.setEvaluationCache(evaluationCache);
+		}
+
+		@Override
+		public void run()
+		{
+			try {
+				while (!stopped) {
+					if (playouts.incrementAndGet() > playoutLimit || System.nanoTime() - start > TimeUnit.MILLISECONDS.toNanos(timeLimitMillis)) {
+						stopped = true;
+						break;
+					}
+					playout();
+					stats.nodes++;
+				}
+				stats.recordEvaluationCache(evaluator.getEvaluationCacheProbeCount(), evaluator.getEvaluationCacheHitCount());
+			}
+			catch (final InterruptedException e) {
+				// Leaves are searched without interruption so we never get here
+				throw new AssertionError(e);
+			}
+		}
+
+		private void playout() throws InterruptedException
+		{
+			path.clear();
+			MctsNode node = root;
+			BoardState state = rootState;
+			double value;
+			while (true) {
+				node.addVirtualLoss();
+				path.add(node);
+				if (path.size() > stats.selDepth) {
+					stats.selDepth = path.size();
+				}
+				final MctsNode[] children = node.getChildren();
+				if (children == null) {
+					value = expandAndEvaluate(node, state);
+					break;
+				}
+				if (children.length == 0) {
+					value = node.getTerminalValue();
+					break;
+				}
+				node = select(node, children);
+				state = node.move.evolve(state);
+			}
+
+			// The value is for the side to move at the leaf, nodes hold it for the mover
+			for (int i = path.size() - 1; i >= 0; i--) {
+				value = -value;
+				path.get(i).backUp(value);
+			}
+		}
+
+		private MctsNode select(final MctsNode parent, final MctsNode[] children)
+		{
+			final double sqrtParentVisits = Math.sqrt(parent.getVisits());
+			final double firstPlayValue = -parent.getMeanValue() - FIRST_PLAY_REDUCTION;
+			MctsNode best = children[0];
+			double bestScore = -Double.MAX_VALUE;
+			for (final MctsNode child : children) {
+				if (child.isCheckmate()) {
+					// A mate is worth more than any averaged value, stop exploring its siblings
+					return child;
+				}
+				final int visits = child.getVisits();
+				final double q = visits == 0 ? firstPlayValue : child.getMeanValue();
+				final double score = q + (C_PUCT * child.prior * sqrtParentVisits) / (1 + visits);
+				if (score > bestScore) {
+					bestScore = score;
+					best = child;
+				}
+			}
+			return best;
+		}
+
+		/**
+		 * Scores a new leaf and, memory permitting, creates its children.
+		 *
+		 * @return the value of the leaf for the side to move there.
+		 */
+		private double expandAndEvaluate(final MctsNode node, final BoardState state) throws InterruptedException
+		{
+			if (state.isTerminal()) {
+				// Only draws by rule, positions where the king can be taken are never expanded
+				node.expand(MctsNode.NO_CHILDREN, 0);
+				return 0;
+			}
+
+			final List<ChessMove> moves = state.getMoves();
+			final List<ChessMove> legalMoves = new ArrayList<>(moves.size());
+			for (final ChessMove mv : moves) {
+				if (!mv.evolve(state).getTerminationState().isWin()) {
+					legalMoves.add(mv);
+				}
+			}
+			if (legalMoves.isEmpty()) {
+				// The board does not always recognise stalemate so we decide here
+				final float terminalValue = state.isInCheck() ? -1 : 0;
+				node.expand(MctsNode.NO_CHILDREN, terminalValue);
+				return terminalValue;
+			}
+
+			final int score = leafEvaluation == LeafEvaluation.QUIESCENCE
+					? quiescence.search(state, Infinity.IC_ALPHA, Infinity.IC_BETA, QUIESCENCE_DEPTH_CAP, false)
+					: evaluator.evaluate(state);
+
+			if (nodeCount.addAndGet(legalMoves.size()) <= maxNodes) {
+				final MctsNode[] children = createChildren(state, legalMoves);
+				if (node.expand(children, 0) != children) {
+					// Another worker expanded the node first and counted its own children
+					nodeCount.addAndGet(-legalMoves.size());
+				}
+			}
+			else {
+				nodeCount.addAndGet(-legalMoves.size());
+			}
+			return Math.tanh(score / VALUE_SCALE);
+		}
+	}
+
+	/**
+	 * Priors are a softmax over a capture and promotion bonus, captures of
+	 * valuable pieces by cheap ones first.
+	 */
+	private static MctsNode[] createChildren(final BoardState state, final List<ChessMove> moves)
+	{
+		final short[] pValues = state.interpolatePieceValues();
+		final Side enemy = state.getEnemySide();
+		final long enemyLocs = state.getSideLocations(enemy);
+		final double[] weights = new double[moves.size()];
+		double total = 0;
+		for (int i = 0; i < weights.length; i++) {
+			final ChessMove mv = moves.get(i);
+			double bonus = 0;
+			if (mv instanceof PromotionMove) {
+				bonus = 2;
+			}
+			else if (mv instanceof EnPassantMove) {
+				bonus = 1;
+			}
+			else if ((mv.getTargetBB() & enemyLocs) != 0) {
+				final int victim = pValues[state.getPieceAt(mv.getTarget(), enemy).index() % 6];
+				final int attacker = pValues[state.getPieceAt(mv.getStart(), state.getFriendlySide()).index() % 6];
+				bonus = 1 + Math.min(2, (double) victim / attacker);
+			}
+			weights[i] = Math.exp(bonus);
+			total += weights[i];
+		}
+		final MctsNode[] children = new MctsNode[weights.length];
+		for (int i = 0; i < children.length; i++) {
+			children[i] = new MctsNode(moves.get(i), (float) (weights[i] / total));
+		}
+		return children;
+	}
+
+	public void setThreadCount(final int threadCount)
+	{
+		this.threadCount = Math.max(1, threadCount);
+	}
+
+	/**
+	 * Set the memory the tree may use, the tree kept from the previous search
+	 * counts towards it.
+	 *
+	 * @param megabytes
+	 */
+	public void setMemoryLimit(final int megabytes)
+	{
+		this.maxNodes = Math.max(1, ((long) megabytes << 20) / ESTIMATED_NODE_BYTES);
+	}
+
+	public void setPlayoutLimit(final long playoutLimit)
+	{
+		this.playoutLimit = playoutLimit;
+	}
+
+	public void setTimeLimit(final long millis)
+	{
+		this.timeLimitMillis = millis;
+	}
+
+	/**
+	 * @param evaluatorFactory
+	 *            creates the evaluator of each worker from the next search on,
+	 *            it must return a new instance on every call.
+	 */
+	public void setEvaluatorFactory(final Supplier<BoardEvaluator> evaluatorFactory)
+	{
+		this.evaluatorFactory = evaluatorFactory;
+	}
+
+	public void setLeafEvaluation(final LeafEvaluation leafEvaluation)
+	{
+		this.leafEvaluation = leafEvaluation;
+	}
+
+	/**
+	 * Forget the tree kept from the previous search.
+	 */
+	public void clearTree()
+	{
+		root = null;
+		rootState = null;
+	}
+
+	/**
+	 * Tree search has no depth, this is ignored. Use the playout or time limit.
+	 */
+	@Override
+	public void setSearchDepth(final int depth)
+	{
+	}
+
+	/**
+	 * Every worker needs its own evaluator so this is ignored, use
+	 * {@link #setEvaluatorFactory(Supplier)} instead.
+	 */
+	@Override
+	public void setEvaluator(final BoardEvaluator evaluator)
+	{
+	}
+
+	@Override
+	public String getDescriptor()
+	{
+		return DESCRIPTOR;
+	}
+}
@@ -23,6 +23,32 @@ public interface MoveCalculator
 	 */
 	ChessMove getBestMoveFrom(BoardState root);
 
+	/**
+	 * Like {@link #getBestMoveFrom(BoardState)} but also returns the statistics of
+	 * the search. Implementations which do not collect any return empty ones.
+	 *
+	 * @param root
+	 * @return
+	 */
+	default SearchResult search(final BoardState root)
+	{
+		return new SearchResult(getBestMoveFrom(root), new SearchStatistics());
+	}
+
+	/**
+	 * Register a listener to be told about the progress of subsequent searches.
+	 * Calculators which do not report progress ignore it.
+	 *
+	 * @param listener
+	 */
+	default void addSearchListener(final SearchListener listener)
+	{
+	}
+
+	default void removeSearchListener(final SearchListener listener)
+	{
+	}
+
 	/**
 	 * Set the search depth.
 	 *
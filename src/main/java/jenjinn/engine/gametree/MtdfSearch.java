@@ -0,0 +1,45 @@
+package jenjinn.engine.gametree;
+
+import jenjinn.engine.boardstate.BoardState;
+import jenjinn.engine.evaluation.BoardEvaluator;
+
+/**
+ * A {@link TTAlphaBetaV1_2} whose iterations are driven by MTD(f) rather than
+ * full window root searches, see {@link TTAlphaBetaV1_2#searchMtdf(BoardState)}.
+ * Node for node it uses the same negamax, quiescence search and transposition
+ * table, so the two can be compared directly.
+ *
+ * @author ThomasB
+ */
+public class MtdfSearch extends TTAlphaBetaV1_2
+{
+	private static final String DESCRIPTOR = "[MTD(f) - tt impl v1_2]";
+
+	public MtdfSearch(final BoardEvaluator eval)
+	{
+		super(eval);
+	}
+
+	/**
+	 * @param eval
+	 * @param tableSize
+	 *            the base two logarithm of the number of transposition table
+	 *            entries.
+	 */
+	public MtdfSearch(final BoardEvaluator eval, final int tableSize)
+	{
+		super(eval, tableSize);
+	}
+
+	@Override
+	public SearchResult search(final BoardState root)
+	{
+		return searchMtdf(root);
+	}
+
+	@Override
+	public String getDescriptor()
+	{
+		return DESCRIPTOR;
+	}
+}
@@ -0,0 +1,52 @@
+package jenjinn.engine.gametree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import jenjinn.engine.moves.ChessMove;
+
+/**
+ * One line of a multi-PV search, i.e. a root move together with its score and
+ * the principal variation starting with it.
+ *
+ * @author ThomasB
+ */
+public final class MultiPvLine
+{
+	private final ChessMove move;
+	private final int score;
+	private final List<ChessMove> principalVariation;
+
+	public MultiPvLine(final ChessMove move, final int score, final List<ChessMove> principalVariation)
+	{
+		this.move = move;
+		this.score = score;
+		this.principalVariation = Collections.unmodifiableList(new ArrayList<>(principalVariation));
+	}
+
+	public ChessMove getMove()
+	{
+		return move;
+	}
+
+	/**
+	 * @return the score of the move from the perspective of the side to move at
+	 *         the root.
+	 */
+	public int getScore()
+	{
+		return score;
+	}
+
+	public List<ChessMove> getPrincipalVariation()
+	{
+		return principalVariation;
+	}
+
+	@Override
+	public String toString()
+	{
+		return move + " " + score + " " + principalVariation;
+	}
+}
@@ -0,0 +1,366 @@
+package jenjinn.engine.gametree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import jenjinn.engine.boardstate.BoardState;
+import jenjinn.engine.enums.TerminationType;
+import jenjinn.engine.evaluation.BoardEvaluator;
+import jenjinn.engine.moves.ChessMove;
+
+/**
+ * A mate solver using depth first proof number search (df-pn). Instead of
+ * scores every node carries a proof number, the least number of leaves which
+ * must be proven to prove the node, and a disproof number. The search always
+ * expands the most proving node, descending only while the numbers of a node
+ * stay below thresholds derived from its siblings, which concentrates the work
+ * on the narrow forcing lines mates are made of.
+ *
+ * We use the negamax form: phi is the proof number of a node from the
+ * perspective of the side to move there and delta its disproof number. The
+ * side to move at the root is the attacker. Moves are pseudo legal so a move
+ * leaving the mover's king en prise leads to a position won by the other side,
+ * a defender with only such moves is mated unless it is not in check.
+ *
+ * The search depth is the longest mate in moves we look for. The remaining
+ * plies are mixed into the table key, so results for the same position at
+ * different distances from the horizon never mix and the path can never
+ * cycle through the table. Draws by repetition depend on the path taken
+ * though, the table ignores that.
+ *
+ * @author ThomasB
+ */
+public class ProofNumberSearch implements MoveCalculator
+{
+	private static final String DESCRIPTOR = "[Depth first proof number search]";
+
+	/** Proof and disproof numbers of solved nodes. */
+	static final int INFINITY = 1 << 30;
+
+	private static final int DEFAULT_TABLE_MB = 16;
+
+	private static final int DEFAULT_MATE_MOVES = 5;
+
+	private static final long REMAINING_KEY_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+	private final ProofTable table;
+
+	private int maxMateMoves = DEFAULT_MATE_MOVES;
+
+	private long nodeLimit = Long.MAX_VALUE;
+
+	private SearchStatistics stats = new SearchStatistics();
+
+	/** Mate distance in plies of the node most recently solved or looked up. */
+	private short lastDistance;
+
+	public ProofNumberSearch()
+	{
+		this(DEFAULT_TABLE_MB);
+	}
+
+	/**
+	 * @param tableMegabytes
+	 *            the memory the transposition table may use.
+	 */
+	public ProofNumberSearch(final int tableMegabytes)
+	{
+		this.table = ProofTable.create(tableMegabytes);
+	}
+
+	/**
+	 * Searches for a forced mate by the side to move. The search ends early,
+	 * with an unknown result, if the node limit is reached or the thread is
+	 * interrupted.
+	 *
+	 * @param root
+	 * @return
+	 */
+	public ProofResult prove(final BoardState root)
+	{
+		stats = new SearchStatistics();
+		final long start = System.nanoTime();
+		// A position where the king can already be taken is not one we can mate in
+		ProofResult.Status status = root.isTerminal() ? ProofResult.Status.DISPROVEN : ProofResult.Status.UNKNOWN;
+		List<ChessMove> matingLine = Collections.emptyList();
+
+		/*
+		 * df-pn stops at the first proof it finds, so we deepen the mate length one
+		 * move at a time to make sure the proof is of the quickest mate. Every
+		 * iteration is cheap next to the one after it.
+		 */
+		try {
+			for (int mateMoves = 1; mateMoves <= maxMateMoves && !root.isTerminal(); mateMoves++) {
+				final int remaining = 2 * mateMoves - 1;
+				final long values = mid(root, remaining, INFINITY, INFINITY);
+				stats.recordIteration(mateMoves);
+				if (getPhi(values) == 0) {
+					status = ProofResult.Status.PROVEN;
+					matingLine = extractMatingLine(root, remaining);
+					break;
+				}
+				status = ProofResult.Status.DISPROVEN;
+			}
+		}
+		catch (final InterruptedException e) {
+			// Out of nodes or time, the root stays unknown
+			status = ProofResult.Status.UNKNOWN;
+		}
+		stats.setElapsedNanos(System.nanoTime() - start);
+		return new ProofResult(status, matingLine, stats);
+	}
+
+	/**
+	 * The multiple iterative deepening step of df-pn. Expands the given node
+	 * until its phi reaches thPhi or its delta reaches thDelta.
+	 *
+	 * @param node
+	 *            a non terminal position.
+	 * @param remaining
+	 *            plies left before the horizon, odd where the attacker moves.
+	 * @return the proof numbers of the node packed by {@link #pack(int, int)}.
+	 */
+	private long mid(final BoardState node, final int remaining, final int thPhi, final int thDelta) throws InterruptedException
+	{
+		if (Thread.currentThread().isInterrupted() || stats.nodes >= nodeLimit) {
+			throw new InterruptedException();
+		}
+		stats.nodes++;
+
+		final boolean attacker = (remaining & 1) == 1;
+		final List<ChessMove> moves = node.getMoves();
+		final int moveCount = moves.size();
+		final BoardState[] children = new BoardState[moveCount];
+		final int[] phis = new int[moveCount], deltas = new int[moveCount];
+		final short[] distances = new short[moveCount];
+
+		boolean hasLegalMove = false;
+		for (int i = 0; i < moveCount; i++) {
+			children[i] = moves.get(i).evolve(node);
+			final long values = lookUp(children[i], remaining - 1);
+			phis[i] = getPhi(values);
+			deltas[i] = getDelta(values);
+			distances[i] = lastDistance;
+			hasLegalMove |= !children[i].getTerminationState().isWin();
+		}
+
+		if (!attacker && !hasLegalMove && !node.isInCheck()) {
+			// The board only recognises stalemates while plenty of material is left
+			table.store(getKey(node, remaining), 0, INFINITY, ProofTable.NO_DISTANCE);
+			lastDistance = ProofTable.NO_DISTANCE;
+			return pack(0, INFINITY);
+		}
+
+		while (true) {
+			// phi is the smallest child delta, delta the sum of the child phis
+			int phi = INFINITY, secondDelta = INFINITY, delta = 0, best = -1;
+			for (int i = 0; i < moveCount; i++) {
+				if (deltas[i] < phi) {
+					secondDelta = phi;
+					phi = deltas[i];
+					best = i;
+				}
+				else if (deltas[i] < secondDelta) {
+					secondDelta = deltas[i];
+				}
+				delta = (int) Math.min(INFINITY, (long) delta + phis[i]);
+			}
+
+			if (phi >= thPhi || delta >= thDelta) {
+				final short distance = (attacker ? phi : delta) == 0 ? getMateDistance(attacker, deltas, distances) : ProofTable.NO_DISTANCE;
+				table.store(getKey(node, remaining), phi, delta, distance);
+				lastDistance = distance;
+				return pack(phi, delta);
+			}
+
+			final int childThPhi = thDelta >= INFINITY ? INFINITY : thDelta - delta + phis[best];
+			final int childThDelta = Math.min(thPhi, secondDelta >= INFINITY ? INFINITY : secondDelta + 1);
+			final long values = mid(children[best], remaining - 1, childThPhi, childThDelta);
+			phis[best] = getPhi(values);
+			deltas[best] = getDelta(values);
+			distances[best] = lastDistance;
+		}
+	}
+
+	/**
+	 * @return the distance to mate of a node proven for the attacker given the
+	 *         numbers of its children. The attacker takes the quickest proven
+	 *         mate, the defender the slowest, moves leaving the defender's king en
+	 *         prise do not count.
+	 */
+	private static short getMateDistance(final boolean attacker, final int[] deltas, final short[] distances)
+	{
+		int distance = attacker ? Short.MAX_VALUE : -1;
+		for (int i = 0; i < deltas.length; i++) {
+			if (attacker && deltas[i] == 0) {
+				distance = Math.min(distance, distances[i]);
+			}
+			else if (!attacker) {
+				distance = Math.max(distance, distances[i]);
+			}
+		}
+		return (short) (distance + 1);
+	}
+
+	/**
+	 * @return the proof numbers of the given child, either known from the rules
+	 *         or the table, setting {@link #lastDistance}. Unknown nodes start at
+	 *         one and one.
+	 */
+	private long lookUp(final BoardState node, final int remaining)
+	{
+		lastDistance = ProofTable.NO_DISTANCE;
+		final boolean attacker = (remaining & 1) == 1;
+		final TerminationType termination = node.getTerminationState();
+		if (termination.isWin()) {
+			// The side to move takes the king, as attacker that is mate
+			return pack(0, INFINITY);
+		}
+		if (termination.isTerminal() || (attacker && remaining <= 0)) {
+			// Draws and running out of moves are failures of the attacker
+			return attacker ? pack(INFINITY, 0) : pack(0, INFINITY);
+		}
+		final int slot = table.find(getKey(node, remaining));
+		if (slot < 0) {
+			return pack(1, 1);
+		}
+		lastDistance = table.getDistance(slot);
+		return pack(table.getPhi(slot), table.getDelta(slot));
+	}
+
+	/**
+	 * Follows the proven mate from the root, the attacker playing the quickest
+	 * mate and the defender the slowest.
+	 */
+	private List<ChessMove> extractMatingLine(final BoardState root, final int remaining) throws InterruptedException
+	{
+		final List<ChessMove> line = new ArrayList<>();
+		BoardState node = root;
+		for (int r = remaining; r > 0; r--) {
+			// Entries may have been lost from the table, if so we solve them again
+			final boolean attacker = (r & 1) == 1;
+			int bestIndex = getLineMoveIndex(node, r, attacker, false);
+			if (bestIndex < 0 && attacker) {
+				bestIndex = getLineMoveIndex(node, r, attacker, true);
+			}
+			if (bestIndex < 0) {
+				// The defender has no legal move left, it is mate
+				break;
+			}
+			final ChessMove mv = node.getMoves().get(bestIndex);
+			line.add(mv);
+			node = mv.evolve(node);
+		}
+		return line;
+	}
+
+	/**
+	 * @param resolveAll
+	 *            whether children the table does not prove should be solved, the
+	 *            defender always solves them as it must find the slowest mate.
+	 * @return the index of the move continuing the mating line or -1 if there is
+	 *         none.
+	 */
+	private int getLineMoveIndex(final BoardState node, final int remaining, final boolean attacker, final boolean resolveAll) throws InterruptedException
+	{
+		final List<ChessMove> moves = node.getMoves();
+		int bestIndex = -1, bestDistance = attacker ? Integer.MAX_VALUE : -1;
+		for (int i = 0; i < moves.size(); i++) {
+			final BoardState child = moves.get(i).evolve(node);
+			if (child.isTerminal()) {
+				// Only mates or illegal moves of the defender can be left
+				continue;
+			}
+			long values = lookUp(child, remaining - 1);
+			if ((resolveAll || !attacker) && getPhi(values) != 0 && getDelta(values) != 0) {
+				values = mid(child, remaining - 1, INFINITY, INFINITY);
+			}
+			// Proven for the attacker means solved for the side to move at the child
+			final boolean proven = (attacker ? getDelta(values) : getPhi(values)) == 0;
+			if (proven && (attacker ? lastDistance < bestDistance : lastDistance > bestDistance)) {
+				bestIndex = i;
+				bestDistance = lastDistance;
+			}
+		}
+		return bestIndex;
+	}
+
+	private static long getKey(final BoardState state, final int remaining)
+	{
+		return state.getHashing() ^ ((remaining + 1) * REMAINING_KEY_MULTIPLIER);
+	}
+
+	private static long pack(final int phi, final int delta)
+	{
+		return ((long) phi << 32) | delta;
+	}
+
+	private static int getPhi(final long values)
+	{
+		return (int) (values >>> 32);
+	}
+
+	private static int getDelta(final long values)
+	{
+		return (int) values;
+	}
+
+	/**
+	 * @return the first move of a proven mate or null if none was found.
+	 */
+	@Override
+	public ChessMove getBestMoveFrom(final BoardState root)
+	{
+		final List<ChessMove> line = prove(root).getMatingLine();
+		return line.isEmpty() ? null : line.get(0);
+	}
+
+	@Override
+	public SearchResult search(final BoardState root)
+	{
+		final ProofResult result = prove(root);
+		final List<ChessMove> line = result.getMatingLine();
+		return new SearchResult(line.isEmpty() ? null : line.get(0), result.getStatistics(), line);
+	}
+
+	/**
+	 * Set the length in moves of the longest mate we look for.
+	 *
+	 * @param depth
+	 */
+	@Override
+	public void setSearchDepth(final int depth)
+	{
+		this.maxMateMoves = depth;
+	}
+
+	/**
+	 * Limit the number of nodes subsequent searches may expand.
+	 *
+	 * @param nodeLimit
+	 */
+	public void setNodeLimit(final long nodeLimit)
+	{
+		this.nodeLimit = nodeLimit;
+	}
+
+	/**
+	 * Proof number search needs no evaluation so this is ignored.
+	 */
+	@Override
+	public void setEvaluator(final BoardEvaluator evaluator)
+	{
+	}
+
+	public void clearTable()
+	{
+		table.clear();
+	}
+
+	@Override
+	public String getDescriptor()
+	{
+		return DESCRIPTOR;
+	}
+}
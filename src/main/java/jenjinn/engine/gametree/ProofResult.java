@@ -0,0 +1,76 @@
+package jenjinn.engine.gametree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import jenjinn.engine.moves.ChessMove;
+
+/**
+ * The outcome of a {@link ProofNumberSearch}, i.e. whether the side to move at
+ * the root can force mate within the search depth and, if so, the mating line.
+ *
+ * @author ThomasB
+ */
+public final class ProofResult
+{
+	public enum Status
+	{
+		/** A forced mate was found. */
+		PROVEN,
+		/** There is no forced mate within the search depth. */
+		DISPROVEN,
+		/** The node or time limit ran out before the root was solved. */
+		UNKNOWN;
+	}
+
+	private final Status status;
+	private final List<ChessMove> matingLine;
+	private final SearchStatistics statistics;
+
+	ProofResult(final Status status, final List<ChessMove> matingLine, final SearchStatistics statistics)
+	{
+		this.status = status;
+		this.matingLine = Collections.unmodifiableList(new ArrayList<>(matingLine));
+		this.statistics = statistics;
+	}
+
+	public Status getStatus()
+	{
+		return status;
+	}
+
+	public boolean isProven()
+	{
+		return status == Status.PROVEN;
+	}
+
+	/**
+	 * @return the moves of both sides leading to mate, the defence being the one
+	 *         delaying it longest. Empty unless the mate was proven.
+	 */
+	public List<ChessMove> getMatingLine()
+	{
+		return matingLine;
+	}
+
+	/**
+	 * @return the number of moves the attacker needs to mate or 0 unless the mate
+	 *         was proven.
+	 */
+	public int getMateInMoves()
+	{
+		return (matingLine.size() + 1) / 2;
+	}
+
+	public SearchStatistics getStatistics()
+	{
+		return statistics;
+	}
+
+	@Override
+	public String toString()
+	{
+		return status + (isProven() ? " mate in " + getMateInMoves() + " " + matingLine : "");
+	}
+}
@@ -0,0 +1,90 @@
+package jenjinn.engine.gametree;
+
+import java.util.Arrays;
+
+/**
+ * The transposition table of the {@link ProofNumberSearch}. Entries are held
+ * in parallel primitive arrays so that a table of a given size costs exactly
+ * the memory we expect. A slot holds the proof and disproof numbers of a node
+ * from the perspective of the side to move there and, once the node is proven
+ * to be a mate, its distance in plies to the mated position.
+ *
+ * Solved entries are worth far more than unsolved ones so we never overwrite
+ * the former with the latter.
+ *
+ * @author ThomasB
+ */
+final class ProofTable
+{
+	/** The key, two proof numbers and the mate distance of an entry. */
+	private static final int ENTRY_BYTES = 8 + 4 + 4 + 2;
+
+	/** Marks an entry which is not a proven mate. */
+	static final short NO_DISTANCE = -1;
+
+	private final long[] keys;
+	private final int[] phis, deltas;
+	private final short[] distances;
+	private final int mask;
+
+	private ProofTable(final int powerSize)
+	{
+		final int size = 1 << powerSize;
+		mask = size - 1;
+		keys = new long[size];
+		phis = new int[size];
+		deltas = new int[size];
+		distances = new short[size];
+	}
+
+	/**
+	 * @param megabytes
+	 * @return the largest table fitting in the given number of megabytes.
+	 */
+	static ProofTable create(final int megabytes)
+	{
+		final long entries = Math.max(1, ((long) megabytes << 20) / ENTRY_BYTES);
+		return new ProofTable(Math.min(30, 63 - Long.numberOfLeadingZeros(entries)));
+	}
+
+	/**
+	 * @return the slot holding the given key or -1 if it is absent.
+	 */
+	int find(final long key)
+	{
+		final int slot = (int) (key & mask);
+		return keys[slot] == key && key != 0 ? slot : -1;
+	}
+
+	int getPhi(final int slot)
+	{
+		return phis[slot];
+	}
+
+	int getDelta(final int slot)
+	{
+		return deltas[slot];
+	}
+
+	short getDistance(final int slot)
+	{
+		return distances[slot];
+	}
+
+	void store(final long key, final int phi, final int delta, final short distance)
+	{
+		final int slot = (int) (key & mask);
+		final boolean solved = phi == 0 || delta == 0, occupiedBySolved = keys[slot] != 0 && (phis[slot] == 0 || deltas[slot] == 0);
+		if (solved || keys[slot] == key || !occupiedBySolved) {
+			keys[slot] = key;
+			phis[slot] = phi;
+			deltas[slot] = delta;
+			distances[slot] = distance;
+		}
+	}
+
+	void clear()
+	{
+		Arrays.fill(keys, 0L);
+	}
+}
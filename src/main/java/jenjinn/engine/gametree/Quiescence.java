@@ -1,8 +1,10 @@
 package jenjinn.engine.gametree;
 
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 
+import jenjinn.engine.bitbase.BitbaseResult;
+import jenjinn.engine.bitbase.Bitbases;
 import jenjinn.engine.bitboarddatabase.Bitboards;
 import jenjinn.engine.boardstate.BoardState;
 import jenjinn.engine.enums.Side;
@@ -18,43 +20,96 @@ import jenjinn.engine.moves.EnPassantMove;
  */
 public class Quiescence
 {
-	/* Interesting to track how deep quiescence probes. */
-	static int maxDepth = 0, currentDepth = 0;
-
 	/** Delta pruning safety margin. */
 	private static final int DP_SAFETY_MARGIN = 200;
 
+	/** Flag marking captures which need a static exchange evaluation. */
+	private static final int REQUIRES_SEE = 1;
+
+	/** Holds no state so is shared by every search. */
+	private static final StaticExchangeEvaluator SEE = new StaticExchangeEvaluator();
+
 	private final BoardEvaluator evaluator;
-	private final StaticExchangeEvaluator see = new StaticExchangeEvaluator();
 
-	public short search(final BoardState root, int alpha, final int beta, int depth, final boolean interruptionAllowed) throws InterruptedException
+	/**
+	 * The transposition table shared with the main search, may be null in which
+	 * case we search without one.
+	 */
+	private final TranspositionTable tt;
+
+	private Bitbases bitbases = Bitbases.getDefault();
+
+	/** Statistics of the search this quiescence search is currently part of. */
+	private SearchStatistics stats = new SearchStatistics();
+
+	public short search(final BoardState root, final int alpha, final int beta, final int depth, final boolean interruptionAllowed) throws InterruptedException
+	{
+		return search(root, alpha, beta, depth, 0, interruptionAllowed);
+	}
+
+	/**
+	 * @param ply
+	 *            the distance of this node from the root of the enclosing search.
+	 */
+	short search(final BoardState root, int alpha, final int beta, final int depth, final int ply, final boolean interruptionAllowed) throws InterruptedException
 	{
 		if (interruptionAllowed && Thread.currentThread().isInterrupted()) {
 			throw new InterruptedException();
 		}
-
-		currentDepth++;
-		if (currentDepth > maxDepth) {
-			maxDepth = currentDepth;
-			System.out.println("Newmax qdepth: " + maxDepth);
+		stats.qnodes++;
+		if (ply > stats.selDepth) {
+			stats.selDepth = ply;
 		}
 
 		if (root.isTerminal()) {
-			currentDepth--;
 			assert root.getTerminationState().matches(root.getFriendlySide());
-			return (short) (root.getFriendlySide().orientation() * root.getTerminationState().value);
+			return (short) (root.getTerminationState().isWin() ? MateScore.winAt(ply) : 0);
+		}
+
+		if (evaluator.isMaterialDraw(root)) {
+			return (short) Math.max(alpha, Math.min(beta, 0));
 		}
 
-		final short standPat = evaluator.evaluate(root);
+		final BitbaseResult bitbaseResult = bitbases.probe(root);
+		if (bitbaseResult != null) {
+			stats.bitbaseHits++;
+			return (short) Math.max(alpha, Math.min(beta, Bitbases.getScore(bitbaseResult, evaluator.evaluate(root))));
+		}
+
+		final long rootHash = root.getHashing();
+		TableEntry ttEntry = null;
+		if (tt != null) {
+			stats.ttProbes++;
+			ttEntry = tt.get(rootHash);
+		}
+		int hintedMoveIndex = -1;
+		short standPat = TableEntry.NO_STATIC_EVAL;
+
+		if (ttEntry != null && ttEntry.getPositionHash() == rootHash) {
+			stats.ttHits++;
+			// Every stored depth is at least the quiescence depth so the bounds apply
+			final int ttScore = MateScore.fromTable(ttEntry.getScore(), ply);
+			if (ttEntry.getType() == TreeNodeType.PV || (ttEntry.getType() == TreeNodeType.CUT && ttScore >= beta) || (ttEntry.getType() == TreeNodeType.ALL && ttScore <= alpha)) {
+				stats.ttCutoffs++;
+				return (short) Math.max(alpha, Math.min(beta, ttScore));
+			}
+			if (ttEntry.isQuiescenceEntry()) {
+				hintedMoveIndex = ttEntry.getMoveIndex();
+			}
+			standPat = ttEntry.getStaticEval();
+		}
+
+		if (standPat == TableEntry.NO_STATIC_EVAL) {
+			standPat = evaluator.evaluate(root);
+		}
 
 		if (standPat >= beta) {
 			assert (short) beta == beta;
-			currentDepth--;
+			store(TableEntry.generateCUT(rootHash, MateScore.toTable(beta, ply), -1, TableEntry.QUIESCENCE_DEPTH, standPat), ttEntry);
 			return (short) beta;
 		}
 
 		if (depth == 0) {
-			currentDepth--;
 			return (short) Math.max(standPat, alpha);
 		}
 
@@ -65,56 +120,132 @@ public class Quiescence
 
 		if (standPat < alpha - bigDelta) {
 			// If we are here there is no way we will increase alpha so leave now
-			currentDepth--;
 			return (short) alpha;
 		}
 
+		final int alphaOrig = alpha;
 		if (alpha < standPat) {
 			alpha = standPat;
 		}
 
-		final List<ChessMove> attackMoves = getMovesToProbe(root, pValues, standPat, alpha);
+		final List<ChessMove> attackMoves = root.getAttackMoves();
+		final int[] probeOrder = getProbeOrder(root, attackMoves, pValues, standPat, alpha);
+		promoteHintedMove(probeOrder, hintedMoveIndex);
+		int bestMoveIndex = -1;
+
+		for (final int probeCode : probeOrder) {
+			final int moveIndex = probeCode >>> 1;
+			final ChessMove mv = attackMoves.get(moveIndex);
+
+			// Lazy SEE, only paid for captures we are actually about to search
+			if ((probeCode & REQUIRES_SEE) != 0) {
+				stats.seeCalls++;
+				if (!SEE.isGoodExchange(mv.getTarget(), mv.getStart(), root, pValues)) {
+					continue;
+				}
+			}
 
-		for (final ChessMove mv : attackMoves) {
 			final BoardState newState = mv.evolve(root);
 
-			final int score = -search(newState, -beta, -alpha, depth - 1, interruptionAllowed);
+			final int score = -search(newState, -beta, -alpha, depth - 1, ply + 1, interruptionAllowed);
 
 			if (score >= beta) {
 				assert (short) beta == beta;
-				currentDepth--;
+				store(TableEntry.generateCUT(rootHash, MateScore.toTable(beta, ply), moveIndex, TableEntry.QUIESCENCE_DEPTH, standPat), ttEntry);
 				return (short) beta;
 			}
 			if (score > alpha) {
 				alpha = score;
+				bestMoveIndex = moveIndex;
 			}
 		}
-		currentDepth--;
 		assert (short) alpha == alpha;
+		if (alpha <= alphaOrig) {
+			store(TableEntry.generateALL(rootHash, MateScore.toTable(alpha, ply), TableEntry.QUIESCENCE_DEPTH, standPat), ttEntry);
+		}
+		else {
+			store(TableEntry.generatePV(rootHash, MateScore.toTable(alpha, ply), bestMoveIndex, TableEntry.QUIESCENCE_DEPTH, standPat), ttEntry);
+		}
 		return (short) alpha;
 	}
 
-	private List<ChessMove> getMovesToProbe(final BoardState state, final short[] pValues, final int standPat, final int alpha)
+	/**
+	 * Quiescence results are cheap to recalculate compared with those of the main
+	 * search so we never overwrite a main search entry with one.
+	 */
+	private void store(final TableEntry newEntry, final TableEntry oldEntry)
 	{
-		final List<ChessMove> mtp = new ArrayList<>(), attMvs = state.getAttackMoves();
+		if (tt != null && (oldEntry == null || oldEntry.isQuiescenceEntry())) {
+			tt.set(newEntry);
+		}
+	}
 
-		for (final ChessMove mv : attMvs) {
-			if (mv instanceof EnPassantMove) {
-				// Delta prune
-				if (standPat >= alpha - (pValues[0] + DP_SAFETY_MARGIN)) {
-					mtp.add(mv);
+	/**
+	 * Moves the capture recommended by the transposition table, if it survived
+	 * pruning, to the front of the probe order.
+	 */
+	private void promoteHintedMove(final int[] probeOrder, final int hintedMoveIndex)
+	{
+		if (hintedMoveIndex > -1) {
+			for (int i = 0; i < probeOrder.length; i++) {
+				if ((probeOrder[i] >>> 1) == hintedMoveIndex) {
+					final int hinted = probeOrder[i];
+					System.arraycopy(probeOrder, 0, probeOrder, 1, i);
+					probeOrder[0] = hinted;
+					return;
 				}
+			}
+		}
+	}
+
+	/**
+	 * Delta prunes the given captures and orders the survivors by MVV-LVA, i.e.
+	 * most valuable victim first and then least valuable attacker first. Each
+	 * entry of the returned array encodes the index of the move in the list
+	 * shifted left by one with the lowest bit flagging whether the capture still
+	 * needs a static exchange evaluation before it is searched. Captures of a
+	 * piece at least as valuable as the attacker can never lose material so they
+	 * never need one.
+	 */
+	private int[] getProbeOrder(final BoardState state, final List<ChessMove> attMvs, final short[] pValues, final int standPat, final int alpha)
+	{
+		final int moveCount = attMvs.size();
+		final int[] codes = new int[moveCount], scores = new int[moveCount];
+		final Side friendly = state.getFriendlySide(), enemy = friendly.otherSide();
+		int probeCount = 0;
+
+		for (int i = 0; i < moveCount; i++) {
+			final ChessMove mv = attMvs.get(i);
+			final int targVal, attVal;
+
+			if (mv instanceof EnPassantMove) {
+				targVal = pValues[0];
+				attVal = pValues[0];
+			}
+			else {
+				targVal = pValues[state.getPieceAt(mv.getTarget(), enemy).index() % 6];
+				attVal = pValues[state.getPieceAt(mv.getStart(), friendly).index() % 6];
+			}
+
+			// Delta prune
+			if (standPat < alpha - (targVal + DP_SAFETY_MARGIN)) {
 				continue;
 			}
 
-			final int targVal = pValues[state.getPieceAt(mv.getTarget(), state.getEnemySide()).index() % 6];
+			final int code = (i << 1) | (targVal >= attVal ? 0 : REQUIRES_SEE);
+			final int score = (targVal << 16) - attVal;
 
-			if (standPat >= alpha - (targVal + DP_SAFETY_MARGIN) // Delta prune
-					&& see.isGoodExchange(mv.getTarget(), mv.getStart(), state, pValues)) {
-				mtp.add(mv);
+			// Stable insertion so that equal scores keep generation order
+			int j = probeCount++;
+			while (j > 0 && scores[j - 1] < score) {
+				scores[j] = scores[j - 1];
+				codes[j] = codes[j - 1];
+				j--;
 			}
+			scores[j] = score;
+			codes[j] = code;
 		}
-		return mtp;
+		return probeCount == moveCount ? codes : Arrays.copyOf(codes, probeCount);
 	}
 
 	private boolean isPromotingPawn(final BoardState state)
@@ -136,12 +267,36 @@ public class Quiescence
 	 *
 	 */
 	public Quiescence(final BoardEvaluator evaluator)
+	{
+		this(evaluator, null);
+	}
+
+	/**
+	 * @param evaluator
+	 * @param tt
+	 *            the transposition table shared with the main search.
+	 */
+	Quiescence(final BoardEvaluator evaluator, final TranspositionTable tt)
 	{
 		this.evaluator = evaluator;
+		this.tt = tt;
 	}
 
 	public BoardEvaluator getEvaluator()
 	{
 		return evaluator;
 	}
+
+	void setBitbases(final Bitbases bitbases)
+	{
+		this.bitbases = bitbases;
+	}
+
+	/**
+	 * Set the statistics object subsequent searches record their work in.
+	 */
+	void setStatistics(final SearchStatistics stats)
+	{
+		this.stats = stats;
+	}
 }
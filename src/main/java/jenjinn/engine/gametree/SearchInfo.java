@@ -0,0 +1,122 @@
+package jenjinn.engine.gametree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import jenjinn.engine.moves.ChessMove;
+
+/**
+ * An immutable snapshot of the progress of a search as reported to
+ * {@link SearchListener} instances.
+ *
+ * @author ThomasB
+ */
+public final class SearchInfo
+{
+	private final int depth, selDepth, score, hashfull;
+	private final List<ChessMove> principalVariation;
+	private final long nodes, elapsedNanos;
+
+	/**
+	 * @param depth
+	 *            the depth of the iteration the report comes from.
+	 * @param selDepth
+	 *            the greatest distance from the root reached so far.
+	 * @param score
+	 *            the score of the first move of the principal variation in
+	 *            evaluation units from the perspective of the side to move.
+	 * @param principalVariation
+	 * @param nodes
+	 *            the number of main and quiescence nodes searched so far.
+	 * @param elapsedNanos
+	 *            the time since the search started.
+	 * @param hashfull
+	 *            the occupancy of the transposition table in permille.
+	 */
+	public SearchInfo(final int depth, final int selDepth, final int score, final List<ChessMove> principalVariation, final long nodes, final long elapsedNanos,
+			final int hashfull)
+	{
+		this.depth = depth;
+		this.selDepth = selDepth;
+		this.score = score;
+		this.principalVariation = Collections.unmodifiableList(new ArrayList<>(principalVariation));
+		this.nodes = nodes;
+		this.elapsedNanos = elapsedNanos;
+		this.hashfull = hashfull;
+	}
+
+	public int getDepth()
+	{
+		return depth;
+	}
+
+	public int getSelDepth()
+	{
+		return selDepth;
+	}
+
+	/**
+	 * @return the raw score in evaluation units, which are half centipawns.
+	 */
+	public int getScore()
+	{
+		return score;
+	}
+
+	public boolean isMateScore()
+	{
+		return MateScore.isMate(score);
+	}
+
+	/**
+	 * @return the score in centipawns, only meaningful if this is not a mate
+	 *         score.
+	 */
+	public int getScoreCentipawns()
+	{
+		return score / 2;
+	}
+
+	/**
+	 * @return the number of moves until mate, positive if the side to move mates
+	 *         and negative if it gets mated. Only meaningful for mate scores.
+	 */
+	public int getMateDistance()
+	{
+		return MateScore.toMoves(score);
+	}
+
+	public List<ChessMove> getPrincipalVariation()
+	{
+		return principalVariation;
+	}
+
+	public long getNodes()
+	{
+		return nodes;
+	}
+
+	public long getElapsedNanos()
+	{
+		return elapsedNanos;
+	}
+
+	public long getNodesPerSecond()
+	{
+		return elapsedNanos == 0 ? 0 : (nodes * 1_000_000_000L) / elapsedNanos;
+	}
+
+	public int getHashfull()
+	{
+		return hashfull;
+	}
+
+	@Override
+	public String toString()
+	{
+		final String scoreString = isMateScore() ? "mate " + getMateDistance() : "cp " + getScoreCentipawns();
+		return "depth " + depth + " seldepth " + selDepth + " score " + scoreString + " nodes " + nodes + " nps " + getNodesPerSecond() + " hashfull " + hashfull
+				+ " pv " + principalVariation;
+	}
+}
@@ -0,0 +1,152 @@
+package jenjinn.engine.gametree;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Hands search progress reports from the search thread to registered
+ * {@link SearchListener} instances. Publishing only stores the report, the
+ * listeners are called from a separate daemon thread at most once per interval
+ * with the latest report of each kind. Slow listeners therefore delay other
+ * listeners but never the search.
+ *
+ * @author ThomasB
+ */
+public final class SearchInfoPublisher
+{
+	private final List<SearchListener> listeners = new CopyOnWriteArrayList<>();
+
+	private final AtomicReference<SearchInfo> pendingIteration = new AtomicReference<>(), pendingBestMove = new AtomicReference<>();
+
+	private final AtomicBoolean dispatchScheduled = new AtomicBoolean();
+
+	private final long intervalNanos;
+
+	private volatile long lastDispatchNanos;
+
+	/** Created when the first listener is added. */
+	private ScheduledExecutorService dispatcher;
+
+	/**
+	 * @param intervalMillis
+	 *            the minimum time between two deliveries to the listeners.
+	 */
+	public SearchInfoPublisher(final long intervalMillis)
+	{
+		this.intervalNanos = TimeUnit.MILLISECONDS.toNanos(intervalMillis);
+		this.lastDispatchNanos = System.nanoTime() - intervalNanos;
+	}
+
+	public synchronized void addListener(final SearchListener listener)
+	{
+		if (dispatcher == null) {
+			dispatcher = Executors.newSingleThreadScheduledExecutor(r -> {
+				final Thread t = new Thread(r, "search-info-dispatcher");
+				t.setDaemon(true);
+				return t;
+			});
+		}
+		listeners.add(listener);
+	}
+
+	public void removeListener(final SearchListener listener)
+	{
+		listeners.remove(listener);
+	}
+
+	/**
+	 * @return whether anybody is listening, if not there is no need to build
+	 *         reports at all.
+	 */
+	public boolean hasListeners()
+	{
+		return !listeners.isEmpty();
+	}
+
+	public void publishIteration(final SearchInfo info)
+	{
+		pendingIteration.set(info);
+		scheduleDispatch();
+	}
+
+	public void publishBestMove(final SearchInfo info)
+	{
+		pendingBestMove.set(info);
+		scheduleDispatch();
+	}
+
+	/**
+	 * Deliver any pending reports straight away regardless of the throttling
+	 * interval followed by the result of the search, called at the end of a
+	 * search.
+	 *
+	 * @param result
+	 */
+	public void complete(final SearchResult result)
+	{
+		if (dispatcher != null) {
+			dispatcher.execute(() -> {
+				dispatch();
+				for (final SearchListener listener : listeners) {
+					try {
+						listener.onSearchComplete(result);
+					}
+					catch (final RuntimeException e) {
+						e.printStackTrace();
+					}
+				}
+			});
+		}
+	}
+
+	private void scheduleDispatch()
+	{
+		if (dispatcher != null && dispatchScheduled.compareAndSet(false, true)) {
+			final long delay = Math.max(0, lastDispatchNanos + intervalNanos - System.nanoTime());
+			dispatcher.schedule(this::dispatch, delay, TimeUnit.NANOSECONDS);
+		}
+	}
+
+	private void dispatch()
+	{
+		lastDispatchNanos = System.nanoTime();
+		dispatchScheduled.set(false);
+		final SearchInfo bestMove = pendingBestMove.getAndSet(null), iteration = pendingIteration.getAndSet(null);
+
+		// Deliver in the order the reports were created
+		if (bestMove != null && (iteration == null || bestMove.getElapsedNanos() <= iteration.getElapsedNanos())) {
+			deliver(bestMove, false);
+			deliver(iteration, true);
+		}
+		else {
+			deliver(iteration, true);
+			deliver(bestMove, false);
+		}
+	}
+
+	private void deliver(final SearchInfo info, final boolean iterationComplete)
+	{
+		if (info == null) {
+			return;
+		}
+		for (final SearchListener listener : listeners) {
+			try {
+				if (iterationComplete) {
+					listener.onIterationComplete(info);
+				}
+				else {
+					listener.onNewBestMove(info);
+				}
+			}
+			catch (final RuntimeException e) {
+				// A broken listener must not stop the others or the dispatcher
+				e.printStackTrace();
+			}
+		}
+	}
+}
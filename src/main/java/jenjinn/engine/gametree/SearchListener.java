@@ -0,0 +1,41 @@
+package jenjinn.engine.gametree;
+
+/**
+ * Receives progress reports from a running search. Reports are delivered on a
+ * dispatching thread rather than the search thread and are throttled, so a
+ * listener may not see every intermediate report but always sees the latest
+ * one of each kind.
+ *
+ * @author ThomasB
+ */
+public interface SearchListener
+{
+	/**
+	 * Called after the search has completed an iteration of iterative deepening.
+	 *
+	 * @param info
+	 */
+	default void onIterationComplete(final SearchInfo info)
+	{
+	}
+
+	/**
+	 * Called when the search has found a new best move at the root within the
+	 * iteration in progress.
+	 *
+	 * @param info
+	 */
+	default void onNewBestMove(final SearchInfo info)
+	{
+	}
+
+	/**
+	 * Called once the search has finished, after every report of that search has
+	 * been delivered.
+	 *
+	 * @param result
+	 */
+	default void onSearchComplete(final SearchResult result)
+	{
+	}
+}
@@ -0,0 +1,68 @@
+package jenjinn.engine.gametree;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import jenjinn.engine.moves.ChessMove;
+
+/**
+ * The move chosen by a {@link MoveCalculator} together with the statistics of
+ * the search which chose it.
+ *
+ * @author ThomasB
+ */
+public final class SearchResult
+{
+	private final ChessMove move;
+	private final SearchStatistics statistics;
+	private final List<ChessMove> principalVariation;
+
+	public SearchResult(final ChessMove move, final SearchStatistics statistics)
+	{
+		this(move, statistics, Collections.singletonList(move));
+	}
+
+	/**
+	 * @param move
+	 * @param statistics
+	 * @param principalVariation
+	 *            the expected line of play starting with the chosen move.
+	 */
+	public SearchResult(final ChessMove move, final SearchStatistics statistics, final List<ChessMove> principalVariation)
+	{
+		this.move = move;
+		this.statistics = statistics;
+		this.principalVariation = Collections.unmodifiableList(new ArrayList<>(principalVariation));
+	}
+
+	public ChessMove getMove()
+	{
+		return move;
+	}
+
+	public SearchStatistics getStatistics()
+	{
+		return statistics;
+	}
+
+	public List<ChessMove> getPrincipalVariation()
+	{
+		return principalVariation;
+	}
+
+	/**
+	 * @return the reply the search expects from the opponent, i.e. the second move
+	 *         of the principal variation, or null if it is unknown.
+	 */
+	public ChessMove getExpectedReply()
+	{
+		return principalVariation.size() > 1 ? principalVariation.get(1) : null;
+	}
+
+	@Override
+	public String toString()
+	{
+		return move + " [" + statistics + "]";
+	}
+}
@@ -0,0 +1,306 @@
+package jenjinn.engine.gametree;
+
+import java.util.Arrays;
+
+/**
+ * Counters describing the work done by a single search. Each search thread
+ * fills its own instance using plain field increments so that collecting them
+ * costs next to nothing, the instances of a search are then merged once it has
+ * finished.
+ *
+ * @author ThomasB
+ */
+public final class SearchStatistics
+{
+	/**
+	 * Beta cutoffs caused by the move at each position of the search order, the
+	 * last bucket collecting every move at or beyond it.
+	 */
+	static final int CUTOFF_HISTOGRAM_SIZE = 16;
+
+	/** The largest number of iterations we record node counts for. */
+	private static final int MAX_ITERATIONS = 128;
+
+	long nodes, qnodes, seeCalls;
+
+	long ttProbes, ttHits, ttCutoffs;
+
+	long pawnTableProbes, pawnTableHits;
+
+	long evalCacheProbes, evalCacheHits;
+
+	long futilityPrunes, reverseFutilityPrunes, razorPrunes;
+
+	long etcProbes, etcCutoffs;
+
+	long iidSearches, iidMoves;
+
+	long aspirationResearches;
+
+	long mtdfPasses;
+
+	long bitbaseHits;
+
+	int selDepth;
+
+	final long[] cutoffHistogram = new long[CUTOFF_HISTOGRAM_SIZE];
+
+	/** Total nodes searched by the end of each completed iteration. */
+	private final long[] iterationNodes = new long[MAX_ITERATIONS + 1];
+
+	private int completedDepth;
+
+	private long elapsedNanos;
+
+	void recordCutoff(final int orderIndex)
+	{
+		cutoffHistogram[Math.min(orderIndex, CUTOFF_HISTOGRAM_SIZE - 1)]++;
+	}
+
+	void recordIteration(final int depth)
+	{
+		if (depth <= MAX_ITERATIONS) {
+			iterationNodes[depth] = getTotalNodes();
+			completedDepth = depth;
+		}
+	}
+
+	void recordPawnTable(final long probes, final long hits)
+	{
+		pawnTableProbes += probes;
+		pawnTableHits += hits;
+	}
+
+	void recordEvaluationCache(final long probes, final long hits)
+	{
+		evalCacheProbes += probes;
+		evalCacheHits += hits;
+	}
+
+	void setElapsedNanos(final long elapsedNanos)
+	{
+		this.elapsedNanos = elapsedNanos;
+	}
+
+	/**
+	 * Adds the counters of another thread taking part in the same search to this
+	 * instance. Iteration data and timings are taken from whichever thread got
+	 * furthest.
+	 *
+	 * @param other
+	 */
+	public void merge(final SearchStatistics other)
+	{
+		nodes += other.nodes;
+		qnodes += other.qnodes;
+		seeCalls += other.seeCalls;
+		ttProbes += other.ttProbes;
+		ttHits += other.ttHits;
+		ttCutoffs += other.ttCutoffs;
+		pawnTableProbes += other.pawnTableProbes;
+		pawnTableHits += other.pawnTableHits;
+		evalCacheProbes += other.evalCacheProbes;
+		evalCacheHits += other.evalCacheHits;
+		futilityPrunes += other.futilityPrunes;
+		reverseFutilityPrunes += other.reverseFutilityPrunes;
+		razorPrunes += other.razorPrunes;
+		etcProbes += other.etcProbes;
+		etcCutoffs += other.etcCutoffs;
+		iidSearches += other.iidSearches;
+		iidMoves += other.iidMoves;
+		aspirationResearches += other.aspirationResearches;
+		mtdfPasses += other.mtdfPasses;
+		bitbaseHits += other.bitbaseHits;
+		selDepth = Math.max(selDepth, other.selDepth);
+		for (int i = 0; i < CUTOFF_HISTOGRAM_SIZE; i++) {
+			cutoffHistogram[i] += other.cutoffHistogram[i];
+		}
+		for (int i = 0; i <= MAX_ITERATIONS; i++) {
+			iterationNodes[i] += other.iterationNodes[i];
+		}
+		completedDepth = Math.max(completedDepth, other.completedDepth);
+		elapsedNanos = Math.max(elapsedNanos, other.elapsedNanos);
+	}
+
+	public long getNodes()
+	{
+		return nodes;
+	}
+
+	public long getQuiescenceNodes()
+	{
+		return qnodes;
+	}
+
+	public long getTotalNodes()
+	{
+		return nodes + qnodes;
+	}
+
+	public long getSeeCalls()
+	{
+		return seeCalls;
+	}
+
+	public long getTableProbes()
+	{
+		return ttProbes;
+	}
+
+	public long getTableHits()
+	{
+		return ttHits;
+	}
+
+	public long getTableCutoffs()
+	{
+		return ttCutoffs;
+	}
+
+	public long getPawnTableProbes()
+	{
+		return pawnTableProbes;
+	}
+
+	public long getPawnTableHits()
+	{
+		return pawnTableHits;
+	}
+
+	public long getEvaluationCacheProbes()
+	{
+		return evalCacheProbes;
+	}
+
+	public long getEvaluationCacheHits()
+	{
+		return evalCacheHits;
+	}
+
+	public long getFutilityPrunes()
+	{
+		return futilityPrunes;
+	}
+
+	public long getReverseFutilityPrunes()
+	{
+		return reverseFutilityPrunes;
+	}
+
+	public long getRazorPrunes()
+	{
+		return razorPrunes;
+	}
+
+	public long getEtcProbes()
+	{
+		return etcProbes;
+	}
+
+	public long getEtcCutoffs()
+	{
+		return etcCutoffs;
+	}
+
+	public long getIidSearches()
+	{
+		return iidSearches;
+	}
+
+	public long getIidMoves()
+	{
+		return iidMoves;
+	}
+
+	/**
+	 * @return the number of times a root search fell outside its aspiration
+	 *         window and had to be repeated.
+	 */
+	public long getAspirationResearches()
+	{
+		return aspirationResearches;
+	}
+
+	/**
+	 * @return the number of zero window root searches made by MTD(f) iterations
+	 *         after the first.
+	 */
+	public long getMtdfPasses()
+	{
+		return mtdfPasses;
+	}
+
+	/**
+	 * @return the number of main and quiescence nodes resolved by a bitbase.
+	 */
+	public long getBitbaseHits()
+	{
+		return bitbaseHits;
+	}
+
+	/**
+	 * @return the greatest distance from the root reached by the main or
+	 *         quiescence search.
+	 */
+	public int getSelDepth()
+	{
+		return selDepth;
+	}
+
+	public int getCompletedDepth()
+	{
+		return completedDepth;
+	}
+
+	/**
+	 * @return a copy of the beta cutoff counts indexed by the position in the
+	 *         search order of the move causing them.
+	 */
+	public long[] getCutoffHistogram()
+	{
+		return Arrays.copyOf(cutoffHistogram, CUTOFF_HISTOGRAM_SIZE);
+	}
+
+	/**
+	 * @return the percentage of beta cutoffs which were caused by the first move
+	 *         searched.
+	 */
+	public double getFirstMoveCutoffPercentage()
+	{
+		final long total = Arrays.stream(cutoffHistogram).sum();
+		return total == 0 ? 0 : (100.0 * cutoffHistogram[0]) / total;
+	}
+
+	/**
+	 * @return the ratio of the nodes searched in the last completed iteration to
+	 *         those searched in the one before it.
+	 */
+	public double getEffectiveBranchingFactor()
+	{
+		if (completedDepth < 2) {
+			return 0;
+		}
+		final long last = iterationNodes[completedDepth] - iterationNodes[completedDepth - 1];
+		final long previous = iterationNodes[completedDepth - 1] - iterationNodes[completedDepth - 2];
+		return previous == 0 ? 0 : (double) last / previous;
+	}
+
+	public long getElapsedNanos()
+	{
+		return elapsedNanos;
+	}
+
+	public long getNodesPerSecond()
+	{
+		return elapsedNanos == 0 ? 0 : (getTotalNodes() * 1_000_000_000L) / elapsedNanos;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "depth " + completedDepth + ", seldepth " + selDepth + ", nodes " + nodes + ", qnodes " + qnodes + ", nps " + getNodesPerSecond()
+				+ ", ebf " + String.format("%.2f", getEffectiveBranchingFactor()) + ", tt probes/hits/cutoffs " + ttProbes + "/" + ttHits + "/" + ttCutoffs
+				+ ", pawn table probes/hits " + pawnTableProbes + "/" + pawnTableHits + ", eval cache probes/hits " + evalCacheProbes + "/" + evalCacheHits
+				+ ", first move cutoffs " + String.format("%.1f", getFirstMoveCutoffPercentage()) + "%";
+	}
+}
@@ -14,8 +14,11 @@ import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.stream.Collectors;
 import java.util.stream.IntStream;
 
+import jenjinn.engine.bitbase.BitbaseResult;
+import jenjinn.engine.bitbase.Bitbases;
 import jenjinn.engine.boardstate.BoardState;
 import jenjinn.engine.boardstate.BoardStateImpl;
 import jenjinn.engine.enums.Infinity;
@@ -26,6 +29,8 @@ import jenjinn.engine.evaluation.componentimpl.MobilityV1;
 import jenjinn.engine.evaluation.componentimpl.PawnStructureV1;
 import jenjinn.engine.exceptions.AmbiguousPgnException;
 import jenjinn.engine.moves.ChessMove;
+import jenjinn.engine.moves.EnPassantMove;
+import jenjinn.engine.moves.PromotionMove;
 import jenjinn.engine.openingdatabase.AlgebraicCommand;
 import jenjinn.io.pgnutils.ChessGameReader;
 
@@ -39,6 +44,43 @@ public class TTAlphaBetaV1_2 implements MoveCalculator
 
 	private static final int DEFAULT_TABLE_SIZE = 17;
 
+	/** The largest ply we record killer moves for. */
+	private static final int MAX_PLY = 128;
+
+	/* Move ordering scores, history scores are always below the killer scores. */
+	private static final int HASH_MOVE_SCORE = Integer.MAX_VALUE, CAPTURE_SCORE = 1 << 30, KILLER_SCORE = 1 << 29;
+
+	/** The largest remaining depth at which we apply frontier pruning. */
+	private static final int FRONTIER_DEPTH = 2;
+
+	/**
+	 * The smallest remaining depth at which we look for enhanced transposition
+	 * cutoffs. Below it the extra table probes cost more than the subtrees they
+	 * can save.
+	 */
+	private static final int ETC_DEPTH = 3;
+
+	/**
+	 * The smallest remaining depth at which a node without a hash move is first
+	 * searched to a reduced depth to find one, and the size of that reduction.
+	 */
+	private static final int IID_DEPTH = 5, IID_REDUCTION = 2;
+
+	/**
+	 * Scores beyond this magnitude are terminal results which no static margin
+	 * can be trusted against.
+	 */
+	private static final int DECIDED_SCORE = Infinity.SHORT_INFINITY / 2;
+
+	/*
+	 * Frontier pruning margins indexed by {midgame, endgame} then remaining depth
+	 * and interpolated by game phase. The midgame margins are wider as king safety
+	 * and mobility can swing the evaluation much further there.
+	 */
+	private static final int[][] FUTILITY_MARGINS = { { 0, 400, 700 }, { 0, 300, 550 } };
+	private static final int[][] REVERSE_FUTILITY_MARGINS = { { 0, 350, 700 }, { 0, 250, 500 } };
+	private static final int[][] RAZOR_MARGINS = { { 0, 600, 900 }, { 0, 500, 750 } };
+
 	private static final String DESCRIPTOR = "[NegaAlphaBeta - no pv override 1 bucket tt - pv extraction - tt impl v1_2]";
 
 	/**
@@ -59,12 +101,73 @@ public class TTAlphaBetaV1_2 implements MoveCalculator
 	 */
 	private int maxSearchDepth = 100;
 
-	private int bestFirstMoveIndex = -1;
+	private int bestFirstMoveIndex = -1, bestFirstMoveScore;
+
+	/**
+	 * Initial half width of the aspiration windows used by multi-PV searches and
+	 * the largest half width we try before falling back to an infinite window.
+	 */
+	private static final int ASPIRATION_WINDOW = 50, MAX_ASPIRATION_WINDOW = 1000;
+
+	/**
+	 * MTD(f) moves each zero window past the bound just found by a step which
+	 * grows while successive searches fail the same way. Once the value is
+	 * bracketed by both a lower and an upper bound we bisect instead. Scores are
+	 * too fine grained for the plain one point steps to converge quickly.
+	 */
+	private static final int MTDF_STEP = 8;
+
+	/** The minimum time between two deliveries of search progress reports. */
+	private static final long PUBLISH_INTERVAL_MILLIS = 100;
+
+	private final SearchInfoPublisher publisher = new SearchInfoPublisher(PUBLISH_INTERVAL_MILLIS);
+
+	private long searchStartNanos;
+
+	/** The search stops once this many nodes have been searched. */
+	private long nodeLimit = Long.MAX_VALUE;
+
+	/** Endgame bitbases probed by the main search, shared with the quiescence search. */
+	private Bitbases bitbases = Bitbases.getDefault();
+
+	/* Evaluator pawn table and evaluation cache counters at the start of the search in progress. */
+	private long pawnTableProbesAtStart, pawnTableHitsAtStart, evalCacheProbesAtStart, evalCacheHitsAtStart;
+
+	/** The index of the best move found by the last call to searchRootExcluding. */
+	private int excludingBestIndex;
+
+	/**
+	 * Quiet moves which caused beta cutoffs, indexed by ply.
+	 */
+	private final KillerMoves killers = KillerMoves.create(MAX_PLY);
+
+	/**
+	 * Butterfly table of quiet moves which caused beta cutoffs.
+	 */
+	private final HistoryTable history = HistoryTable.create();
+
+	/**
+	 * Statistics of the search in progress, replaced at the start of every search.
+	 */
+	private SearchStatistics stats = new SearchStatistics();
+
+	private boolean frontierPruning = true, enhancedTranspositionCutoffs = true, internalIterativeDeepening = true;
 
 	public TTAlphaBetaV1_2(final BoardEvaluator eval)
 	{
-		this.quiescence = new Quiescence(eval);
-		this.tt = TranspositionTable.create(DEFAULT_TABLE_SIZE);
+		this(eval, DEFAULT_TABLE_SIZE);
+	}
+
+	/**
+	 * @param eval
+	 * @param tableSize
+	 *            the base two logarithm of the number of transposition table
+	 *            entries.
+	 */
+	public TTAlphaBetaV1_2(final BoardEvaluator eval, final int tableSize)
+	{
+		this.tt = TranspositionTable.create(tableSize);
+		this.quiescence = new Quiescence(eval, tt);
 	}
 
 	public TTAlphaBetaV1_2()
@@ -80,10 +183,19 @@ public class TTAlphaBetaV1_2 implements MoveCalculator
 	@Override
 	public ChessMove getBestMoveFrom(final BoardState root)
 	{
+		return search(root).getMove();
+	}
+
+	@Override
+	public SearchResult search(final BoardState root)
+	{
+		beginSearch();
 		bestFirstMoveIndex = -1;
 		ChessMove bestMove;
 		try {
 			bestMove = getBestMoveFrom(root, 1, false);
+			stats.recordIteration(1);
+			publishIteration(root, 1);
 		}
 		catch (final InterruptedException e1) {
 			// We should not be getting here
@@ -94,6 +206,8 @@ public class TTAlphaBetaV1_2 implements MoveCalculator
 			try {
 				final ChessMove newBestMove = getBestMoveFrom(root, depth, true);
 				bestMove = newBestMove;
+				stats.recordIteration(depth);
+				publishIteration(root, depth);
 			}
 			catch (final InterruptedException e) {
 				// Restore interrupted status
@@ -101,9 +215,309 @@ public class TTAlphaBetaV1_2 implements MoveCalculator
 				break;
 			}
 		}
-		System.out.println("Pawn table used: " + PawnStructureV1.usedTable);
-		System.out.println("Pawn table not used: " + PawnStructureV1.notUsedTable);
-		return bestMove;
+		endSearch();
+		final SearchResult result = new SearchResult(bestMove, stats, getPrincipalVariationMoves(root, bestFirstMoveIndex, stats.getCompletedDepth()));
+		publisher.complete(result);
+		return result;
+	}
+
+	/**
+	 * Searches for the best given number of moves from the root, for analysis.
+	 * Every iteration searches the root once per line, each time excluding the
+	 * moves found by the earlier passes. All passes share the transposition table
+	 * and from the second iteration on every pass starts with an aspiration
+	 * window around the score of the same line in the previous iteration.
+	 *
+	 * @param root
+	 * @param lineCount
+	 *            the number of lines wanted.
+	 * @return the lines of the last completed iteration ranked by score, fewer
+	 *         than requested if there are fewer legal moves.
+	 */
+	public List<MultiPvLine> searchMultiPv(final BoardState root, final int lineCount)
+	{
+		beginSearch();
+		final List<ChessMove> moves = root.getMoves();
+
+		// Moves which leave our king en prise are never worth reporting
+		final boolean[] illegal = new boolean[moves.size()];
+		int legalCount = 0;
+		for (int i = 0; i < moves.size(); i++) {
+			illegal[i] = moves.get(i).evolve(root).getTerminationState().isWin();
+			legalCount += illegal[i] ? 0 : 1;
+		}
+		final int lines = Math.min(lineCount, legalCount);
+
+		List<MultiPvLine> result = new ArrayList<>();
+		int[] order = IntStream.range(0, moves.size()).toArray(), previousScores = null;
+
+		for (int depth = 1; depth <= maxSearchDepth && lines > 0; depth++) {
+			try {
+				final boolean[] excluded = Arrays.copyOf(illegal, illegal.length);
+				final int[] lineIndices = new int[lines], lineScores = new int[lines];
+
+				for (int k = 0; k < lines; k++) {
+					final int score = previousScores == null
+							? searchRootExcluding(root, moves, order, excluded, depth, Infinity.IC_ALPHA, Infinity.IC_BETA, false)
+							: aspirationSearch(root, moves, order, excluded, depth, previousScores[k]);
+					lineIndices[k] = excludingBestIndex;
+					lineScores[k] = score;
+					excluded[excludingBestIndex] = true;
+				}
+				stats.recordIteration(depth);
+
+				// Passes can disagree slightly so rank the lines by score
+				final List<Integer> ranks = IntStream.range(0, lines).boxed().collect(Collectors.toList());
+				ranks.sort((a, b) -> Integer.compare(lineScores[b], lineScores[a]));
+				final List<MultiPvLine> newResult = new ArrayList<>();
+				previousScores = new int[lines];
+				final int[] newOrder = new int[moves.size()];
+				final boolean[] ordered = new boolean[moves.size()];
+				int orderCount = 0;
+				for (final int k : ranks) {
+					final int idx = lineIndices[k];
+					newResult.add(new MultiPvLine(moves.get(idx), lineScores[k], getPrincipalVariationMoves(root, idx, depth)));
+					previousScores[newResult.size() - 1] = lineScores[k];
+					newOrder[orderCount++] = idx;
+					ordered[idx] = true;
+				}
+				for (final int idx : order) {
+					if (!ordered[idx]) {
+						newOrder[orderCount++] = idx;
+					}
+				}
+				order = newOrder;
+				result = newResult;
+			}
+			catch (final InterruptedException e) {
+				// Restore interrupted status
+				Thread.interrupted();
+				break;
+			}
+		}
+		endSearch();
+		return result;
+	}
+
+	/**
+	 * Iterative deepening where every iteration is an MTD(f) search: a series of
+	 * zero window searches of the root which converges on its minimax value, the
+	 * first guess being the value of the previous iteration. The table keeps the
+	 * bounds found by one pass so the next mostly re-walks stored nodes. How the
+	 * windows move between passes is described at {@link #MTDF_STEP}.
+	 *
+	 * Zero window searches only store bounds so the principal variation we report
+	 * is rarely longer than the best move.
+	 *
+	 * @param root
+	 * @return
+	 */
+	public SearchResult searchMtdf(final BoardState root)
+	{
+		beginSearch();
+		final List<ChessMove> moves = root.getMoves();
+		final boolean[] excluded = new boolean[moves.size()];
+		final int[] order = IntStream.range(0, moves.size()).toArray();
+		int guess;
+		try {
+			guess = searchRootExcluding(root, moves, order, excluded, 1, Infinity.IC_ALPHA, Infinity.IC_BETA, false);
+		}
+		catch (final InterruptedException e) {
+			// We should not be getting here
+			throw new AssertionError(e);
+		}
+		bestFirstMoveIndex = excludingBestIndex;
+		bestFirstMoveScore = guess;
+		stats.recordIteration(1);
+		publishIteration(root, 1);
+
+		for (int depth = 2; depth <= maxSearchDepth; depth++) {
+			try {
+				changeFirstIndex(order, indexOf(order, bestFirstMoveIndex));
+				int lowerBound = -Infinity.INT_INFINITY, upperBound = Infinity.INT_INFINITY, bestIndex = -1;
+				int beta = guess, step = 0, lastDirection = 0;
+				while (lowerBound < upperBound) {
+					guess = searchRootExcluding(root, moves, order, excluded, depth, beta - 1, beta, true);
+					stats.mtdfPasses++;
+					final int direction = guess < beta ? -1 : 1;
+					if (direction < 0) {
+						upperBound = guess;
+					}
+					else {
+						// Only a fail high proves its move reaches the bound
+						lowerBound = guess;
+						bestIndex = excludingBestIndex;
+						changeFirstIndex(order, indexOf(order, bestIndex));
+					}
+					if (direction == lastDirection || lastDirection == 0) {
+						step = direction == lastDirection ? 2 * step + MTDF_STEP : 0;
+						beta = direction < 0 ? guess - step : guess + 1 + step;
+					}
+					else {
+						// Bracketed, halve the interval
+						step = 0;
+						beta = lowerBound + (upperBound - lowerBound + 1) / 2;
+					}
+					lastDirection = direction;
+					beta = Math.max(lowerBound + 1, Math.min(upperBound, beta));
+				}
+				// The last pass may have failed low below the bound it converged on
+				guess = lowerBound;
+				bestFirstMoveIndex = bestIndex;
+				bestFirstMoveScore = lowerBound;
+				stats.recordIteration(depth);
+				publishIteration(root, depth);
+			}
+			catch (final InterruptedException e) {
+				// Restore interrupted status
+				Thread.interrupted();
+				break;
+			}
+		}
+		endSearch();
+		final SearchResult result = new SearchResult(moves.get(bestFirstMoveIndex), stats,
+				getPrincipalVariationMoves(root, bestFirstMoveIndex, stats.getCompletedDepth()));
+		publisher.complete(result);
+		return result;
+	}
+
+	private static int indexOf(final int[] array, final int value)
+	{
+		for (int i = 0; i < array.length; i++) {
+			if (array[i] == value) {
+				return i;
+			}
+		}
+		return -1;
+	}
+
+	/**
+	 * Searches the root excluding the given moves starting with a narrow window
+	 * around the expected score and widening it whenever the result falls outside.
+	 */
+	private int aspirationSearch(final BoardState root, final List<ChessMove> moves, final int[] order, final boolean[] excluded, final int depth,
+			final int expectedScore) throws InterruptedException
+	{
+		int delta = ASPIRATION_WINDOW;
+		int alpha = expectedScore - delta, beta = expectedScore + delta;
+		while (true) {
+			final int score = searchRootExcluding(root, moves, order, excluded, depth, alpha, beta, true);
+			if (score > alpha && score < beta) {
+				return score;
+			}
+			stats.aspirationResearches++;
+			delta *= 4;
+			if (score <= alpha) {
+				alpha = delta > MAX_ASPIRATION_WINDOW ? Infinity.IC_ALPHA : score - delta;
+			}
+			else {
+				beta = delta > MAX_ASPIRATION_WINDOW ? Infinity.IC_BETA : score + delta;
+			}
+		}
+	}
+
+	/**
+	 * A fail soft search of the root moves which are not excluded, the index of
+	 * the best of them is left in excludingBestIndex.
+	 */
+	private int searchRootExcluding(final BoardState root, final List<ChessMove> moves, final int[] order, final boolean[] excluded, final int depth,
+			final int alpha, final int beta, final boolean interruptionAllowed) throws InterruptedException
+	{
+		final TreeNodeType rootType = getExpectedType(alpha, beta);
+		int bestScore = -Infinity.INT_INFINITY, bestIndex = -1;
+		for (final int idx : order) {
+			if (excluded[idx]) {
+				continue;
+			}
+			final int score = -negamax(moves.get(idx).evolve(root), -beta, -Math.max(alpha, bestScore), depth - 1, 1,
+					getChildType(rootType, bestIndex == -1), interruptionAllowed);
+			if (score > bestScore) {
+				bestScore = score;
+				bestIndex = idx;
+				if (score >= beta) {
+					break;
+				}
+			}
+		}
+		excludingBestIndex = bestIndex;
+		return bestScore;
+	}
+
+	private void beginSearch()
+	{
+		searchStartNanos = System.nanoTime();
+		final BoardEvaluator evaluator = quiescence.getEvaluator();
+		pawnTableProbesAtStart = evaluator.getPawnTableProbeCount();
+		pawnTableHitsAtStart = evaluator.getPawnTableHitCount();
+		evalCacheProbesAtStart = evaluator.getEvaluationCacheProbeCount();
+		evalCacheHitsAtStart = evaluator.getEvaluationCacheHitCount();
+		stats = new SearchStatistics();
+		quiescence.setStatistics(stats);
+		killers.age();
+		history.age();
+	}
+
+	private void endSearch()
+	{
+		final BoardEvaluator evaluator = quiescence.getEvaluator();
+		stats.recordPawnTable(evaluator.getPawnTableProbeCount() - pawnTableProbesAtStart, evaluator.getPawnTableHitCount() - pawnTableHitsAtStart);
+		stats.recordEvaluationCache(evaluator.getEvaluationCacheProbeCount() - evalCacheProbesAtStart,
+				evaluator.getEvaluationCacheHitCount() - evalCacheHitsAtStart);
+		stats.setElapsedNanos(System.nanoTime() - searchStartNanos);
+	}
+
+	@Override
+	public void addSearchListener(final SearchListener listener)
+	{
+		publisher.addListener(listener);
+	}
+
+	@Override
+	public void removeSearchListener(final SearchListener listener)
+	{
+		publisher.removeListener(listener);
+	}
+
+	private void publishIteration(final BoardState root, final int depth)
+	{
+		if (publisher.hasListeners()) {
+			publisher.publishIteration(createSearchInfo(root, depth, bestFirstMoveIndex, bestFirstMoveScore));
+		}
+	}
+
+	private SearchInfo createSearchInfo(final BoardState root, final int depth, final int firstMoveIndex, final int score)
+	{
+		return new SearchInfo(depth, stats.getSelDepth(), score, getPrincipalVariationMoves(root, firstMoveIndex, depth), stats.getTotalNodes(),
+				System.nanoTime() - searchStartNanos, tt.getHashfull());
+	}
+
+	/**
+	 * Follows the PV entries in the table from the given first move to recover at
+	 * most the given number of moves of the principal variation.
+	 */
+	private List<ChessMove> getPrincipalVariationMoves(final BoardState root, final int firstMoveIndex, final int maxLength)
+	{
+		final List<ChessMove> pv = new ArrayList<>(maxLength);
+		BoardState state = root;
+		ChessMove mv = root.getMoves().get(firstMoveIndex);
+		while (true) {
+			pv.add(mv);
+			state = mv.evolve(state);
+			if (pv.size() >= maxLength || state.isTerminal()) {
+				break;
+			}
+			final long stateHash = state.getHashing();
+			final TableEntry entry = tt.get(stateHash);
+			if (!entryIsValid(stateHash, entry) || entry.getType() != TreeNodeType.PV || entry.isQuiescenceEntry()) {
+				break;
+			}
+			final List<ChessMove> moves = state.getMoves();
+			if (entry.getMoveIndex() < 0 || entry.getMoveIndex() >= moves.size()) {
+				break;
+			}
+			mv = moves.get(entry.getMoveIndex());
+		}
+		return pv;
 	}
 
 	@Override
@@ -112,6 +526,42 @@ public class TTAlphaBetaV1_2 implements MoveCalculator
 		maxSearchDepth = depth;
 	}
 
+	/**
+	 * Limit the number of main and quiescence nodes subsequent searches may
+	 * visit. Like an interrupt the limit is only respected after the first
+	 * iteration.
+	 *
+	 * @param nodeLimit
+	 */
+	public void setNodeLimit(final long nodeLimit)
+	{
+		this.nodeLimit = nodeLimit;
+	}
+
+	/**
+	 * Forget the transposition table, killer moves and history scores of earlier
+	 * searches, for the start of a new game.
+	 */
+	public void reset()
+	{
+		tt.clear();
+		killers.clear();
+		history.clear();
+	}
+
+	/**
+	 * Replace the transposition table with an empty one, not to be called during
+	 * a search.
+	 *
+	 * @param tableSize
+	 *            the base two logarithm of the number of transposition table
+	 *            entries.
+	 */
+	public void setTableSize(final int tableSize)
+	{
+		tt.resize(tableSize);
+	}
+
 	@Override
 	public void setEvaluator(final BoardEvaluator evaluator)
 	{
@@ -147,17 +597,12 @@ public class TTAlphaBetaV1_2 implements MoveCalculator
 
 	private ChessMove getBestMoveFrom(final BoardState root, final int depth, final boolean interruptionAllowed) throws InterruptedException
 	{
-		System.out.println("Starting search of DEPTH: " + depth);
 		// Initialise variables
 		int bestMoveIndex = -1;
 		int alpha = Infinity.IC_ALPHA; // Here alpha is the calculated value of our best move.
 		final int[] pv = getPrincipalVariation(root, depth);
 		final List<ChessMove> possibleMoves = root.getMoves();
 
-		if (len(pv) != depth - 1) {
-			System.out.println("Expected pv of length: " + (depth - 1) + " but got " + len(pv));
-		}
-
 		final int[] indices = IntStream.range(0, possibleMoves.size()).toArray();
 
 		if (depth > 1) {
@@ -167,16 +612,20 @@ public class TTAlphaBetaV1_2 implements MoveCalculator
 
 		for (final int idx : indices) {
 			final ChessMove mv = possibleMoves.get(idx);
-			final int bestBlackReply = -negamax(mv.evolve(root), -Infinity.IC_BETA, -alpha, depth - 1,
-					interruptionAllowed);
+			final int bestBlackReply = -negamax(mv.evolve(root), -Infinity.IC_BETA, -alpha, depth - 1, 1,
+					getChildType(TreeNodeType.PV, idx == indices[0]), interruptionAllowed);
 
 			// We want to maximise the value of best opponent reply
 			if (bestBlackReply > alpha) {
 				alpha = bestBlackReply;
 				bestMoveIndex = idx;
+				if (publisher.hasListeners()) {
+					publisher.publishBestMove(createSearchInfo(root, depth, idx, alpha));
+				}
 			}
 		}
 		bestFirstMoveIndex = bestMoveIndex;
+		bestFirstMoveScore = alpha;
 		return possibleMoves.get(bestMoveIndex);
 	}
 
@@ -187,67 +636,214 @@ public class TTAlphaBetaV1_2 implements MoveCalculator
 	 * @param alpha
 	 * @param beta
 	 * @param depth
+	 * @param ply
+	 *            the distance of this node from the root of the search.
 	 * @return
 	 */
-	public int negamax(final BoardState root, int alpha, int beta, final int depth, final boolean interruptionAllowed) throws InterruptedException
+	public int negamax(final BoardState root, final int alpha, final int beta, final int depth, final int ply, final boolean interruptionAllowed)
+			throws InterruptedException
 	{
-		if (interruptionAllowed && Thread.currentThread().isInterrupted()) {
+		return negamax(root, alpha, beta, depth, ply, getExpectedType(alpha, beta), interruptionAllowed);
+	}
+
+	/**
+	 * @param expectedType
+	 *            the type we expect this node to turn out, see
+	 *            {@link #getChildType(TreeNodeType, boolean)}. Only the expected PV
+	 *            nodes are searched without frontier pruning.
+	 */
+	private int negamax(final BoardState root, int alpha, int beta, final int depth, final int ply, final TreeNodeType expectedType,
+			final boolean interruptionAllowed) throws InterruptedException
+	{
+		if (interruptionAllowed && (Thread.currentThread().isInterrupted() || stats.getTotalNodes() >= nodeLimit)) {
 			throw new InterruptedException();
 		}
+		stats.nodes++;
+		if (ply > stats.selDepth) {
+			stats.selDepth = ply;
+		}
+
+		final TerminationType tState = root.getTerminationState();
+		if (tState != TerminationType.NOT_TERMINAL) {
+			assert tState.matches(root.getFriendlySide());
+			return tState.isWin() ? MateScore.winAt(ply) : 0;
+		}
+
+		/*
+		 * Mate distance pruning. Even taking the enemy king after our next move
+		 * cannot beat a quicker mate found elsewhere, nor can losing ours to their
+		 * next move be worse than a quicker mate against us.
+		 */
+		alpha = Math.max(alpha, -MateScore.winAt(ply + 1));
+		beta = Math.min(beta, MateScore.winAt(ply + 2));
+		if (alpha >= beta) {
+			return alpha;
+		}
+
+		if (quiescence.getEvaluator().isMaterialDraw(root)) {
+			return 0;
+		}
+
+		/*
+		 * Bitbase draws are exact. Wins and losses only end the search when the
+		 * window merely asks whether the position is won, when it compares wins
+		 * we keep searching so that the engine still finds a way to convert them.
+		 */
+		final BitbaseResult bitbaseResult = bitbases.probe(root);
+		int bitbaseScore = 0;
+		if (bitbaseResult != null) {
+			bitbaseScore = Bitbases.getScore(bitbaseResult, quiescence.getEvaluator().evaluate(root));
+			if (bitbaseResult == BitbaseResult.DRAW || (bitbaseResult == BitbaseResult.WIN && bitbaseScore >= beta && beta <= Bitbases.RESOLVED_BOUND)
+					|| (bitbaseResult == BitbaseResult.LOSS && bitbaseScore <= alpha && alpha >= -Bitbases.RESOLVED_BOUND)) {
+				stats.bitbaseHits++;
+				return bitbaseScore;
+			}
+		}
 
 		final int alphaOrig = alpha;
 		final long rootHash = root.getHashing();
 
+		stats.ttProbes++;
 		final TableEntry ttEntry = tt.get(rootHash);
 		int recommendedMoveIndex = -1;
+		short staticEval = TableEntry.NO_STATIC_EVAL;
 
 		if (entryIsValid(rootHash, ttEntry)) {
+			stats.ttHits++;
 			if (ttEntry.getDepthSearched() >= depth) {
+				final int ttScore = MateScore.fromTable(ttEntry.getScore(), ply);
 				switch (ttEntry.getType()) {
 				case PV:
-					return ttEntry.getScore();
+					stats.ttCutoffs++;
+					return ttScore;
 				case CUT:
-					alpha = Math.max(alpha, ttEntry.getScore());
+					alpha = Math.max(alpha, ttScore);
 					break;
 				case ALL:
-					beta = Math.min(beta, ttEntry.getScore());
+					beta = Math.min(beta, ttScore);
 					break;
 				default:
 					throw new AssertionError();
 				}
 				// If this isn't true then we need more information to get accurate calculation
 				if (alpha >= beta) {
-					return ttEntry.getScore();
+					stats.ttCutoffs++;
+					return ttScore;
 				}
 			}
-			recommendedMoveIndex = ttEntry.getMoveIndex();
+			// Quiescence entries index the attack moves rather than all moves
+			if (!ttEntry.isQuiescenceEntry()) {
+				recommendedMoveIndex = ttEntry.getMoveIndex();
+			}
+			staticEval = ttEntry.getStaticEval();
 		}
-
-		/* Not sure abou tthis termination bit */
-		final TerminationType tState = root.getTerminationState();
-		if (tState != TerminationType.NOT_TERMINAL) {
-			return root.getFriendlySide().orientation() * tState.value;
+		// Frontier pruning must compare against the same scale the leaves use
+		if (bitbaseResult != null) {
+			staticEval = (short) bitbaseScore;
 		}
 
 		if (depth == 0) {
-			Quiescence.currentDepth = 0;
-			// We quiesce with new window constraints, think this is more stable as I was
-			// getting weird buggy cutoffs
-			return quiescence.search(root, Infinity.IC_ALPHA, Infinity.IC_BETA, QUIESCENCE_DEPTH_CAP,
-					interruptionAllowed);
+			return quiescence.search(root, alpha, beta, QUIESCENCE_DEPTH_CAP, ply, interruptionAllowed);
+		}
+
+		/*
+		 * Frontier pruning. Close to the horizon we trust the static evaluation plus
+		 * a phase dependent margin to decide whether a node or a quiet move can
+		 * still matter. Never at expected PV nodes, the principal variation is always
+		 * searched in full, nor when in check as the static evaluation is
+		 * meaningless there.
+		 */
+		int futilityValue = Infinity.INT_INFINITY;
+		if (frontierPruning && expectedType != TreeNodeType.PV && depth <= FRONTIER_DEPTH && !root.isInCheck()) {
+			if (staticEval == TableEntry.NO_STATIC_EVAL) {
+				staticEval = quiescence.getEvaluator().evaluate(root);
+			}
+			final short gamePhase = root.getGamePhase();
+
+			// Reverse futility, we are so far ahead that no reply will bring us back below beta
+			if (beta < DECIDED_SCORE) {
+				final int reverseFutilityValue = staticEval - taper(REVERSE_FUTILITY_MARGINS, depth, gamePhase);
+				if (reverseFutilityValue >= beta) {
+					stats.reverseFutilityPrunes++;
+					return reverseFutilityValue;
+				}
+			}
+
+			if (alpha > -DECIDED_SCORE) {
+				// Razoring, drop straight into quiescence when far below alpha
+				if (staticEval + taper(RAZOR_MARGINS, depth, gamePhase) <= alpha) {
+					final int razorValue = quiescence.search(root, alpha, beta, QUIESCENCE_DEPTH_CAP, ply, interruptionAllowed);
+					if (depth == 1 || razorValue <= alpha) {
+						stats.razorPrunes++;
+						return razorValue;
+					}
+				}
+				futilityValue = staticEval + taper(FUTILITY_MARGINS, depth, gamePhase);
+			}
 		}
 
 		int bestValue = -Infinity.INT_INFINITY;
 		int bestMoveIndex = recommendedMoveIndex, refutationMoveIndex = -1;
 
 		final List<ChessMove> possibleMoves = root.getMoves();
-		final int[] indices = IntStream.range(0, possibleMoves.size()).toArray();
 
-		changeFirstIndex(indices, recommendedMoveIndex);
+		/*
+		 * Enhanced transposition cutoffs. Before searching any child we check whether
+		 * the table already proves one of them refutes beta. The evolved children
+		 * are kept so the search below does not need to recreate them.
+		 */
+		BoardState[] children = null;
+		if (enhancedTranspositionCutoffs && depth >= ETC_DEPTH) {
+			children = new BoardState[possibleMoves.size()];
+			for (int i = 0; i < children.length; i++) {
+				final BoardState child = possibleMoves.get(i).evolve(root);
+				children[i] = child;
+				stats.etcProbes++;
+				final long childHash = child.getHashing();
+				final TableEntry childEntry = tt.get(childHash);
+				// An exact or upper bound score for the child is a lower bound for us
+				if (entryIsValid(childHash, childEntry) && childEntry.getDepthSearched() >= depth - 1 && childEntry.getType() != TreeNodeType.CUT) {
+					final int score = -MateScore.fromTable(childEntry.getScore(), ply + 1);
+					if (score >= beta) {
+						stats.etcCutoffs++;
+						processTableReplacement(TableEntry.generateCUT(rootHash, MateScore.toTable(score, ply), i, depth, staticEval), ttEntry);
+						return score;
+					}
+				}
+			}
+		}
+
+		/*
+		 * Internal iterative deepening, a reduced search supplies a move to try
+		 * first. Only at expected PV and CUT nodes, at ALL nodes the reduced search
+		 * stores no move and only costs time.
+		 */
+		if (internalIterativeDeepening && expectedType != TreeNodeType.ALL && recommendedMoveIndex == -1 && depth >= IID_DEPTH) {
+			stats.iidSearches++;
+			negamax(root, alpha, beta, depth - IID_REDUCTION, ply, expectedType, interruptionAllowed);
+			final TableEntry iidEntry = tt.get(rootHash);
+			if (entryIsValid(rootHash, iidEntry) && !iidEntry.isQuiescenceEntry() && iidEntry.getMoveIndex() > -1) {
+				stats.iidMoves++;
+				recommendedMoveIndex = iidEntry.getMoveIndex();
+			}
+		}
 
-		for (final int i : indices) {
+		final int[] indices = getOrderedIndices(root, possibleMoves, recommendedMoveIndex, ply);
+		final long enemyLocs = root.getSideLocations(root.getEnemySide());
+
+		for (int j = 0; j < indices.length; j++) {
+			final int i = indices[j];
 			final ChessMove mv = possibleMoves.get(i);
-			final int bestReply = -negamax(mv.evolve(root), -beta, -alpha, depth - 1, interruptionAllowed);
+			final BoardState child = children == null ? mv.evolve(root) : children[i];
+
+			// Futility pruning of quiet moves which do not give check
+			if (j > 0 && futilityValue <= alpha && isQuiet(mv, enemyLocs) && !child.isInCheck()) {
+				stats.futilityPrunes++;
+				bestValue = Math.max(bestValue, futilityValue);
+				continue;
+			}
+
+			final int bestReply = -negamax(child, -beta, -alpha, depth - 1, ply + 1, getChildType(expectedType, j == 0), interruptionAllowed);
 
 			final int oldBestValue = bestValue;
 			bestValue = Math.max(bestValue, bestReply);
@@ -257,30 +853,120 @@ public class TTAlphaBetaV1_2 implements MoveCalculator
 
 			if (alpha >= beta) {
 				refutationMoveIndex = i;
+				recordCutoff(root, mv, j, depth, ply);
 				break;
 			}
 		}
 
+		final int tableScore = MateScore.toTable(bestValue, ply);
 		TableEntry potentialNewEntry;
 		if (bestValue <= alphaOrig) {
 			// ALL node
-			potentialNewEntry = TableEntry.generateALL(rootHash, bestValue, depth);
+			potentialNewEntry = TableEntry.generateALL(rootHash, tableScore, depth, staticEval);
 		}
 		else if (bestValue >= beta) {
 			// CUT node
 			assert refutationMoveIndex != -1;
-			potentialNewEntry = TableEntry.generateCUT(rootHash, bestValue, refutationMoveIndex, depth);
+			potentialNewEntry = TableEntry.generateCUT(rootHash, tableScore, refutationMoveIndex, depth, staticEval);
 		}
 		else {
 			// PV node
 			assert bestMoveIndex != -1;
-			potentialNewEntry = TableEntry.generatePV(rootHash, bestValue, bestMoveIndex, depth);
+			potentialNewEntry = TableEntry.generatePV(rootHash, tableScore, bestMoveIndex, depth, staticEval);
 		}
 		processTableReplacement(potentialNewEntry, ttEntry);
 
 		return bestValue;
 	}
 
+	/**
+	 * A zero window only asks whether the score reaches it, we expect a search
+	 * started with one to fail high.
+	 */
+	private static TreeNodeType getExpectedType(final int alpha, final int beta)
+	{
+		return beta - alpha == 1 ? TreeNodeType.CUT : TreeNodeType.PV;
+	}
+
+	/**
+	 * The node types we expect from a perfectly ordered tree. The first child of
+	 * a PV node is a PV node and the others are CUT nodes, which need only one
+	 * move to refute them. That move leads to an ALL node, every child of which
+	 * is a CUT node again.
+	 */
+	private static TreeNodeType getChildType(final TreeNodeType parentType, final boolean firstChild)
+	{
+		switch (parentType) {
+		case PV:
+			return firstChild ? TreeNodeType.PV : TreeNodeType.CUT;
+		case CUT:
+			return TreeNodeType.ALL;
+		default:
+			return TreeNodeType.CUT;
+		}
+	}
+
+	/**
+	 * Orders the indices of the given moves so that the hash move comes first,
+	 * followed by captures and promotions in generation order, then killer moves
+	 * and finally the remaining quiet moves sorted by their history score.
+	 */
+	private int[] getOrderedIndices(final BoardState root, final List<ChessMove> moves, final int recommendedMoveIndex, final int ply)
+	{
+		final int moveCount = moves.size();
+		final int[] indices = new int[moveCount], scores = new int[moveCount];
+		final long enemyLocs = root.getSideLocations(root.getEnemySide());
+		final int sideValue = root.getFriendlySideValue();
+
+		for (int i = 0; i < moveCount; i++) {
+			final ChessMove mv = moves.get(i);
+			int score;
+			if (i == recommendedMoveIndex) {
+				score = HASH_MOVE_SCORE;
+			}
+			else if (!isQuiet(mv, enemyLocs)) {
+				score = CAPTURE_SCORE;
+			}
+			else {
+				final int killerSlot = killers.getSlot(ply, mv);
+				score = killerSlot > -1 ? KILLER_SCORE - killerSlot : history.get(sideValue, mv.getStart(), mv.getTarget());
+			}
+
+			// Stable insertion so that equal scores keep generation order
+			int j = i;
+			while (j > 0 && scores[j - 1] < score) {
+				scores[j] = scores[j - 1];
+				indices[j] = indices[j - 1];
+				j--;
+			}
+			scores[j] = score;
+			indices[j] = i;
+		}
+		return indices;
+	}
+
+	private void recordCutoff(final BoardState root, final ChessMove mv, final int orderIndex, final int depth, final int ply)
+	{
+		stats.recordCutoff(orderIndex);
+		if (isQuiet(mv, root.getSideLocations(root.getEnemySide()))) {
+			killers.add(ply, mv);
+			history.add(root.getFriendlySideValue(), mv.getStart(), mv.getTarget(), depth);
+		}
+	}
+
+	/**
+	 * Interpolates between the midgame and endgame margins for the given depth.
+	 */
+	private static int taper(final int[][] margins, final int depth, final short gamePhase)
+	{
+		return (margins[0][depth] * (256 - gamePhase) + margins[1][depth] * gamePhase) / 256;
+	}
+
+	private static boolean isQuiet(final ChessMove mv, final long enemyLocs)
+	{
+		return !(mv instanceof PromotionMove || mv instanceof EnPassantMove) && (mv.getTargetBB() & enemyLocs) == 0;
+	}
+
 	private void changeFirstIndex(final int[] indices, final int recommendedMoveIndex)
 	{
 		if (recommendedMoveIndex > -1) {
@@ -292,7 +978,7 @@ public class TTAlphaBetaV1_2 implements MoveCalculator
 
 	private void processTableReplacement(final TableEntry newEntry, final TableEntry oldEntry)
 	{
-		if (oldEntry == null) {
+		if (oldEntry == null || oldEntry.isQuiescenceEntry()) {
 			tt.set(newEntry);
 		}
 		else if (newEntry.getType() == TreeNodeType.PV && oldEntry.getType() != TreeNodeType.PV) {
@@ -307,6 +993,48 @@ public class TTAlphaBetaV1_2 implements MoveCalculator
 		}
 	}
 
+	public Quiescence getQuiescence()
+	{
+		return quiescence;
+	}
+
+	/**
+	 * @return the statistics of the search in progress or of the last one.
+	 */
+	public SearchStatistics getStatistics()
+	{
+		return stats;
+	}
+
+	/**
+	 * Set the bitbases probed by subsequent searches, by default those in the
+	 * directory named by {@link Bitbases#DIRECTORY_PROPERTY}.
+	 */
+	public void setBitbases(final Bitbases bitbases)
+	{
+		this.bitbases = bitbases;
+		quiescence.setBitbases(bitbases);
+	}
+
+	public void setInternalIterativeDeepening(final boolean internalIterativeDeepening)
+	{
+		this.internalIterativeDeepening = internalIterativeDeepening;
+	}
+
+	public void setEnhancedTranspositionCutoffs(final boolean enhancedTranspositionCutoffs)
+	{
+		this.enhancedTranspositionCutoffs = enhancedTranspositionCutoffs;
+	}
+
+	/**
+	 * Enables or disables futility pruning, reverse futility pruning and razoring.
+	 * Useful for measuring their effect.
+	 */
+	public void setFrontierPruning(final boolean frontierPruning)
+	{
+		this.frontierPruning = frontierPruning;
+	}
+
 	private boolean entryIsValid(final long nodeHash, final TableEntry entry)
 	{
 		return entry != null && entry.getPositionHash() == nodeHash;
@@ -339,8 +1067,10 @@ public class TTAlphaBetaV1_2 implements MoveCalculator
 			}
 			assert state.getTerminationState() == TerminationType.NOT_TERMINAL;
 			final long t = System.nanoTime();
-			m = c.getBestMoveFrom(state);
+			final SearchResult result = c.search(state);
+			m = result.getMove();
 			times.add(BigInteger.valueOf(System.nanoTime() - t));
+			System.out.println(result.getStatistics());
 		}
 
 		System.out.println(times.stream().mapToLong(x -> x.longValueExact()).sum() / 20);
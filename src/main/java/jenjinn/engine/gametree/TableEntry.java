@@ -6,6 +6,17 @@ package jenjinn.engine.gametree;
  */
 public class TableEntry
 {
+	/**
+	 * The depth we record for entries stored by the quiescence search. It is below
+	 * any depth the main search stores so these entries never satisfy its depth
+	 * requirement, and their move indices refer to the attack moves of the
+	 * position rather than all of its moves.
+	 */
+	public static final int QUIESCENCE_DEPTH = -1;
+
+	/** Marks an entry which carries no static evaluation. */
+	public static final short NO_STATIC_EVAL = Short.MIN_VALUE;
+
 	/** The Zobrist hash of the position this entry corresponds to. */
 	private long positionHash;
 
@@ -21,13 +32,17 @@ public class TableEntry
 	/** How far we searched from this node to get the result. */
 	private byte depthSearched;
 
-	private TableEntry(final long positionHash, final TreeNodeType type, final int score, final int moveIndex, final int depthSearched)
+	/** The static evaluation of the position if we calculated it. */
+	private short staticEval;
+
+	private TableEntry(final long positionHash, final TreeNodeType type, final int score, final int moveIndex, final int depthSearched, final short staticEval)
 	{
 		this.positionHash = positionHash;
 		this.type = type;
 		this.score = score;
 		this.moveIndex = (short) moveIndex;
 		this.depthSearched = (byte) depthSearched;
+		this.staticEval = staticEval;
 	}
 
 	/**
@@ -41,7 +56,12 @@ public class TableEntry
 	 */
 	public static TableEntry generatePV(final long positionHash, final int score, final int bestMoveIndex, final int depthSearched)
 	{
-		return new TableEntry(positionHash, TreeNodeType.PV, score, bestMoveIndex, depthSearched);
+		return generatePV(positionHash, score, bestMoveIndex, depthSearched, NO_STATIC_EVAL);
+	}
+
+	public static TableEntry generatePV(final long positionHash, final int score, final int bestMoveIndex, final int depthSearched, final short staticEval)
+	{
+		return new TableEntry(positionHash, TreeNodeType.PV, score, bestMoveIndex, depthSearched, staticEval);
 	}
 
 	/**
@@ -55,7 +75,12 @@ public class TableEntry
 	 */
 	public static TableEntry generateCUT(final long positionHash, final int lowerBound, final int refutationMoveIndex, final int depthSearched)
 	{
-		return new TableEntry(positionHash, TreeNodeType.CUT, lowerBound, refutationMoveIndex, depthSearched);
+		return generateCUT(positionHash, lowerBound, refutationMoveIndex, depthSearched, NO_STATIC_EVAL);
+	}
+
+	public static TableEntry generateCUT(final long positionHash, final int lowerBound, final int refutationMoveIndex, final int depthSearched, final short staticEval)
+	{
+		return new TableEntry(positionHash, TreeNodeType.CUT, lowerBound, refutationMoveIndex, depthSearched, staticEval);
 	}
 
 	/**
@@ -69,7 +94,12 @@ public class TableEntry
 	 */
 	public static TableEntry generateALL(final long positionHash, final int upperBound, final int depthSearched)
 	{
-		return new TableEntry(positionHash, TreeNodeType.ALL, upperBound, -1, depthSearched);
+		return generateALL(positionHash, upperBound, depthSearched, NO_STATIC_EVAL);
+	}
+
+	public static TableEntry generateALL(final long positionHash, final int upperBound, final int depthSearched, final short staticEval)
+	{
+		return new TableEntry(positionHash, TreeNodeType.ALL, upperBound, -1, depthSearched, staticEval);
 	}
 
 	public long getPositionHash()
@@ -96,4 +126,19 @@ public class TableEntry
 	{
 		return depthSearched;
 	}
+
+	public short getStaticEval()
+	{
+		return staticEval;
+	}
+
+	public boolean hasStaticEval()
+	{
+		return staticEval != NO_STATIC_EVAL;
+	}
+
+	public boolean isQuiescenceEntry()
+	{
+		return depthSearched == QUIESCENCE_DEPTH;
+	}
 }
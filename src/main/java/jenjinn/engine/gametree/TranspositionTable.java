@@ -6,11 +6,14 @@ package jenjinn.engine.gametree;
  */
 public class TranspositionTable
 {
+	/** Rough memory cost of an entry, the object plus its slot in the array. */
+	private static final int ESTIMATED_ENTRY_BYTES = 48;
+
 	/** We use the rowMapper to map position hashes to row entries. */
-	private final long rowMapper;
+	private long rowMapper;
 
 	/** The size of the table */
-	private final int size;
+	private int size;
 
 	/** The table of node information. */
 	private TableEntry[] table;
@@ -33,6 +36,17 @@ public class TranspositionTable
 		return new TranspositionTable(twoPower);
 	}
 
+	/**
+	 * @param megabytes
+	 * @return the largest power of two such that a table with that many entries
+	 *         fits in the given number of megabytes.
+	 */
+	public static int getPowerForMegabytes(final int megabytes)
+	{
+		final long entries = Math.max(1, ((long) megabytes << 20) / ESTIMATED_ENTRY_BYTES);
+		return Math.min(30, 63 - Long.numberOfLeadingZeros(entries));
+	}
+
 	TableEntry get(final long positionHash)
 	{
 		return table[(int) (positionHash & rowMapper)];
@@ -43,8 +57,37 @@ public class TranspositionTable
 		table[(int) (entry.getPositionHash() & rowMapper)] = entry;
 	}
 
+	/**
+	 * @return the occupancy in permille of a sample taken from the start of the
+	 *         table.
+	 */
+	int getHashfull()
+	{
+		final int sampleSize = Math.min(1000, size);
+		int used = 0;
+		for (int i = 0; i < sampleSize; i++) {
+			if (table[i] != null) {
+				used++;
+			}
+		}
+		return (used * 1000) / sampleSize;
+	}
+
 	void clear()
 	{
 		table = new TableEntry[size];
 	}
+
+	/**
+	 * Replace the table with an empty one of the given size.
+	 *
+	 * @param twoPower
+	 *            the base two logarithm of the new number of entries.
+	 */
+	void resize(final int twoPower)
+	{
+		size = 1 << twoPower;
+		rowMapper = size - 1;
+		clear();
+	}
 }
\ No newline at end of file
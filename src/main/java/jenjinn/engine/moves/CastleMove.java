@@ -1,8 +1,7 @@
 package jenjinn.engine.moves;
 
-import static jenjinn.engine.boardstate.BoardStateConstants.getEndGamePST;
-import static jenjinn.engine.boardstate.BoardStateConstants.getMiddleGamePST;
 import static jenjinn.engine.boardstate.BoardStateConstants.getStateHasher;
+import static jenjinn.engine.boardstate.BoardStateConstants.getTaperedPST;
 
 import java.util.Arrays;
 import java.util.Collections;
@@ -117,23 +116,21 @@ public final class CastleMove extends AbstractChessMove
 		newHash ^= getStateHasher().getSquarePieceFeature(kingRemovalSquare, ChessPiece.get(5 + moveSide.index()));
 		newHash ^= getStateHasher().getSquarePieceFeature(rookAdditionSquare, ChessPiece.get(3 + moveSide.index()));
 		newHash ^= getStateHasher().getSquarePieceFeature(rookRemovalSquare, ChessPiece.get(3 + moveSide.index()));
+
+		long pawnKingHash = state.getPawnKingHash();
+		pawnKingHash ^= getStateHasher().getSquarePieceFeature(kingAdditionSquare, ChessPiece.get(5 + moveSide.index()));
+		pawnKingHash ^= getStateHasher().getSquarePieceFeature(kingRemovalSquare, ChessPiece.get(5 + moveSide.index()));
 		// -----------------------------------------------------------------
 
 		// Update positional evaluation------------------------------------
 
-		short midPosEval = state.getMidgamePositionalEval(), endPosEval = state.getEndgamePositionalEval();
-
-		midPosEval += getMiddleGamePST().getPieceSquareValue((byte) (5 + moveSide.index()), kingAdditionSquare);
-		midPosEval -= getMiddleGamePST().getPieceSquareValue((byte) (5 + moveSide.index()), kingRemovalSquare);
-
-		endPosEval += getEndGamePST().getPieceSquareValue((byte) (5 + moveSide.index()), kingAdditionSquare);
-		endPosEval -= getEndGamePST().getPieceSquareValue((byte) (5 + moveSide.index()), kingRemovalSquare);
+		int posEval = state.getPositionalEval();
 
-		midPosEval += getMiddleGamePST().getPieceSquareValue((byte) (3 + moveSide.index()), rookAdditionSquare);
-		midPosEval -= getMiddleGamePST().getPieceSquareValue((byte) (3 + moveSide.index()), rookRemovalSquare);
+		posEval += getTaperedPST().getPieceSquareValue((byte) (5 + moveSide.index()), kingAdditionSquare);
+		posEval -= getTaperedPST().getPieceSquareValue((byte) (5 + moveSide.index()), kingRemovalSquare);
 
-		endPosEval += getEndGamePST().getPieceSquareValue((byte) (3 + moveSide.index()), rookAdditionSquare);
-		endPosEval -= getEndGamePST().getPieceSquareValue((byte) (3 + moveSide.index()), rookRemovalSquare);
+		posEval += getTaperedPST().getPieceSquareValue((byte) (3 + moveSide.index()), rookAdditionSquare);
+		posEval -= getTaperedPST().getPieceSquareValue((byte) (3 + moveSide.index()), rookRemovalSquare);
 
 		// -----------------------------------------------------------------
 
@@ -144,11 +141,11 @@ public final class CastleMove extends AbstractChessMove
 				newCastleStatus,
 				BoardState.NO_ENPASSANT,
 				state.getClockValue() + 1,
-				state.getPiecePhase(),
-				midPosEval,
-				endPosEval,
+				posEval,
 				state.getDevelopmentStatus(),
-				newPiecePositions);
+				newPiecePositions,
+				state.getMaterialKey(),
+				pawnKingHash);
 	}
 
 	public final byte updateCastleRights(final byte oldRights, final Side moveSide)
@@ -9,7 +9,6 @@ import jenjinn.engine.boardstate.BoardState;
 import jenjinn.engine.boardstate.CastlingRights;
 import jenjinn.engine.enums.MoveType;
 import jenjinn.engine.enums.Sq;
-import jenjinn.engine.pieces.ChessPiece;
 import jenjinn.engine.pieces.PieceType;
 
 /**
@@ -48,9 +47,13 @@ public interface ChessMove
 		return sb.toString();
 	}
 
-	default byte updatePiecePhase(final byte oldPhase, final ChessPiece removedPiece)
+	/**
+	 * @return this move in the long algebraic notation used by the UCI protocol,
+	 *         e.g. e2e4, e1g1 for castling or a7a8q for a promotion.
+	 */
+	default String toUciString()
 	{
-		return (byte) (oldPhase + PIECE_PHASES[removedPiece.index() % 6]);
+		return Sq.get(getStart()).name() + Sq.get(getTarget()).name();
 	}
 
 	default long updateGeneralHashFeatures(final BoardState oldState, final byte newCastleRights, final byte newEnPassantSquare)
@@ -1,12 +1,12 @@
 package jenjinn.engine.moves;
 
 import static java.lang.Math.signum;
-import static jenjinn.engine.boardstate.BoardStateConstants.getEndGamePST;
-import static jenjinn.engine.boardstate.BoardStateConstants.getMiddleGamePST;
 import static jenjinn.engine.boardstate.BoardStateConstants.getStateHasher;
+import static jenjinn.engine.boardstate.BoardStateConstants.getTaperedPST;
 
 import jenjinn.engine.boardstate.BoardState;
 import jenjinn.engine.boardstate.BoardStateImpl;
+import jenjinn.engine.boardstate.MaterialKey;
 import jenjinn.engine.enums.MoveType;
 import jenjinn.engine.enums.Side;
 import jenjinn.engine.enums.Sq;
@@ -68,19 +68,20 @@ public class EnPassantMove extends AbstractChessMove
 		newHash ^= getStateHasher().getSquarePieceFeature(getStart(), ChessPiece.get(friendlySide.index()));
 		newHash ^= getStateHasher().getSquarePieceFeature(getTarget(), ChessPiece.get(friendlySide.index()));
 		newHash ^= getStateHasher().getSquarePieceFeature(getEnPassantSquare(), ChessPiece.get(friendlySide.otherSide().index()));
+
+		long pawnKingHash = state.getPawnKingHash();
+		pawnKingHash ^= getStateHasher().getSquarePieceFeature(getStart(), ChessPiece.get(friendlySide.index()));
+		pawnKingHash ^= getStateHasher().getSquarePieceFeature(getTarget(), ChessPiece.get(friendlySide.index()));
+		pawnKingHash ^= getStateHasher().getSquarePieceFeature(getEnPassantSquare(), ChessPiece.get(friendlySide.otherSide().index()));
 		// ---------------------------------------------------------------
 
 		// Update positional evaluations --------------------------------
-		short midPosEval = state.getMidgamePositionalEval(), endPosEval = state.getEndgamePositionalEval();
-
-		midPosEval += getMiddleGamePST().getPieceSquareValue((friendlySide.index()), getTarget());
-		midPosEval -= getMiddleGamePST().getPieceSquareValue((friendlySide.index()), getStart());
+		int posEval = state.getPositionalEval();
 
-		endPosEval += getEndGamePST().getPieceSquareValue((friendlySide.index()), getTarget());
-		endPosEval -= getEndGamePST().getPieceSquareValue((friendlySide.index()), getStart());
+		posEval += getTaperedPST().getPieceSquareValue((friendlySide.index()), getTarget());
+		posEval -= getTaperedPST().getPieceSquareValue((friendlySide.index()), getStart());
 
-		midPosEval -= getMiddleGamePST().getPieceSquareValue((friendlySide.otherSide().index()), getEnPassantSquare());
-		endPosEval -= getEndGamePST().getPieceSquareValue((friendlySide.otherSide().index()), getEnPassantSquare());
+		posEval -= getTaperedPST().getPieceSquareValue((friendlySide.otherSide().index()), getEnPassantSquare());
 		// ---------------------------------------------------------------
 
 		return new BoardStateImpl(
@@ -90,11 +91,11 @@ public class EnPassantMove extends AbstractChessMove
 				state.getCastleStatus(),
 				BoardState.NO_ENPASSANT,
 				0,
-				state.getPiecePhase(),
-				midPosEval,
-				endPosEval,
+				posEval,
 				state.getDevelopmentStatus(),
-				newPieceLocations);
+				newPieceLocations,
+				state.getMaterialKey() - MaterialKey.getFeature(friendlySide.otherSide().index()),
+				pawnKingHash);
 	}
 
 	@Override
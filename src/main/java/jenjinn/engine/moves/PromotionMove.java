@@ -1,13 +1,13 @@
 package jenjinn.engine.moves;
 
-import static jenjinn.engine.boardstate.BoardStateConstants.getEndGamePST;
-import static jenjinn.engine.boardstate.BoardStateConstants.getMiddleGamePST;
 import static jenjinn.engine.boardstate.BoardStateConstants.getStateHasher;
+import static jenjinn.engine.boardstate.BoardStateConstants.getTaperedPST;
 
 import java.util.EnumSet;
 
 import jenjinn.engine.boardstate.BoardState;
 import jenjinn.engine.boardstate.BoardStateImpl;
+import jenjinn.engine.boardstate.MaterialKey;
 import jenjinn.engine.enums.MoveType;
 import jenjinn.engine.enums.Side;
 import jenjinn.engine.enums.Sq;
@@ -66,25 +66,24 @@ public class PromotionMove extends AbstractChessMove
 		// ---------------------------------------------------------------------
 
 		// Update positional eval ---------------------------------------------
-		short midPosEval = state.getMidgamePositionalEval(), endPosEval = state.getEndgamePositionalEval();
+		int posEval = state.getPositionalEval();
 
-		midPosEval += getMiddleGamePST().getPieceSquareValue((byte) (newPieceIndex), getTarget());
-		midPosEval -= getMiddleGamePST().getPieceSquareValue((friendlySide.index()), getStart());
-
-		endPosEval += getEndGamePST().getPieceSquareValue((byte) (newPieceIndex), getTarget());
-		endPosEval -= getEndGamePST().getPieceSquareValue((friendlySide.index()), getStart());
+		posEval += getTaperedPST().getPieceSquareValue((byte) (newPieceIndex), getTarget());
+		posEval -= getTaperedPST().getPieceSquareValue((friendlySide.index()), getStart());
 
 		// ---------------------------------------------------------------------
 
-		byte oldPiecePhase = state.getPiecePhase();
+		long materialKey = state.getMaterialKey() - MaterialKey.getFeature(friendlySide.index()) + MaterialKey.getFeature(newPieceIndex);
+
+		// A pawn on the last rank is never captured, only the promoting one leaves
+		final long pawnKingHash = state.getPawnKingHash() ^ getStateHasher().getSquarePieceFeature(getStart(), ChessPiece.get(friendlySide.index()));
 
 		if (removedPiece != null) {
 			newPieceLocations[removedPiece.index()] ^= getTargetBB();
 			newHash ^= getStateHasher().getSquarePieceFeature(getTarget(), ChessPiece.get(removedPiece.index()));
-			oldPiecePhase = updatePiecePhase(oldPiecePhase, removedPiece);
+			materialKey -= MaterialKey.getFeature(removedPiece.index());
 
-			midPosEval -= getMiddleGamePST().getPieceSquareValue(removedPiece.index(), getTarget());
-			endPosEval -= getEndGamePST().getPieceSquareValue(removedPiece.index(), getTarget());
+			posEval -= getTaperedPST().getPieceSquareValue(removedPiece.index(), getTarget());
 		}
 
 		return new BoardStateImpl(
@@ -94,11 +93,11 @@ public class PromotionMove extends AbstractChessMove
 				state.getCastleStatus(),
 				BoardState.NO_ENPASSANT,
 				0,
-				Math.max(0, oldPiecePhase - PIECE_PHASES[newPieceIndex % 6]),
-				midPosEval,
-				endPosEval,
+				posEval,
 				state.getDevelopmentStatus(),
-				newPieceLocations);
+				newPieceLocations,
+				materialKey,
+				pawnKingHash);
 	}
 
 	@Override
@@ -107,6 +106,12 @@ public class PromotionMove extends AbstractChessMove
 		return "P" + "[" + Sq.get(getStart()).name() + ", " + Sq.get(getTarget()).name() + "]";
 	}
 
+	@Override
+	public String toUciString()
+	{
+		return super.toUciString() + toPromoteTo.name().toLowerCase();
+	}
+
 	@Override
 	public String toCompactString()
 	{
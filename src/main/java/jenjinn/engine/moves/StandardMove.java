@@ -1,8 +1,7 @@
 package jenjinn.engine.moves;
 
-import static jenjinn.engine.boardstate.BoardStateConstants.getEndGamePST;
-import static jenjinn.engine.boardstate.BoardStateConstants.getMiddleGamePST;
 import static jenjinn.engine.boardstate.BoardStateConstants.getStateHasher;
+import static jenjinn.engine.boardstate.BoardStateConstants.getTaperedPST;
 
 import java.util.List;
 
@@ -10,6 +9,7 @@ import jenjinn.engine.bitboarddatabase.Bitboards;
 import jenjinn.engine.boardstate.BoardState;
 import jenjinn.engine.boardstate.BoardStateImpl;
 import jenjinn.engine.boardstate.CastlingRights;
+import jenjinn.engine.boardstate.MaterialKey;
 import jenjinn.engine.enums.MoveType;
 import jenjinn.engine.enums.Sq;
 import jenjinn.engine.misc.EngineUtils;
@@ -120,24 +120,28 @@ public class StandardMove extends AbstractChessMove
 		// -----------------------------------------------------------
 
 		// Update positional evaluations ----------------------------
-		short midPosEval = state.getMidgamePositionalEval(), endPosEval = state.getEndgamePositionalEval();
+		int posEval = state.getPositionalEval();
 
-		midPosEval += getMiddleGamePST().getPieceSquareValue(movingPiece.index(), getTarget());
-		midPosEval -= getMiddleGamePST().getPieceSquareValue(movingPiece.index(), getStart());
-
-		endPosEval += getEndGamePST().getPieceSquareValue(movingPiece.index(), getTarget());
-		endPosEval -= getEndGamePST().getPieceSquareValue(movingPiece.index(), getStart());
+		posEval += getTaperedPST().getPieceSquareValue(movingPiece.index(), getTarget());
+		posEval -= getTaperedPST().getPieceSquareValue(movingPiece.index(), getStart());
 
 		// -----------------------------------------------------------
 
-		byte piecePhase = state.getPiecePhase();
+		long materialKey = state.getMaterialKey(), pawnKingHash = state.getPawnKingHash();
+
+		if (isPawnOrKing(movingPiece)) {
+			pawnKingHash ^= getStateHasher().getSquarePieceFeature(getStart(), movingPiece);
+			pawnKingHash ^= getStateHasher().getSquarePieceFeature(getTarget(), movingPiece);
+		}
 
 		if (removedPiece != null) {
 			newPieceLocations[removedPiece.index()] ^= target;
 			newHash ^= getStateHasher().getSquarePieceFeature(getTarget(), removedPiece);
-			piecePhase = updatePiecePhase(piecePhase, removedPiece);
-			midPosEval -= getMiddleGamePST().getPieceSquareValue(removedPiece.index(), getTarget());
-			endPosEval -= getEndGamePST().getPieceSquareValue(removedPiece.index(), getTarget());
+			materialKey -= MaterialKey.getFeature(removedPiece.index());
+			if (isPawnOrKing(removedPiece)) {
+				pawnKingHash ^= getStateHasher().getSquarePieceFeature(getTarget(), removedPiece);
+			}
+			posEval -= getTaperedPST().getPieceSquareValue(removedPiece.index(), getTarget());
 		}
 
 		final long newDevStatus = state.getDevelopmentStatus() & ~start;
@@ -149,11 +153,17 @@ public class StandardMove extends AbstractChessMove
 				state.getCastleStatus(),
 				newEnPassantSquare,
 				newClockValue,
-				piecePhase,
-				midPosEval,
-				endPosEval,
+				posEval,
 				newDevStatus,
-				newPieceLocations);
+				newPieceLocations,
+				materialKey,
+				pawnKingHash);
+	}
+
+	private static boolean isPawnOrKing(final ChessPiece piece)
+	{
+		final int type = piece.index() % 6;
+		return type == 0 || type == 5;
 	}
 
 	public final byte getNewClockValue(final ChessPiece movingPiece, final ChessPiece removedPiece, final byte oldClockValue)
@@ -0,0 +1,358 @@
+package jenjinn.uci;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import jenjinn.engine.boardstate.BoardState;
+import jenjinn.engine.boardstate.BoardStateImpl;
+import jenjinn.engine.evaluation.BoardEvaluator;
+import jenjinn.engine.gametree.SearchInfo;
+import jenjinn.engine.gametree.SearchListener;
+import jenjinn.engine.gametree.SearchResult;
+import jenjinn.engine.gametree.TTAlphaBetaV1_2;
+import jenjinn.engine.gametree.TranspositionTable;
+import jenjinn.engine.moves.ChessMove;
+import jenjinn.engine.moves.PromotionMove;
+import jenjinn.engine.pieces.PieceType;
+
+/**
+ * A headless front-end speaking the Universal Chess Interface protocol over
+ * standard input and output. Searches run on a dedicated thread so that the
+ * command loop stays responsive, {@code stop} interrupts that thread which
+ * makes the search return the best move of its last completed iteration.
+ *
+ * @author ThomasB
+ */
+public final class UciEngine
+{
+	private static final String NAME = "Jenjinn", AUTHOR = "ThomasB";
+
+	private static final int DEFAULT_HASH_MB = 16, MAX_HASH_MB = 1024;
+
+	/** The search is single threaded, the option exists for harness compatibility. */
+	private static final int MAX_THREADS = 1;
+
+	/** Depth used when the go command sets no depth limit. */
+	private static final int MAX_DEPTH = 100;
+
+	/** Moves we assume remain until the next time control when none is given. */
+	private static final int DEFAULT_MOVES_TO_GO = 30;
+
+	/** Time kept back from every move to cover communication delays. */
+	private static final long MOVE_OVERHEAD_MILLIS = 50;
+
+	/** Promotion suffixes other than the queen. */
+	private static final String UNDERPROMOTIONS = "rbn";
+
+	private final PrintStream out;
+
+	private final ScheduledExecutorService timer = Executors.newSingleThreadScheduledExecutor(r -> {
+		final Thread t = new Thread(r, "uci-timer");
+		t.setDaemon(true);
+		return t;
+	});
+
+	private final TTAlphaBetaV1_2 calculator;
+
+	private BoardState position = BoardStateImpl.getStartBoard();
+
+	private Thread searchThread;
+	private ScheduledFuture<?> stopTimer;
+
+	/** Released once the best move of the running search has been sent. */
+	private volatile CountDownLatch bestMoveSent = new CountDownLatch(0);
+
+	public UciEngine(final PrintStream out)
+	{
+		this.out = out;
+		this.calculator = createCalculator();
+	}
+
+	public static void main(final String[] args) throws IOException
+	{
+		final BufferedReader in = new BufferedReader(new InputStreamReader(System.in));
+		new UciEngine(System.out).run(in);
+	}
+
+	/**
+	 * Processes commands until {@code quit} is received or the input ends.
+	 *
+	 * @param in
+	 * @throws IOException
+	 */
+	public void run(final BufferedReader in) throws IOException
+	{
+		String line;
+		while ((line = in.readLine()) != null) {
+			if (!processCommand(line.trim())) {
+				break;
+			}
+		}
+		stopSearch();
+	}
+
+	/**
+	 * Carries out a single command, a go command returns once the search has
+	 * been started.
+	 *
+	 * @param command
+	 * @return false if the engine should quit.
+	 */
+	public boolean processCommand(final String command)
+	{
+		final String[] tokens = command.split("\\s+");
+		switch (tokens[0]) {
+		case "uci":
+			send("id name " + NAME);
+			send("id author " + AUTHOR);
+			send("option name Hash type spin default " + DEFAULT_HASH_MB + " min 1 max " + MAX_HASH_MB);
+			send("option name Threads type spin default 1 min 1 max " + MAX_THREADS);
+			send("uciok");
+			break;
+		case "isready":
+			send("readyok");
+			break;
+		case "ucinewgame":
+			stopSearch();
+			calculator.reset();
+			break;
+		case "setoption":
+			stopSearch();
+			setOption(tokens);
+			break;
+		case "position":
+			stopSearch();
+			setPosition(tokens);
+			break;
+		case "go":
+			stopSearch();
+			go(tokens);
+			break;
+		case "stop":
+			stopSearch();
+			break;
+		case "quit":
+			return false;
+		default:
+			// The protocol asks us to ignore anything we do not understand
+		}
+		return true;
+	}
+
+	private void setOption(final String[] tokens)
+	{
+		final String name = getValue(tokens, "name"), value = getValue(tokens, "value");
+		if (name == null || value == null) {
+			return;
+		}
+		try {
+			switch (name.toLowerCase()) {
+			case "hash":
+				final int megabytes = Math.max(1, Math.min(MAX_HASH_MB, Integer.parseInt(value)));
+				calculator.setTableSize(TranspositionTable.getPowerForMegabytes(megabytes));
+				break;
+			case "threads":
+				if (Integer.parseInt(value) > MAX_THREADS) {
+					send("info string only " + MAX_THREADS + " search thread is supported");
+				}
+				break;
+			default:
+				send("info string unknown option " + name);
+			}
+		}
+		catch (final NumberFormatException e) {
+			send("info string invalid value " + value + " for option " + name);
+		}
+	}
+
+	private void setPosition(final String[] tokens)
+	{
+		if (tokens.length < 2 || !tokens[1].equals("startpos")) {
+			send("info string only startpos positions are supported");
+			return;
+		}
+		BoardState state = BoardStateImpl.getStartBoard();
+		for (int i = 3; i < tokens.length; i++) {
+			final ChessMove mv = findMove(state, tokens[i]);
+			if (mv == null) {
+				send("info string illegal move " + tokens[i]);
+				break;
+			}
+			state = mv.evolve(state);
+		}
+		position = state;
+	}
+
+	private static ChessMove findMove(final BoardState state, final String uciMove)
+	{
+		for (final ChessMove mv : state.getMoves()) {
+			if (mv.toUciString().equals(uciMove)) {
+				return mv;
+			}
+			// Only queen promotions are generated, the others are legal wherever those are
+			if (mv instanceof PromotionMove && uciMove.length() == 5 && uciMove.startsWith(mv.toUciString().substring(0, 4))
+					&& UNDERPROMOTIONS.indexOf(uciMove.charAt(4)) >= 0) {
+				return PromotionMove.get(mv.getStart(), mv.getTarget(), PieceType.valueOf(uciMove.substring(4).toUpperCase()));
+			}
+		}
+		return null;
+	}
+
+	private void go(final String[] tokens)
+	{
+		final int depth = (int) getLong(tokens, "depth", MAX_DEPTH);
+		final long nodes = getLong(tokens, "nodes", Long.MAX_VALUE);
+		final long moveTime = getMoveTime(tokens);
+
+		calculator.setSearchDepth(depth);
+		calculator.setNodeLimit(nodes);
+		final BoardState root = position;
+		final CountDownLatch sent = new CountDownLatch(1);
+		bestMoveSent = sent;
+		final Thread thread = new Thread(() -> {
+			try {
+				calculator.search(root);
+			}
+			catch (final Throwable e) {
+				// Never leave the controller waiting for a best move, not even after an error
+				e.printStackTrace();
+				send("bestmove 0000");
+				sent.countDown();
+			}
+		}, "uci-search");
+		searchThread = thread;
+		thread.start();
+		if (moveTime >= 0) {
+			stopTimer = timer.schedule(thread::interrupt, moveTime, TimeUnit.MILLISECONDS);
+		}
+	}
+
+	/**
+	 * @return the time in milliseconds the search may take or -1 if it has no
+	 *         time limit.
+	 */
+	private long getMoveTime(final String[] tokens)
+	{
+		final long moveTime = getLong(tokens, "movetime", -1);
+		if (moveTime >= 0) {
+			return moveTime;
+		}
+		final boolean white = position.getFriendlySide().isWhite();
+		final long remaining = getLong(tokens, white ? "wtime" : "btime", -1);
+		if (remaining < 0) {
+			return -1;
+		}
+		final long increment = getLong(tokens, white ? "winc" : "binc", 0);
+		final long movesToGo = Math.max(1, getLong(tokens, "movestogo", DEFAULT_MOVES_TO_GO));
+		final long allocated = remaining / movesToGo + (3 * increment) / 4;
+		return Math.max(1, Math.min(allocated, remaining - MOVE_OVERHEAD_MILLIS));
+	}
+
+	/**
+	 * Ends the running search, if any, waiting for it to report its best move.
+	 */
+	private void stopSearch()
+	{
+		if (stopTimer != null) {
+			stopTimer.cancel(false);
+			stopTimer = null;
+		}
+		if (searchThread != null) {
+			searchThread.interrupt();
+			try {
+				searchThread.join();
+				bestMoveSent.await();
+			}
+			catch (final InterruptedException e) {
+				Thread.currentThread().interrupt();
+			}
+			searchThread = null;
+		}
+	}
+
+	private TTAlphaBetaV1_2 createCalculator()
+	{
+		final TTAlphaBetaV1_2 newCalculator = new TTAlphaBetaV1_2(BoardEvaluator.getDefault(), TranspositionTable.getPowerForMegabytes(DEFAULT_HASH_MB));
+		newCalculator.addSearchListener(new SearchListener() {
+			@Override
+			public void onIterationComplete(final SearchInfo info)
+			{
+				send(formatInfo(info));
+			}
+
+			@Override
+			public void onNewBestMove(final SearchInfo info)
+			{
+				send(formatInfo(info));
+			}
+
+			@Override
+			public void onSearchComplete(final SearchResult result)
+			{
+				send("bestmove " + result.getMove().toUciString());
+				bestMoveSent.countDown();
+			}
+		});
+		return newCalculator;
+	}
+
+	/**
+	 * @return the info command reporting the given search progress.
+	 */
+	public static String formatInfo(final SearchInfo info)
+	{
+		final String score = info.isMateScore() ? "mate " + info.getMateDistance() : "cp " + info.getScoreCentipawns();
+		final List<ChessMove> pv = info.getPrincipalVariation();
+		return "info depth " + info.getDepth() + " seldepth " + info.getSelDepth() + " score " + score + " nodes " + info.getNodes() + " nps "
+				+ info.getNodesPerSecond() + " hashfull " + info.getHashfull() + " time " + TimeUnit.NANOSECONDS.toMillis(info.getElapsedNanos()) + " pv "
+				+ pv.stream().map(ChessMove::toUciString).collect(Collectors.joining(" "));
+	}
+
+	private synchronized void send(final String message)
+	{
+		out.println(message);
+		out.flush();
+	}
+
+	/**
+	 * @return the remainder of the command after the given keyword up to the next
+	 *         setoption keyword, or null if the keyword is absent.
+	 */
+	private static String getValue(final String[] tokens, final String keyword)
+	{
+		for (int i = 1; i < tokens.length; i++) {
+			if (tokens[i].equals(keyword)) {
+				final StringBuilder sb = new StringBuilder();
+				for (int j = i + 1; j < tokens.length && !tokens[j].equals("name") && !tokens[j].equals("value"); j++) {
+					sb.append(sb.length() == 0 ? "" : " ").append(tokens[j]);
+				}
+				return sb.toString();
+			}
+		}
+		return null;
+	}
+
+	private static long getLong(final String[] tokens, final String keyword, final long defaultValue)
+	{
+		for (int i = 1; i < tokens.length - 1; i++) {
+			if (tokens[i].equals(keyword)) {
+				try {
+					return Long.parseLong(tokens[i + 1]);
+				}
+				catch (final NumberFormatException e) {
+					return defaultValue;
+				}
+			}
+		}
+		return defaultValue;
+	}
+}
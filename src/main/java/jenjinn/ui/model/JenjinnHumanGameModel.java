@@ -47,6 +47,9 @@ public class JenjinnHumanGameModel implements ChessGameModel
 
 	private double moveTime = 5;
 
+	/** Whether Jenjinn searches the expected reply while the human thinks. */
+	private boolean pondering = true;
+
 	private JenjinnHumanGameModel()
 	{
 	}
@@ -215,6 +218,10 @@ public class JenjinnHumanGameModel implements ChessGameModel
 
 				final boolean terminal = getPresentGameState().getTerminationState().isTerminal();
 
+				if (pondering && !terminal) {
+					jenjinn.startPondering(getPresentGameState());
+				}
+
 				// Tell the FX thread to do the updates.
 				Platform.runLater(() -> {
 					fireDisplayUpdate();
@@ -252,6 +259,7 @@ public class JenjinnHumanGameModel implements ChessGameModel
 
 	private void triggerEndOfGame()
 	{
+		jenjinn.stopPondering();
 
 	}
 
@@ -297,6 +305,32 @@ public class JenjinnHumanGameModel implements ChessGameModel
 		return moveTime;
 	}
 
+	/**
+	 * @return the percentage of the engine's moves, made while pondering, for
+	 *         which it had pondered on the right reply.
+	 */
+	public double getPonderHitRate()
+	{
+		return jenjinn.getPonderHitRate();
+	}
+
+	/**
+	 * @return how much deeper, on average, the engine searched after a ponder
+	 *         hit than from scratch.
+	 */
+	public double getAverageDepthGained()
+	{
+		return jenjinn.getAverageDepthGained();
+	}
+
+	public void setPondering(final boolean pondering)
+	{
+		this.pondering = pondering;
+		if (!pondering) {
+			jenjinn.stopPondering();
+		}
+	}
+
 	@Override
 	public void setMoveTimeLimit(final double scaleFactor)
 	{
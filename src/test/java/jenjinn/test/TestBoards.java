@@ -0,0 +1,128 @@
+package jenjinn.test;
+
+import static jenjinn.engine.boardstate.BoardStateConstants.getEndGamePST;
+import static jenjinn.engine.boardstate.BoardStateConstants.getMiddleGamePST;
+import static jenjinn.engine.boardstate.BoardStateConstants.getStateHasher;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import jenjinn.engine.boardstate.BoardState;
+import jenjinn.engine.boardstate.BoardStateImpl;
+import jenjinn.engine.enums.Side;
+import jenjinn.engine.exceptions.AmbiguousPgnException;
+import jenjinn.engine.openingdatabase.AlgebraicCommand;
+import jenjinn.engine.pieces.ChessPiece;
+import jenjinn.io.pgnutils.ChessGameReader;
+
+/**
+ * Builds test positions from the first two fields of a FEN string, the piece
+ * placement and the side to move, or from the piece locations. Neither side
+ * may castle and there is no en passant square. Also replays the games of the
+ * position provider resources.
+ *
+ * @author ThomasB
+ */
+public final class TestBoards
+{
+	private static final String PIECE_CHARS = "PBNRQK";
+
+	private TestBoards()
+	{
+	}
+
+	public static BoardState fromFen(final String fen)
+	{
+		final String[] fields = fen.trim().split(" ");
+		final long[] pieceLocs = new long[12];
+		int rank = 7, file = 0;
+		for (final char c : fields[0].toCharArray()) {
+			if (c == '/') {
+				rank--;
+				file = 0;
+			}
+			else if (Character.isDigit(c)) {
+				file += c - '0';
+			}
+			else {
+				final int index = PIECE_CHARS.indexOf(Character.toUpperCase(c)) + (Character.isUpperCase(c) ? 0 : 6);
+				// Square zero is h1
+				pieceLocs[index] |= 1L << (8 * rank + 7 - file);
+				file++;
+			}
+		}
+
+		return create(pieceLocs, fields.length > 1 && fields[1].equals("b") ? Side.B : Side.W);
+	}
+
+	/**
+	 * @param pieceLocs
+	 *            the locations of each piece, indexed as in
+	 *            {@link BoardState#getPieceLocations(int)}.
+	 */
+	public static BoardState create(final long[] pieceLocs, final Side toMove)
+	{
+		long hash = toMove.isWhite() ? 0L : getStateHasher().getBlackToMove();
+		int midEval = 0, endEval = 0;
+		for (byte i = 0; i < 12; i++) {
+			for (byte sq = 0; sq < 64; sq++) {
+				if ((pieceLocs[i] & (1L << sq)) != 0) {
+					hash ^= getStateHasher().getSquarePieceFeature(sq, ChessPiece.get(i));
+					midEval += getMiddleGamePST().getPieceSquareValue(i, sq);
+					endEval += getEndGamePST().getPieceSquareValue(i, sq);
+				}
+			}
+		}
+		return new BoardStateImpl(new long[] { hash, 1L, 2L, 3L }, toMove.isWhite() ? 0 : 1, 0, 0, BoardState.NO_ENPASSANT, 0, 0, midEval, endEval, 0, pieceLocs);
+	}
+
+	/**
+	 * @param provider
+	 *            the name of a position provider resource, e.g.
+	 *            carlsenprovider.txt.
+	 * @return its games, one line of algebraic commands each. A provider which
+	 *         is missing or cannot be read fails the test.
+	 */
+	public static List<String> readGames(final String provider)
+	{
+		final InputStream is = TestBoards.class.getResourceAsStream("/" + provider);
+		if (is == null) {
+			throw new AssertionError("Missing position provider " + provider);
+		}
+		try (BufferedReader reader = new BufferedReader(new InputStreamReader(is, StandardCharsets.ISO_8859_1))) {
+			return reader.lines().collect(Collectors.toList());
+		}
+		catch (final IOException e) {
+			throw new UncheckedIOException(e);
+		}
+	}
+
+	/**
+	 * @return the positions of the given game from the start position on. A few
+	 *         games in the providers have a move our notation reader cannot tell
+	 *         from another, those are cut short before that move.
+	 */
+	public static List<BoardState> replay(final String game)
+	{
+		final List<BoardState> positions = new ArrayList<>();
+		BoardState state = BoardStateImpl.getStartBoard();
+		positions.add(state);
+		try {
+			for (final AlgebraicCommand command : ChessGameReader.processSequenceOfCommands(game.trim())) {
+				state = state.generateMove(command).evolve(state);
+				positions.add(state);
+			}
+		}
+		catch (final AmbiguousPgnException e) {
+			// The positions up to the ambiguous move are still good
+		}
+		return positions;
+	}
+}
@@ -0,0 +1,153 @@
+package jenjinn.test.bitbase;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.stream.Stream;
+
+import org.junit.BeforeClass;
+import org.junit.ClassRule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import jenjinn.engine.bitbase.BitbaseGenerator;
+import jenjinn.engine.bitbase.BitbaseResult;
+import jenjinn.engine.bitbase.BitbaseType;
+import jenjinn.engine.bitbase.Bitbases;
+import jenjinn.engine.boardstate.BoardState;
+import jenjinn.engine.enums.Side;
+import jenjinn.test.TestBoards;
+
+/**
+ * Generates the bitbases and checks known results of the king and pawn ending,
+ * probed for either side to move and with either side having the pawn.
+ *
+ * @author ThomasB
+ */
+public class BitbasesTest
+{
+	private static final int RANDOM_POSITIONS = 5000;
+
+	@ClassRule
+	public static final TemporaryFolder FOLDER = new TemporaryFolder();
+
+	private static Bitbases bitbases;
+
+	@BeforeClass
+	public static void generate() throws IOException
+	{
+		BitbaseGenerator.generate(FOLDER.getRoot().toPath());
+		bitbases = Bitbases.load(FOLDER.getRoot().toPath());
+	}
+
+	@Test
+	public void testLoaded()
+	{
+		for (final BitbaseType type : BitbaseType.values()) {
+			assertTrue(bitbases.contains(type));
+		}
+	}
+
+	@Test
+	public void testKnownResults()
+	{
+		// The king on the sixth rank in front of its pawn wins whoever is to move
+		assertEquals(BitbaseResult.WIN, probe("4k3/8/4K3/4P3/8/8/8/8 w"));
+		assertEquals(BitbaseResult.LOSS, probe("4k3/8/4K3/4P3/8/8/8/8 b"));
+		// Two squares in front of the pawn too
+		assertEquals(BitbaseResult.WIN, probe("8/8/4k3/8/4K3/8/4P3/8 w"));
+		assertEquals(BitbaseResult.LOSS, probe("8/8/4k3/8/4K3/8/4P3/8 b"));
+		// One square in front the opposition decides
+		assertEquals(BitbaseResult.DRAW, probe("8/8/4k3/8/4K3/4P3/8/8 w"));
+		assertEquals(BitbaseResult.LOSS, probe("8/8/4k3/8/4K3/4P3/8/8 b"));
+		// A king in front of the rook pawn holds
+		assertEquals(BitbaseResult.DRAW, probe("k7/8/8/8/8/8/P7/K7 w"));
+		assertEquals(BitbaseResult.DRAW, probe("7k/8/8/8/8/8/7P/7K b"));
+		// The pawn outruns a king outside its square but falls to one inside
+		assertEquals(BitbaseResult.WIN, probe("8/8/8/8/P7/8/8/K6k w"));
+		assertEquals(BitbaseResult.DRAW, probe("8/8/8/8/P7/4k3/8/K7 b"));
+		assertEquals(BitbaseResult.DRAW, probe("8/8/8/8/8/3k4/4P3/K7 b"));
+	}
+
+	/**
+	 * The same positions with the colours swapped, the results are for the side
+	 * to move so they do not change.
+	 */
+	@Test
+	public void testBlackPawn()
+	{
+		assertEquals(BitbaseResult.WIN, probe("8/8/8/8/4p3/4k3/8/4K3 b"));
+		assertEquals(BitbaseResult.LOSS, probe("8/8/8/8/4p3/4k3/8/4K3 w"));
+		assertEquals(BitbaseResult.DRAW, probe("8/8/4p3/4k3/8/4K3/8/8 b"));
+		assertEquals(BitbaseResult.LOSS, probe("8/8/4p3/4k3/8/4K3/8/8 w"));
+	}
+
+	/**
+	 * Mirroring a position across the files, or swapping the colours and ranks,
+	 * must not change its result for the side to move.
+	 */
+	@Test
+	public void testSymmetries()
+	{
+		final Random random = new Random(39);
+		int tested = 0;
+		while (tested < RANDOM_POSITIONS) {
+			final long[] pieceLocs = new long[12];
+			pieceLocs[0] = 1L << (8 + random.nextInt(48));
+			pieceLocs[5] = 1L << random.nextInt(64);
+			pieceLocs[11] = 1L << random.nextInt(64);
+			final Side toMove = random.nextBoolean() ? Side.W : Side.B;
+			final BoardState state = TestBoards.create(pieceLocs, toMove);
+			if (Long.bitCount(pieceLocs[0] | pieceLocs[5] | pieceLocs[11]) < 3 || state.isTerminal()) {
+				continue;
+			}
+			tested++;
+			final BitbaseResult result = bitbases.probe(state);
+
+			final long[] mirrored = new long[12], swapped = new long[12];
+			for (int i = 0; i < 12; i++) {
+				mirrored[i] = mirrorFiles(pieceLocs[i]);
+				swapped[(i + 6) % 12] = Long.reverseBytes(pieceLocs[i]);
+			}
+			final String position = state.toString();
+			assertEquals(position, result, bitbases.probe(TestBoards.create(mirrored, toMove)));
+			assertEquals(position, result, bitbases.probe(TestBoards.create(swapped, toMove.otherSide())));
+		}
+	}
+
+	@Test
+	public void testOtherMaterial()
+	{
+		assertNull(bitbases.probe(TestBoards.fromFen("4k3/8/4K3/4P3/4P3/8/8/8 w")));
+		assertNull(bitbases.probe(TestBoards.fromFen("4k3/4p3/4K3/4P3/8/8/8/8 w")));
+		assertNull(Bitbases.empty().probe(TestBoards.fromFen("4k3/8/4K3/4P3/8/8/8/8 w")));
+	}
+
+	@Test(expected = UncheckedIOException.class)
+	public void testCorruptFile() throws IOException
+	{
+		// A truncated copy of one of the generated files
+		final Path directory = FOLDER.newFolder().toPath();
+		try (Stream<Path> files = Files.list(FOLDER.getRoot().toPath())) {
+			final Path file = files.filter(Files::isRegularFile).findFirst().get();
+			Files.write(directory.resolve(file.getFileName()), new byte[] { 1, 2, 3 });
+		}
+		Bitbases.load(directory);
+	}
+
+	private static BitbaseResult probe(final String fen)
+	{
+		return bitbases.probe(TestBoards.fromFen(fen));
+	}
+
+	private static long mirrorFiles(final long bitboard)
+	{
+		return Long.reverseBytes(Long.reverse(bitboard));
+	}
+}
@@ -0,0 +1,49 @@
+package jenjinn.test.boardrepresentation;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+import java.util.Random;
+
+import org.junit.Test;
+
+import jenjinn.engine.boardstate.BoardState;
+import jenjinn.engine.boardstate.BoardStateImpl;
+import jenjinn.engine.moves.CastleMove;
+import jenjinn.engine.moves.ChessMove;
+import jenjinn.engine.moves.EnPassantMove;
+import jenjinn.engine.moves.PromotionMove;
+
+/**
+ * Checks the pawn and king hash each move updates against one calculated from
+ * the piece locations, over random games which reach every kind of move.
+ *
+ * @author ThomasB
+ */
+public class PawnKingHashTest
+{
+	private static final int GAMES = 1000, MAX_PLIES = 300;
+
+	@Test
+	public void test()
+	{
+		final Random random = new Random(46);
+		int castles = 0, enPassants = 0, promotions = 0;
+		for (int game = 0; game < GAMES; game++) {
+			BoardState state = BoardStateImpl.getStartBoard();
+			for (int ply = 0; ply < MAX_PLIES && !state.isTerminal(); ply++) {
+				final List<ChessMove> moves = state.getMoves();
+				final ChessMove mv = moves.get(random.nextInt(moves.size()));
+				castles += mv instanceof CastleMove ? 1 : 0;
+				enPassants += mv instanceof EnPassantMove ? 1 : 0;
+				promotions += mv instanceof PromotionMove ? 1 : 0;
+
+				state = mv.evolve(state);
+				assertEquals("After " + mv + " in game " + game, BoardStateImpl.calculatePawnKingHash(state.getPieceLocationsCopy()),
+						state.getPawnKingHash());
+			}
+		}
+		assertTrue(castles > 0 && enPassants > 0 && promotions > 0);
+	}
+}
@@ -0,0 +1,73 @@
+package jenjinn.test.evaluation;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import jenjinn.engine.evaluation.EvaluationCache;
+
+/**
+ * Checks that scores survive being packed into a cache entry, whatever their
+ * sign, and that only the hash they were stored under finds them.
+ *
+ * @author ThomasB
+ */
+public class EvaluationCacheTest
+{
+	private static final long HASH = 0x9E3779B97F4A7C15L;
+
+	@Test
+	public void testNegativeScores()
+	{
+		final EvaluationCache cache = EvaluationCache.createDefault();
+		for (final short score : new short[] { -1, -2, -255, -256, -1000, -12345 }) {
+			cache.store(HASH, score);
+			assertEquals(score, cache.probe(HASH));
+		}
+		cache.store(HASH, (short) 0);
+		assertEquals(0, cache.probe(HASH));
+		cache.store(HASH, (short) 1);
+		assertEquals(1, cache.probe(HASH));
+	}
+
+	/**
+	 * The scores next to the smallest short sign extend nearest to
+	 * {@link EvaluationCache#NO_ENTRY} but must never be mistaken for it.
+	 */
+	@Test
+	public void testExtremeScores()
+	{
+		final EvaluationCache cache = EvaluationCache.createDefault();
+		for (final short score : new short[] { Short.MIN_VALUE, Short.MIN_VALUE + 1, Short.MAX_VALUE - 1, Short.MAX_VALUE }) {
+			cache.store(HASH, score);
+			assertEquals(score, cache.probe(HASH));
+		}
+	}
+
+	@Test
+	public void testDifferentKeySameIndex()
+	{
+		final EvaluationCache cache = EvaluationCache.createDefault();
+		cache.store(HASH, (short) -42);
+		// The index never uses bit 30 or above, so these hashes share the slot
+		for (int bit = 30; bit < 64; bit++) {
+			assertEquals("Bit " + bit, EvaluationCache.NO_ENTRY, cache.probe(HASH ^ (1L << bit)));
+		}
+		assertEquals(-42, cache.probe(HASH));
+
+		// The newer position replaces the older in the shared slot
+		final long other = HASH ^ (1L << 47);
+		cache.store(other, (short) 7);
+		assertEquals(7, cache.probe(other));
+		assertEquals(EvaluationCache.NO_ENTRY, cache.probe(HASH));
+	}
+
+	@Test
+	public void testClear()
+	{
+		final EvaluationCache cache = EvaluationCache.create(1);
+		cache.store(HASH, Short.MIN_VALUE);
+		cache.clear();
+		assertEquals(EvaluationCache.NO_ENTRY, cache.probe(HASH));
+	}
+}
@@ -0,0 +1,119 @@
+package jenjinn.test.evaluation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import jenjinn.engine.boardstate.BoardState;
+import jenjinn.engine.enums.GameStage;
+import jenjinn.engine.evaluation.BoardEvaluator;
+import jenjinn.engine.evaluation.EvaluatingComponent;
+import jenjinn.engine.evaluation.EvaluationContext;
+import jenjinn.engine.evaluation.material.MaterialTable;
+import jenjinn.test.TestBoards;
+
+/**
+ * Checks the game stage chosen for each kind of material and that the
+ * evaluator runs the components given for that stage.
+ *
+ * @author ThomasB
+ */
+public class GameStageTest
+{
+	private static final String MIDDLEGAME = "rnbqkbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w",
+			QUEENLESS_MIDDLEGAME = "rnb1kbnr/pppppppp/8/8/8/8/PPPPPPPP/RNB1KBNR w",
+			ENDGAME = "3qk3/pppppppp/8/8/8/8/PPPPPPPP/3QK3 w";
+
+	@Test
+	public void testStages()
+	{
+		assertStage(GameStage.MIDDLEGAME, MIDDLEGAME);
+		// One queen is enough
+		assertStage(GameStage.MIDDLEGAME, "rnb1kbnr/pppppppp/8/8/8/8/PPPPPPPP/RNBQKBNR w");
+		// A queen and a knight each is a piece phase of 14
+		assertStage(GameStage.MIDDLEGAME, "1n1qk3/pppppppp/8/8/8/8/PPPPPPPP/1N1QK3 w");
+
+		assertStage(GameStage.QUEENLESS_MIDDLEGAME, QUEENLESS_MIDDLEGAME);
+		// Two rooks and a bishop each is a piece phase of 14
+		assertStage(GameStage.QUEENLESS_MIDDLEGAME, "r1b1k2r/pppppppp/8/8/8/8/PPPPPPPP/R1B1K2R w");
+
+		// From a piece phase of 16
+		assertStage(GameStage.ENDGAME, ENDGAME);
+		assertStage(GameStage.ENDGAME, "r3k2r/pppppppp/8/8/8/8/PPPPPPPP/R3K2R w");
+		assertStage(GameStage.ENDGAME, "r1b1k1n1/pppppppp/8/8/8/8/PPPPPPPP/R1B1K1N1 w");
+		assertStage(GameStage.ENDGAME, "4k3/pppppppp/8/8/8/8/PPPPPPPP/4K3 w");
+		// However lopsided the material
+		assertStage(GameStage.ENDGAME, "4k3/pppppppp/8/8/8/8/PPPPPPPP/RN1QK3 w");
+	}
+
+	@Test
+	public void testPipelines()
+	{
+		final List<String> ran = new ArrayList<>();
+		final BoardEvaluator evaluator = new BoardEvaluator(stage -> Arrays.asList(new Recorder(stage.name(), ran)));
+
+		for (final GameStage stage : GameStage.values()) {
+			ran.clear();
+			evaluator.evaluate(TestBoards.fromFen(getPosition(stage)));
+			assertEquals(Arrays.asList(stage.name()), ran);
+		}
+	}
+
+	@Test
+	public void testSamePipelineAtEveryStage()
+	{
+		final List<String> ran = new ArrayList<>();
+		final BoardEvaluator evaluator = new BoardEvaluator(Arrays.asList(new Recorder("first", ran), new Recorder("second", ran)));
+
+		for (final GameStage stage : GameStage.values()) {
+			ran.clear();
+			evaluator.evaluate(TestBoards.fromFen(getPosition(stage)));
+			assertEquals(stage.name(), Arrays.asList("first", "second"), ran);
+		}
+	}
+
+	private static String getPosition(final GameStage stage)
+	{
+		switch (stage) {
+		case MIDDLEGAME:
+			return MIDDLEGAME;
+		case QUEENLESS_MIDDLEGAME:
+			return QUEENLESS_MIDDLEGAME;
+		default:
+			return ENDGAME;
+		}
+	}
+
+	private static void assertStage(final GameStage expected, final String fen)
+	{
+		final BoardState state = TestBoards.fromFen(fen);
+		assertEquals(fen, expected, MaterialTable.createDefault().get(state.getMaterialKey()).getGameStage());
+	}
+
+	/**
+	 * Scores nothing but records its name each time it runs.
+	 */
+	private static final class Recorder implements EvaluatingComponent
+	{
+		private final String name;
+
+		private final List<String> ran;
+
+		Recorder(final String name, final List<String> ran)
+		{
+			this.name = name;
+			this.ran = ran;
+		}
+
+		@Override
+		public int evaluate(final EvaluationContext context)
+		{
+			ran.add(name);
+			return 0;
+		}
+	}
+}
@@ -0,0 +1,81 @@
+package jenjinn.test.evaluation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.function.BiConsumer;
+
+import org.junit.Test;
+
+import jenjinn.engine.boardstate.BoardState;
+import jenjinn.engine.evaluation.EvaluatingComponent;
+import jenjinn.engine.evaluation.EvaluationContext;
+import jenjinn.engine.evaluation.PawnTable;
+import jenjinn.engine.evaluation.componentimpl.PawnStructureV1;
+import jenjinn.engine.evaluation.componentimpl.PawnStructureV2;
+import jenjinn.test.TestBoards;
+
+/**
+ * Checks that the setwise pawn structure evaluation agrees with the original
+ * on every position of every game in the position providers, and that a score
+ * found in the pawn table is the one the component would have computed.
+ *
+ * @author ThomasB
+ */
+public class PawnStructureTest
+{
+	private static final String[] POSITIONPROVIDERS = {
+			"carlsenprovider.txt", "fischerprovider.txt", "grischukprovider.txt", "karpovprovider.txt",
+			"kasparovprovider.txt", "petrosianprovider.txt", "talprovider.txt", "topalovprovider.txt" };
+
+	private final EvaluatingComponent original = new PawnStructureV1(), setwise = new PawnStructureV2();
+
+	@Test
+	public void test()
+	{
+		forEachPosition((state, errorOutput) -> assertEquals(errorOutput, evaluateUncached(original, state),
+				evaluateUncached(setwise, state)));
+	}
+
+	/**
+	 * One table per component is shared by every position of every game, as in
+	 * a search, so most scores come from positions reached earlier with other
+	 * pieces.
+	 */
+	@Test
+	public void testCachedScores()
+	{
+		final EvaluationContext originalContext = new EvaluationContext(PawnTable.createDefault());
+		final EvaluationContext setwiseContext = new EvaluationContext(PawnTable.createDefault());
+		forEachPosition((state, errorOutput) -> {
+			final int expected = evaluateUncached(original, state);
+			originalContext.initialise(state);
+			setwiseContext.initialise(state);
+			assertEquals(errorOutput, expected, original.evaluate(originalContext));
+			assertEquals(errorOutput, expected, setwise.evaluate(setwiseContext));
+		});
+	}
+
+	private static void forEachPosition(final BiConsumer<BoardState, String> check)
+	{
+		for (final String posProvider : POSITIONPROVIDERS) {
+			for (final String game : TestBoards.readGames(posProvider)) {
+				final List<BoardState> positions = TestBoards.replay(game);
+				for (int ply = 0; ply < positions.size(); ply++) {
+					check.accept(positions.get(ply), "ply " + ply + " in: " + game);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Both components keep their score in the pawn table so each needs a fresh
+	 * one to be sure it does the work itself.
+	 */
+	private static int evaluateUncached(final EvaluatingComponent component, final BoardState state)
+	{
+		final EvaluationContext context = new EvaluationContext(PawnTable.create(0));
+		context.initialise(state);
+		return component.evaluate(context);
+	}
+}
@@ -6,18 +6,25 @@ package jenjinn.test.evaluation;
 import static jenjinn.engine.enums.Sq.a3;
 import static jenjinn.engine.enums.Sq.a6;
 import static jenjinn.engine.enums.Sq.b2;
+import static jenjinn.engine.enums.Sq.b3;
 import static jenjinn.engine.enums.Sq.b7;
 import static jenjinn.engine.enums.Sq.b8;
 import static jenjinn.engine.enums.Sq.c1;
 import static jenjinn.engine.enums.Sq.c2;
 import static jenjinn.engine.enums.Sq.c7;
+import static jenjinn.engine.enums.Sq.d2;
 import static jenjinn.engine.enums.Sq.d3;
+import static jenjinn.engine.enums.Sq.d4;
+import static jenjinn.engine.enums.Sq.d5;
 import static jenjinn.engine.enums.Sq.d7;
 import static jenjinn.engine.enums.Sq.d8;
 import static jenjinn.engine.enums.Sq.e1;
 import static jenjinn.engine.enums.Sq.e2;
 import static jenjinn.engine.enums.Sq.e5;
+import static jenjinn.engine.enums.Sq.f1;
+import static jenjinn.engine.enums.Sq.f3;
 import static jenjinn.engine.enums.Sq.f6;
+import static jenjinn.engine.enums.Sq.f7;
 import static jenjinn.engine.enums.Sq.g2;
 import static jenjinn.engine.enums.Sq.g3;
 import static jenjinn.engine.enums.Sq.h2;
@@ -30,7 +37,9 @@ import org.junit.Test;
 
 import jenjinn.engine.boardstate.BoardState;
 import jenjinn.engine.boardstate.BoardStateImpl;
+import jenjinn.engine.enums.Sq;
 import jenjinn.engine.evaluation.StaticExchangeEvaluator;
+import jenjinn.test.TestBoards;
 
 /**
  * @author t
@@ -42,6 +51,11 @@ public class SEETest
 
 	private static final int EXPECTED_TEST1 = 100, EXPECTED_TEST2 = -225;
 
+	/** Needed once a king may take part in the exchange. */
+	private static final short[] PIECE_VALUES_WITH_KING = { 100, 325, 325, 500, 1000, 20000 };
+
+	private final StaticExchangeEvaluator see = new StaticExchangeEvaluator();
+
 	/**
 	 * Test method for
 	 * {@link jenjinn.engine.evaluation.StaticExchangeEvaluator#eval(byte, byte, jenjinn.engine.boardstate.BoardState, short[])}.
@@ -87,4 +101,45 @@ public class SEETest
 
 		return new BoardStateImpl(null, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, 0L, pieceLocs);
 	}
+
+	/**
+	 * Each recapture reveals a slider behind the piece which made it, without the
+	 * x-ray the exchanges would all come out lower.
+	 */
+	@Test
+	public void testXrays()
+	{
+		// Nxe5 Nxe5 dxe5 and black declines Bxe5 because of the bishop behind the pawn
+		assertEquals(100, evaluate("1k6/6b1/2n5/4p3/3P4/2B2N2/8/6K1 w", e5, f3));
+		// Bxd5 exd5 Qxd5 with the queen behind the bishop
+		assertEquals(100, evaluate("6k1/8/4p3/3n4/8/1B6/Q7/6K1 w", d5, b3));
+		// Qxd5 Rxd5 Rxd5 with the rook behind the queen
+		assertEquals(0, evaluate("3r2k1/8/8/3r4/8/8/3Q4/3R2K1 w", d5, d2));
+	}
+
+	/**
+	 * The king recaptures only onto a square no enemy piece attacks.
+	 */
+	@Test
+	public void testKingParticipation()
+	{
+		assertEquals(-400, evaluate("6k1/5p2/8/8/8/8/8/5RK1 w", f7, f1));
+		assertEquals(100, evaluate("6k1/5p2/8/8/8/1B6/8/5RK1 w", f7, f1));
+	}
+
+	/**
+	 * After dxe5 fxe5 Rxe5 Bxe5 Qxe5 white is worse off than by stopping after
+	 * fxe5, so the evaluation ends there with the knight for a pawn although
+	 * black still has the rook to recapture with.
+	 */
+	@Test
+	public void testWindowEarlyExit()
+	{
+		assertEquals(225, evaluate("k3r3/2b5/5p2/4n3/3P4/8/7Q/2K1R3 w", e5, d4));
+	}
+
+	private int evaluate(final String fen, final Sq target, final Sq from)
+	{
+		return see.eval((byte) target.ordinal(), (byte) from.ordinal(), TestBoards.fromFen(fen), PIECE_VALUES_WITH_KING);
+	}
 }
@@ -0,0 +1,94 @@
+package jenjinn.test.evaluation;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import jenjinn.engine.evaluation.TaperedScore;
+
+/**
+ * Checks that both halves of a packed score decode to what was packed, and
+ * still do after the packed sums and products the evaluation relies on.
+ *
+ * @author ThomasB
+ */
+public class TaperedScoreTest
+{
+	private static final int RANDOM_SUMS = 100000;
+
+	@Test
+	public void testNegativeMid()
+	{
+		assertDecodes(-1, 0);
+		assertDecodes(-1, 1);
+		assertDecodes(-1, -1);
+		assertDecodes(-300, 250);
+		assertDecodes(-300, -250);
+		assertDecodes(-300, 0);
+	}
+
+	@Test
+	public void testExtremes()
+	{
+		final int[] extremes = { Short.MIN_VALUE, Short.MIN_VALUE + 1, -1, 0, 1, Short.MAX_VALUE - 1, Short.MAX_VALUE };
+		for (final int mid : extremes) {
+			for (final int end : extremes) {
+				assertDecodes(mid, end);
+			}
+		}
+	}
+
+	/**
+	 * Sums whose middle game half crosses zero borrow from or carry into the end
+	 * game half, which decoding must undo.
+	 */
+	@Test
+	public void testCarryingSums()
+	{
+		assertEquals(TaperedScore.of(-1, 10), TaperedScore.of(5, 4) + TaperedScore.of(-6, 6));
+		assertSum(5, 4, -6, 6);
+		assertSum(-6, 6, 5, 4);
+		assertSum(-20000, 100, 30000, -100);
+		assertSum(Short.MIN_VALUE, Short.MAX_VALUE, Short.MAX_VALUE, Short.MIN_VALUE);
+		assertSum(0, Short.MIN_VALUE, -1, Short.MAX_VALUE);
+
+		final int packed = TaperedScore.of(-7, 3);
+		assertEquals(-21, TaperedScore.mid(3 * packed));
+		assertEquals(9, TaperedScore.end(3 * packed));
+		assertEquals(7, TaperedScore.mid(-packed));
+		assertEquals(-3, TaperedScore.end(-packed));
+		assertEquals(0, TaperedScore.mid(packed - packed));
+		assertEquals(0, TaperedScore.end(packed - packed));
+
+		final Random random = new Random(48);
+		for (int i = 0; i < RANDOM_SUMS; i++) {
+			assertSum(random.nextInt(8000) - 4000, random.nextInt(8000) - 4000, random.nextInt(8000) - 4000, random.nextInt(8000) - 4000);
+		}
+	}
+
+	@Test
+	public void testInterpolate()
+	{
+		final int packed = TaperedScore.of(-100, 60);
+		assertEquals(-100, TaperedScore.interpolate(packed, 0));
+		assertEquals(60, TaperedScore.interpolate(packed, 256));
+		assertEquals(-20, TaperedScore.interpolate(packed, 128));
+	}
+
+	private static void assertDecodes(final int mid, final int end)
+	{
+		final int packed = TaperedScore.of(mid, end);
+		assertEquals("mid of " + mid + ", " + end, mid, TaperedScore.mid(packed));
+		assertEquals("end of " + mid + ", " + end, end, TaperedScore.end(packed));
+	}
+
+	private static void assertSum(final int mid1, final int end1, final int mid2, final int end2)
+	{
+		final int sum = TaperedScore.of(mid1, end1) + TaperedScore.of(mid2, end2);
+		final String message = mid1 + ", " + end1 + " + " + mid2 + ", " + end2;
+		assertEquals(message, mid1 + mid2, TaperedScore.mid(sum));
+		assertEquals(message, end1 + end2, TaperedScore.end(sum));
+	}
+}
@@ -0,0 +1,123 @@
+package jenjinn.test.gametree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import jenjinn.engine.boardstate.BoardState;
+import jenjinn.engine.evaluation.BoardEvaluator;
+import jenjinn.engine.gametree.MateScore;
+import jenjinn.engine.gametree.MultiPvLine;
+import jenjinn.engine.gametree.TTAlphaBetaV1_2;
+import jenjinn.test.TestBoards;
+
+/**
+ * Checks the conversions of mate scores between the root and the nodes of the
+ * transposition table, and that the search reports and prunes by the distance
+ * to mate.
+ *
+ * @author ThomasB
+ */
+public class MateScoreTest
+{
+	private static final int[] PLIES = { 0, 1, 2, 7, 60 };
+
+	@Test
+	public void testWinAt()
+	{
+		assertEquals(MateScore.MATE, MateScore.winAt(0));
+		for (final int ply : PLIES) {
+			assertEquals(MateScore.MATE - ply, MateScore.winAt(ply));
+			assertTrue(MateScore.isMate(MateScore.winAt(ply)));
+			assertTrue(MateScore.isMate(-MateScore.winAt(ply)));
+		}
+		assertFalse(MateScore.isMate(MateScore.THRESHOLD));
+		assertFalse(MateScore.isMate(-MateScore.THRESHOLD));
+	}
+
+	@Test
+	public void testToMoves()
+	{
+		// The king is taken two plies after a mate in one
+		assertEquals(1, MateScore.toMoves(MateScore.winAt(2)));
+		assertEquals(2, MateScore.toMoves(MateScore.winAt(4)));
+		assertEquals(3, MateScore.toMoves(MateScore.winAt(6)));
+		// Mated by the reply, and after our next move
+		assertEquals(-1, MateScore.toMoves(-MateScore.winAt(1)));
+		assertEquals(-2, MateScore.toMoves(-MateScore.winAt(3)));
+	}
+
+	/**
+	 * A mate found below a node is stored as the distance from that node and read
+	 * back as the distance from the root of the node reading it.
+	 */
+	@Test
+	public void testTableConversions()
+	{
+		// Winning scores get closer to mate when stored, losing ones get further from it
+		assertEquals(MateScore.winAt(2), MateScore.toTable(MateScore.winAt(5), 3));
+		assertEquals(-MateScore.winAt(2), MateScore.toTable(-MateScore.winAt(5), 3));
+		assertEquals(MateScore.winAt(5), MateScore.fromTable(MateScore.winAt(2), 3));
+		assertEquals(-MateScore.winAt(5), MateScore.fromTable(-MateScore.winAt(2), 3));
+
+		// Stored at ply three and read at ply one the mate is two plies nearer the root
+		assertEquals(MateScore.winAt(3), MateScore.fromTable(MateScore.toTable(MateScore.winAt(5), 3), 1));
+		assertEquals(-MateScore.winAt(3), MateScore.fromTable(MateScore.toTable(-MateScore.winAt(5), 3), 1));
+		// And read deeper than it was stored it moves further away
+		assertEquals(MateScore.winAt(9), MateScore.fromTable(MateScore.toTable(MateScore.winAt(5), 3), 7));
+
+		for (final int ply : PLIES) {
+			for (final int score : new int[] { 0, 500, -500, MateScore.THRESHOLD, -MateScore.THRESHOLD }) {
+				assertEquals(score, MateScore.toTable(score, ply));
+				assertEquals(score, MateScore.fromTable(score, ply));
+			}
+			for (final int distance : PLIES) {
+				final int win = MateScore.winAt(ply + distance);
+				assertEquals(win, MateScore.fromTable(MateScore.toTable(win, ply), ply));
+				assertEquals(-win, MateScore.fromTable(MateScore.toTable(-win, ply), ply));
+			}
+		}
+	}
+
+	/**
+	 * A node whose window already lies beyond the quickest mate still possible
+	 * from it returns without searching a single child.
+	 */
+	@Test
+	public void testMateDistancePruning() throws InterruptedException
+	{
+		final BoardState state = TestBoards.fromFen("r5k1/5ppp/8/8/8/3R4/3R1PPP/6K1 w");
+		final TTAlphaBetaV1_2 search = new TTAlphaBetaV1_2(BoardEvaluator.getDefault());
+		final int ply = 3;
+
+		// Even taking the king after our next move is worth at most a win at ply five
+		final int alpha = MateScore.winAt(ply + 2);
+		assertEquals(alpha, search.negamax(state, alpha, alpha + 10, 4, ply, false));
+		assertEquals(1, search.getStatistics().getNodes());
+	}
+
+	/**
+	 * Searching deeper than the mate needs still reports the quickest mate, here
+	 * in one move and in two, with a principal variation ending in the mate.
+	 */
+	@Test
+	public void testMateDistances()
+	{
+		assertMateIn(1, "6k1/5ppp/8/8/8/8/5PPP/3R2K1 w", 5);
+		assertMateIn(2, "r5k1/5ppp/8/8/8/3R4/3R1PPP/6K1 w", 6);
+	}
+
+	private void assertMateIn(final int moves, final String fen, final int depth)
+	{
+		final TTAlphaBetaV1_2 search = new TTAlphaBetaV1_2(BoardEvaluator.getDefault());
+		search.setSearchDepth(depth);
+		final List<MultiPvLine> lines = search.searchMultiPv(TestBoards.fromFen(fen), 1);
+		assertEquals(fen, MateScore.winAt(2 * moves), lines.get(0).getScore());
+		assertEquals(fen, moves, MateScore.toMoves(lines.get(0).getScore()));
+		assertEquals(fen, 2 * moves - 1, lines.get(0).getPrincipalVariation().size());
+	}
+}
@@ -0,0 +1,48 @@
+package jenjinn.test.gametree;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import jenjinn.engine.gametree.MctsSearch;
+import jenjinn.test.TestBoards;
+
+/**
+ * Checks that the tree search finds short forced mates within a modest number
+ * of playouts, on one worker and on several.
+ *
+ * @author ThomasB
+ */
+public class MctsSearchTest
+{
+	private static final int PLAYOUTS = 5000;
+
+	/** Positions with white to mate, each followed by the first move of the mate. */
+	private static final String[][] MATES = {
+			{ "k7/8/1K6/8/8/8/8/7R w", "h1h8" },
+			{ "6rk/6pp/7N/8/8/8/8/6K1 w", "h6f7" },
+			{ "r5k1/5ppp/8/8/8/3R4/3R1PPP/6K1 w", "d3d8" },
+	};
+
+	@Test
+	public void testSingleWorker()
+	{
+		testMates(1);
+	}
+
+	@Test
+	public void testSeveralWorkers()
+	{
+		testMates(3);
+	}
+
+	private void testMates(final int threadCount)
+	{
+		for (final String[] mate : MATES) {
+			final MctsSearch search = new MctsSearch();
+			search.setThreadCount(threadCount);
+			search.setPlayoutLimit(PLAYOUTS);
+			assertEquals("Wrong move in " + mate[0], mate[1], search.getBestMoveFrom(TestBoards.fromFen(mate[0])).toUciString());
+		}
+	}
+}
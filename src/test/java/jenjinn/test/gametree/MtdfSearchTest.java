@@ -0,0 +1,83 @@
+package jenjinn.test.gametree;
+
+import static org.junit.Assert.assertEquals;
+
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.Test;
+
+import jenjinn.engine.boardstate.BoardState;
+import jenjinn.engine.evaluation.BoardEvaluator;
+import jenjinn.engine.gametree.MtdfSearch;
+import jenjinn.engine.gametree.SearchInfo;
+import jenjinn.engine.gametree.SearchListener;
+import jenjinn.engine.gametree.SearchResult;
+import jenjinn.engine.gametree.TTAlphaBetaV1_2;
+import jenjinn.test.TestBoards;
+
+/**
+ * Checks that MTD(f) converges on the same root score as the full window
+ * search at the same depth, for positions taken from the middle of games.
+ *
+ * @author ThomasB
+ */
+public class MtdfSearchTest
+{
+	private static final String POSITIONPROVIDER = "carlsenprovider.txt";
+
+	private static final int GAMES = 12, PLIES = 20, DEPTH = 4;
+
+	@Test
+	public void test()
+	{
+		int gameCount = 0;
+		for (final String game : TestBoards.readGames(POSITIONPROVIDER)) {
+			final List<BoardState> positions = TestBoards.replay(game);
+			// Only positions the game goes on from, so that none is terminal
+			if (positions.size() <= PLIES + 1) {
+				continue;
+			}
+			final BoardState state = positions.get(PLIES);
+			assertEquals("In game: " + game, getScore(new TTAlphaBetaV1_2(BoardEvaluator.getDefault()), state),
+					getScore(new MtdfSearch(BoardEvaluator.getDefault()), state));
+			if (++gameCount == GAMES) {
+				break;
+			}
+		}
+		assertEquals(GAMES, gameCount);
+	}
+
+	/**
+	 * @return the root score of the last iteration, reports are delivered off the
+	 *         search thread so we wait for the end of the search to reach us.
+	 */
+	private int getScore(final TTAlphaBetaV1_2 search, final BoardState state)
+	{
+		final int[] score = new int[1];
+		final CountDownLatch completed = new CountDownLatch(1);
+		search.addSearchListener(new SearchListener()
+		{
+			@Override
+			public void onIterationComplete(final SearchInfo info)
+			{
+				score[0] = info.getScore();
+			}
+
+			@Override
+			public void onSearchComplete(final SearchResult result)
+			{
+				completed.countDown();
+			}
+		});
+		search.setSearchDepth(DEPTH);
+		search.search(state);
+		try {
+			completed.await();
+		}
+		catch (final InterruptedException e) {
+			throw new AssertionError(e);
+		}
+		return score[0];
+	}
+}
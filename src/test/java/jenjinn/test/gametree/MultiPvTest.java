@@ -0,0 +1,107 @@
+package jenjinn.test.gametree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import jenjinn.engine.boardstate.BoardState;
+import jenjinn.engine.evaluation.BoardEvaluator;
+import jenjinn.engine.gametree.MultiPvLine;
+import jenjinn.engine.gametree.TTAlphaBetaV1_2;
+import jenjinn.engine.moves.ChessMove;
+import jenjinn.test.TestBoards;
+
+/**
+ * Checks the lines of a multi-PV search against a normal search and against
+ * the legal moves of the position.
+ *
+ * @author ThomasB
+ */
+public class MultiPvTest
+{
+	private static final int DEPTH = 4, LINES = 3;
+
+	/** Each with a single best move: win the queen, mate in one and win a rook. */
+	private static final String[] DECIDED_POSITIONS = { "4k3/8/8/3q4/8/8/3Q4/4K3 w", "6k1/5ppp/8/8/8/8/5PPP/3R2K1 w", "4k3/8/8/8/8/2r5/8/2R1K3 w" };
+
+	private static final String[] POSITIONS = { "r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w", "2kr4/ppp5/8/8/8/8/5PPP/3QR1K1 w",
+			"4k3/8/8/3q4/8/8/3Q4/4K3 w" };
+
+	@Test
+	public void testTopLineMatchesSearch()
+	{
+		for (final String fen : DECIDED_POSITIONS) {
+			final BoardState state = TestBoards.fromFen(fen);
+			final ChessMove expected = createSearch().search(state).getMove();
+			final List<MultiPvLine> lines = createSearch().searchMultiPv(state, LINES);
+			assertEquals(fen, expected.toString(), lines.get(0).getMove().toString());
+		}
+	}
+
+	@Test
+	public void testLinesDistinctAndRanked()
+	{
+		for (final String fen : POSITIONS) {
+			final List<MultiPvLine> lines = createSearch().searchMultiPv(TestBoards.fromFen(fen), LINES);
+			assertEquals(fen, LINES, lines.size());
+			final Set<String> moves = new HashSet<>();
+			for (int i = 0; i < lines.size(); i++) {
+				assertTrue(fen, moves.add(lines.get(i).getMove().toString()));
+				assertEquals(fen, lines.get(i).getMove().toString(), lines.get(i).getPrincipalVariation().get(0).toString());
+				if (i > 0) {
+					assertTrue(fen, lines.get(i - 1).getScore() >= lines.get(i).getScore());
+				}
+			}
+		}
+	}
+
+	/**
+	 * Asking for every move only reports the legal ones, here the four king
+	 * moves as the bishop is pinned.
+	 */
+	@Test
+	public void testIllegalMovesExcluded()
+	{
+		final BoardState state = TestBoards.fromFen("4r1k1/8/8/8/8/8/4B3/4K3 w");
+		final List<MultiPvLine> lines = createSearch().searchMultiPv(state, state.getMoves().size());
+		assertEquals(4, countLegalMoves(state));
+		assertEquals(4, lines.size());
+		for (final MultiPvLine line : lines) {
+			assertFalse(line.toString(), line.getMove().evolve(state).getTerminationState().isWin());
+		}
+	}
+
+	/**
+	 * The king attacked by a rook it can take has two legal moves, taking it or
+	 * stepping to b1, while b2 is covered.
+	 */
+	@Test
+	public void testFewerLegalMovesThanLines()
+	{
+		final BoardState state = TestBoards.fromFen("7k/8/8/8/8/8/r7/K7 w");
+		assertEquals(2, countLegalMoves(state));
+		assertEquals(2, createSearch().searchMultiPv(state, 5).size());
+	}
+
+	private static int countLegalMoves(final BoardState state)
+	{
+		int count = 0;
+		for (final ChessMove mv : state.getMoves()) {
+			count += mv.evolve(state).getTerminationState().isWin() ? 0 : 1;
+		}
+		return count;
+	}
+
+	private static TTAlphaBetaV1_2 createSearch()
+	{
+		final TTAlphaBetaV1_2 search = new TTAlphaBetaV1_2(BoardEvaluator.getDefault());
+		search.setSearchDepth(DEPTH);
+		return search;
+	}
+}
@@ -0,0 +1,97 @@
+package jenjinn.test.gametree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import jenjinn.engine.boardstate.BoardState;
+import jenjinn.engine.gametree.ProofNumberSearch;
+import jenjinn.engine.gametree.ProofResult;
+import jenjinn.engine.moves.ChessMove;
+import jenjinn.test.TestBoards;
+
+/**
+ * Checks that the mate solver proves short mates with a line of the right
+ * length ending in mate, and disproves positions whose only tries stalemate.
+ *
+ * @author ThomasB
+ */
+public class ProofNumberSearchTest
+{
+	private static final int MAX_MATE_MOVES = 4;
+
+	@Test
+	public void testMateInOne()
+	{
+		assertMate(1, "6k1/5ppp/8/8/8/8/5PPP/3R2K1 w", "d1d8");
+		assertMate(1, "r1bqkb1r/pppp1ppp/2n2n2/4p2Q/2B1P3/8/PPPP1PPP/RNB1K1NR w", "h5f7");
+	}
+
+	@Test
+	public void testMateInTwo()
+	{
+		assertMate(2, "r5k1/5ppp/8/8/8/3R4/3R1PPP/6K1 w", "d3d8");
+		assertMate(2, "k7/8/2K5/8/8/8/8/6R1 w", "c6b6");
+	}
+
+	@Test
+	public void testMateInThree()
+	{
+		assertMate(3, "3k4/8/8/3K4/8/8/8/7R w", "d5d6");
+		assertMate(3, "k7/8/8/3K4/8/8/8/6R1 w", "d5c6");
+	}
+
+	/**
+	 * Kc7 and Ka6 leave black without a legal move but not in check, so they must
+	 * not count as mates although black can only put the king en prise.
+	 */
+	@Test
+	public void testStalemateTrap()
+	{
+		final ProofNumberSearch search = new ProofNumberSearch();
+		search.setSearchDepth(MAX_MATE_MOVES);
+		final ProofResult result = search.prove(TestBoards.fromFen("k7/P7/1K6/8/8/8/8/8 w"));
+		assertEquals(ProofResult.Status.DISPROVEN, result.getStatus());
+		assertTrue(result.getMatingLine().isEmpty());
+	}
+
+	/**
+	 * A mate is disproven when we look only for shorter ones.
+	 */
+	@Test
+	public void testMateBeyondDepth()
+	{
+		final ProofNumberSearch search = new ProofNumberSearch();
+		search.setSearchDepth(2);
+		assertEquals(ProofResult.Status.DISPROVEN, search.prove(TestBoards.fromFen("3k4/8/8/3K4/8/8/8/7R w")).getStatus());
+	}
+
+	private void assertMate(final int moves, final String fen, final String firstMove)
+	{
+		final ProofNumberSearch search = new ProofNumberSearch();
+		search.setSearchDepth(MAX_MATE_MOVES);
+		BoardState state = TestBoards.fromFen(fen);
+		final ProofResult result = search.prove(state);
+		assertEquals(fen, ProofResult.Status.PROVEN, result.getStatus());
+		assertEquals(fen, moves, result.getMateInMoves());
+
+		final List<ChessMove> line = result.getMatingLine();
+		assertEquals(fen, 2 * moves - 1, line.size());
+		assertEquals(fen, firstMove, line.get(0).toUciString());
+		for (final ChessMove mv : line) {
+			assertTrue(fen, state.getMoves().contains(mv));
+			state = mv.evolve(state);
+			assertFalse(fen, state.getTerminationState().isWin());
+		}
+
+		// Every reply leaves the king en prise and the king is in check now
+		assertTrue(fen, state.isInCheck());
+		for (final ChessMove reply : state.getMoves()) {
+			assertTrue(fen, reply.evolve(state).getTerminationState().isWin());
+		}
+	}
+}
@@ -0,0 +1,43 @@
+package jenjinn.test.gametree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+
+import org.junit.Test;
+
+import jenjinn.engine.boardstate.BoardState;
+import jenjinn.engine.evaluation.BoardEvaluator;
+import jenjinn.engine.gametree.TTAlphaBetaV1_2;
+import jenjinn.test.TestBoards;
+
+/**
+ * Checks that a reset search repeats the search of a new one node for node,
+ * so nothing learned from earlier searches survives it.
+ *
+ * @author ThomasB
+ */
+public class ResetTest
+{
+	private static final int DEPTH = 5;
+
+	private static final String[] POSITIONS = { "r1bqkb1r/pppp1ppp/2n2n2/4p3/2B1P3/5N2/PPPP1PPP/RNBQK2R w", "2kr4/ppp5/8/8/8/8/5PPP/3QR1K1 w" };
+
+	@Test
+	public void test()
+	{
+		final TTAlphaBetaV1_2 used = new TTAlphaBetaV1_2(BoardEvaluator.getDefault());
+		used.setSearchDepth(DEPTH);
+		for (final String fen : POSITIONS) {
+			final BoardState state = TestBoards.fromFen(fen);
+			final long firstNodes = used.search(state).getStatistics().getTotalNodes();
+			// Without the reset the table, killers and history speed up the repeat
+			assertNotEquals(fen, firstNodes, used.search(state).getStatistics().getTotalNodes());
+
+			final TTAlphaBetaV1_2 fresh = new TTAlphaBetaV1_2(BoardEvaluator.getDefault());
+			fresh.setSearchDepth(DEPTH);
+			final long expected = fresh.search(state).getStatistics().getTotalNodes();
+			used.reset();
+			assertEquals(fen, expected, used.search(state).getStatistics().getTotalNodes());
+		}
+	}
+}
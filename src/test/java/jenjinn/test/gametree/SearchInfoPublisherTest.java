@@ -0,0 +1,93 @@
+package jenjinn.test.gametree;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import jenjinn.engine.gametree.SearchInfo;
+import jenjinn.engine.gametree.SearchInfoPublisher;
+import jenjinn.engine.gametree.SearchListener;
+import jenjinn.engine.gametree.SearchResult;
+import jenjinn.engine.gametree.SearchStatistics;
+
+/**
+ * Checks that the publisher keeps only the latest throttled report, that
+ * completing a search flushes it ahead of the result and that listeners are
+ * called off the publishing thread.
+ *
+ * @author ThomasB
+ */
+public class SearchInfoPublisherTest
+{
+	/** Long enough that no throttled dispatch can happen during the test. */
+	private static final long INTERVAL_MILLIS = 60_000;
+
+	private static final long TIMEOUT_SECONDS = 10;
+
+	@Test
+	public void test() throws InterruptedException
+	{
+		final SearchInfoPublisher publisher = new SearchInfoPublisher(INTERVAL_MILLIS);
+		final List<String> events = Collections.synchronizedList(new ArrayList<>());
+		final List<Thread> threads = Collections.synchronizedList(new ArrayList<>());
+		final CountDownLatch firstDelivered = new CountDownLatch(1), completed = new CountDownLatch(1);
+
+		publisher.addListener(new SearchListener() {
+			@Override
+			public void onIterationComplete(final SearchInfo info)
+			{
+				threads.add(Thread.currentThread());
+				events.add("iteration " + info.getDepth());
+				firstDelivered.countDown();
+			}
+
+			@Override
+			public void onNewBestMove(final SearchInfo info)
+			{
+				threads.add(Thread.currentThread());
+				events.add("best move " + info.getDepth());
+			}
+
+			@Override
+			public void onSearchComplete(final SearchResult result)
+			{
+				threads.add(Thread.currentThread());
+				events.add("complete");
+				completed.countDown();
+			}
+		});
+
+		// Nothing was delivered before so the first report goes straight out
+		publisher.publishIteration(createInfo(1, 1));
+		assertTrue(firstDelivered.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+		// The rest are held back by the interval, only the latest of each kind survives
+		publisher.publishBestMove(createInfo(2, 2));
+		publisher.publishIteration(createInfo(2, 3));
+		publisher.publishBestMove(createInfo(3, 4));
+		publisher.publishIteration(createInfo(3, 5));
+		assertEquals(Arrays.asList("iteration 1"), events);
+
+		publisher.complete(new SearchResult(null, new SearchStatistics()));
+		assertTrue(completed.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+		assertEquals(Arrays.asList("iteration 1", "best move 3", "iteration 3", "complete"), events);
+		for (final Thread thread : threads) {
+			assertFalse(thread == Thread.currentThread());
+		}
+	}
+
+	private static SearchInfo createInfo(final int depth, final long elapsedNanos)
+	{
+		return new SearchInfo(depth, depth, 0, Collections.emptyList(), 0, elapsedNanos, 0);
+	}
+}
@@ -0,0 +1,199 @@
+package jenjinn.test.uci;
+
+import static jenjinn.engine.enums.Sq.a7;
+import static jenjinn.engine.enums.Sq.b8;
+import static jenjinn.engine.enums.Sq.f1;
+import static jenjinn.engine.enums.Sq.g2;
+import static jenjinn.engine.enums.Sq.h1;
+import static jenjinn.engine.enums.Sq.h2;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.Test;
+
+import jenjinn.engine.boardstate.BoardState;
+import jenjinn.engine.boardstate.BoardStateImpl;
+import jenjinn.engine.enums.Infinity;
+import jenjinn.engine.gametree.SearchInfo;
+import jenjinn.engine.moves.CastleMove;
+import jenjinn.engine.moves.ChessMove;
+import jenjinn.engine.moves.PromotionMove;
+import jenjinn.engine.pieces.PieceType;
+import jenjinn.test.TestBoards;
+import jenjinn.uci.UciEngine;
+
+/**
+ * Checks the long algebraic notation of moves, the parsing of the position and
+ * go commands and the options.
+ *
+ * @author ThomasB
+ */
+public class UciEngineTest
+{
+	/** Long enough for any of the shallow searches here. */
+	private static final long TIMEOUT_SECONDS = 60;
+
+	@Test
+	public void testPromotionSuffixes()
+	{
+		final Set<String> moves = getUciMoves(TestBoards.fromFen("1n5k/P7/8/8/8/8/8/K7 w"));
+		assertTrue(moves.containsAll(Arrays.asList("a7a8q", "a7b8q")));
+		assertFalse(moves.contains("a7a8"));
+
+		assertEquals("a7b8r", PromotionMove.get(a7, b8, PieceType.R).toUciString());
+		assertEquals("h2h1b", PromotionMove.get(h2, h1, PieceType.B).toUciString());
+		assertEquals("g2f1n", PromotionMove.get(g2, f1, PieceType.N).toUciString());
+	}
+
+	@Test
+	public void testCastlingAsKingMoves()
+	{
+		final BoardState state = play("e2e4", "e7e5", "g1f3", "b8c6", "f1c4", "g8f6");
+		final List<String> castles = state.getMoves().stream().filter(mv -> mv instanceof CastleMove).map(ChessMove::toUciString)
+				.collect(Collectors.toList());
+		assertEquals(Arrays.asList("e1g1"), castles);
+
+		final BoardState queenside = play("d2d4", "d7d5", "c1f4", "c8f5", "b1c3", "b8c6", "d1d2", "d8d7", "e1c1");
+		assertTrue(getUciMoves(queenside).contains("e8c8"));
+	}
+
+	/**
+	 * The rook moves after castling and the queen moves after the promotion are
+	 * only legal if the earlier moves were understood.
+	 */
+	@Test
+	public void testPositionStartposMoves()
+	{
+		final RecordingStream out = new RecordingStream();
+		final UciEngine engine = new UciEngine(out);
+		engine.processCommand("position startpos moves d2d4 d7d5 c1f4 c8f5 b1c3 b8c6 d1d2 d8d7 e1c1 e8c8 d1e1 d8e8");
+		engine.processCommand("position startpos moves e2e4 d7d5 e4d5 c7c6 d5c6 g8f6 c6b7 b8d7 b7a8q d8c7 a8c8");
+		// Only a knight reaches c7 from a8
+		engine.processCommand("position startpos moves e2e4 d7d5 e4d5 c7c6 d5c6 g8f6 c6b7 b8d7 b7a8n e7e6 a8c7");
+		assertEquals(Collections.emptyList(), out.getLines());
+
+		engine.processCommand("position startpos moves e2e4 d7d5 e4d5 c7c6 d5c6 g8f6 c6b7 b8d7 b7a8");
+		engine.processCommand("position startpos moves e2e4 d7d5 e4d5 c7c6 d5c6 g8f6 c6b7 b8d7 b7a8k");
+		engine.processCommand("position startpos moves e2e4 d7d5 e4d5 c7c6 d5c6 g8f6 c6b7 b8d7 b7a8q d8c7 a8c7");
+		assertEquals(Arrays.asList("info string illegal move b7a8", "info string illegal move b7a8k", "info string illegal move a8c7"),
+				out.getLines());
+	}
+
+	/**
+	 * Fool's mate, the queen mates at once so a search of depth two finds it and
+	 * reports the second iteration last before the best move. Reports are
+	 * throttled so that of the first may be dropped.
+	 */
+	@Test
+	public void testGoDepth() throws InterruptedException
+	{
+		final RecordingStream out = new RecordingStream();
+		final UciEngine engine = new UciEngine(out);
+		engine.processCommand("position startpos moves f2f3 e7e5 g2g4");
+		engine.processCommand("go depth 2");
+		assertTrue(out.bestMoveSent.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+		final List<String> lines = out.getLines();
+		assertEquals("bestmove d8h4", lines.get(lines.size() - 1));
+		assertTrue(lines.stream().filter(line -> line.startsWith("info depth")).allMatch(line -> line.matches("info depth [12] .*")));
+		assertTrue(lines.get(lines.size() - 2).startsWith("info depth 2 "));
+		assertTrue(lines.get(lines.size() - 2).contains(" score mate 1 "));
+	}
+
+	/**
+	 * The table is resized in place, a new calculator would bring another
+	 * dispatcher thread for the search reports with it.
+	 */
+	@Test
+	public void testHashOption() throws InterruptedException
+	{
+		final RecordingStream out = new RecordingStream();
+		final UciEngine engine = new UciEngine(out);
+		final long dispatchers = countDispatcherThreads();
+		engine.processCommand("setoption name Hash value 1");
+		engine.processCommand("setoption name Hash value 64");
+		engine.processCommand("setoption name Hash value 2");
+		assertEquals(dispatchers, countDispatcherThreads());
+
+		engine.processCommand("position startpos moves f2f3 e7e5 g2g4");
+		engine.processCommand("go depth 2");
+		assertTrue(out.bestMoveSent.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+		assertEquals("bestmove d8h4", out.getLines().get(out.getLines().size() - 1));
+	}
+
+	@Test
+	public void testFormatInfo()
+	{
+		final BoardState state = play("e2e4", "e7e5", "g1f3", "b8c6", "f1c4", "g8f6");
+		final ChessMove castle = state.getMoves().stream().filter(mv -> mv instanceof CastleMove).findFirst().get();
+		final SearchInfo mate = new SearchInfo(3, 5, Infinity.SHORT_INFINITY - 4, Arrays.asList(castle), 1234, 2_000_000_000L, 7);
+		assertEquals("info depth 3 seldepth 5 score mate 2 nodes 1234 nps 617 hashfull 7 time 2000 pv e1g1", UciEngine.formatInfo(mate));
+
+		final SearchInfo losing = new SearchInfo(1, 1, -(Infinity.SHORT_INFINITY - 1), Collections.emptyList(), 0, 0, 0);
+		assertTrue(UciEngine.formatInfo(losing).contains(" score mate -1 "));
+
+		// Scores are kept in half centipawns
+		final SearchInfo cp = new SearchInfo(1, 1, -150, Collections.emptyList(), 0, 0, 0);
+		assertTrue(UciEngine.formatInfo(cp).contains(" score cp -75 "));
+	}
+
+	private static BoardState play(final String... uciMoves)
+	{
+		BoardState state = BoardStateImpl.getStartBoard();
+		for (final String uciMove : uciMoves) {
+			final BoardState current = state;
+			state = state.getMoves().stream().filter(mv -> mv.toUciString().equals(uciMove)).findFirst().get().evolve(current);
+		}
+		return state;
+	}
+
+	private static long countDispatcherThreads()
+	{
+		return Thread.getAllStackTraces().keySet().stream().filter(t -> t.getName().equals("search-info-dispatcher")).count();
+	}
+
+	private static Set<String> getUciMoves(final BoardState state)
+	{
+		return state.getMoves().stream().map(ChessMove::toUciString).collect(Collectors.toSet());
+	}
+
+	/**
+	 * Keeps the lines the engine sends and signals the best move.
+	 */
+	private static final class RecordingStream extends PrintStream
+	{
+		private final List<String> lines = new ArrayList<>();
+		private final CountDownLatch bestMoveSent = new CountDownLatch(1);
+
+		RecordingStream()
+		{
+			super(new ByteArrayOutputStream());
+		}
+
+		@Override
+		public synchronized void println(final String line)
+		{
+			lines.add(line);
+			if (line.startsWith("bestmove")) {
+				bestMoveSent.countDown();
+			}
+		}
+
+		synchronized List<String> getLines()
+		{
+			return new ArrayList<>(lines);
+		}
+	}
+}
@@ -18,6 +18,7 @@ import jenjinn.engine.boardstate.BoardState;
 import jenjinn.engine.enums.Side;
 import jenjinn.engine.enums.Sq;
 import jenjinn.engine.enums.TerminationType;
+import jenjinn.engine.evaluation.TaperedScore;
 import jenjinn.engine.exceptions.AmbiguousPgnException;
 import jenjinn.engine.misc.EngineUtils;
 import jenjinn.engine.moves.ChessMove;
@@ -391,6 +392,12 @@ public final class TBoardState implements BoardState
 
 	}
 
+	@Override
+	public int getPositionalEval()
+	{
+		return TaperedScore.of(getMidgamePositionalEval(), getEndgamePositionalEval());
+	}
+
 	@Override
 	public short getMidgamePositionalEval()
 	{
@@ -569,7 +576,7 @@ public final class TBoardState implements BoardState
 	}
 
 	@Override
-	public long getPawnHash()
+	public long getPawnKingHash()
 	{
 		throw new RuntimeException("Impl this");
 	}